@@ -0,0 +1,50 @@
+package com.example.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * BenchmarkMain
+ *
+ * Entry point of benchmarks.jar: the standard JMH command line, with the GC profiler always on
+ * (gc.alloc.rate.norm = bytes allocated per operation) and JSON results written to
+ * jmh-result.json unless -rf/-rff are given, so runs can be compared for regressions.
+ *
+ * Usage:
+ *   (cd premis-impl && mvn install) && (cd premis-impl/benchmarks && mvn package)
+ *   java -jar premis-impl/benchmarks/target/benchmarks.jar                     # everything
+ *   java -jar premis-impl/benchmarks/target/benchmarks.jar Marshal -p objects=1000
+ *   java -jar premis-impl/benchmarks/target/benchmarks.jar -l                  # list benchmarks
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!hasGcProfiler(cmd)) options.addProfiler(GCProfiler.class);
+        if (!cmd.getResultFormat().hasValue() && !cmd.getResult().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static boolean hasGcProfiler(CommandLineOptions cmd) {
+        for (ProfilerConfig p : cmd.getProfilers()) {
+            if ("gc".equals(p.getKlass()) || GCProfiler.class.getName().equals(p.getKlass())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.benchmarks;
+
+import com.example.fixity.FixityEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FixityBenchmark
+ *
+ * Hashing one file with the shared FixityEngine (the former per-generator computeSha256), for a
+ * small, a medium and a memory-mapped file size:
+ *   sha256       - FixityEngine.sha256Hex
+ *   sha256AndMd5 - both digests from a single read (FixityEngine.digestHexAll)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixityBenchmark {
+
+    private static final List<String> SHA256_MD5 = Arrays.asList("SHA-256", "MD5");
+
+    /** 4 KiB metadata file, 1 MiB document, 96 MiB file above the mmap threshold. */
+    @Param({"4096", "1048576", "100663296"})
+    public long size;
+
+    private Path dir;
+    private Path file;
+    private FixityEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("premis-bench-fixity");
+        file = PremisFixtures.randomFile(dir, size);
+        engine = FixityEngine.getDefault();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PremisFixtures.deleteTree(dir);
+    }
+
+    @Benchmark
+    public String sha256() throws Exception {
+        return engine.sha256Hex(file);
+    }
+
+    @Benchmark
+    public Map<String, String> sha256AndMd5() throws Exception {
+        return engine.digestHexAll(file, SHA256_MD5);
+    }
+}
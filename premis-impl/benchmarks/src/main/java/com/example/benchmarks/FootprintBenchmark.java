@@ -0,0 +1,246 @@
+package com.example.benchmarks;
+
+import com.example.fixity.FixityEngine;
+import com.example.format.FormatIdentification;
+import com.example.jaxb.StringPlusAuthorityCache;
+import com.example.table.CompactObjectTable;
+import gov.loc.premis.v3.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * FootprintBenchmark
+ *
+ * Retained heap per described file when N files are held until save:
+ *   jaxbGraphs        - JAXB graphs as the generators attached them (object, identifier,
+ *                       characteristics, compositionLevel, fixity, format, extension with a DOM
+ *                       receivingDate, creatingApplication, StringPlusAuthority values)
+ *   objectTable       - the same files as rows of a CompactObjectTable
+ *   freshAuthorities  - file objects whose vocabulary values are allocated per use
+ *   sharedAuthorities - the same objects with StringPlusAuthorityCache instances
+ * Read the bytesPerObject secondary result: heap is sampled after repeated System.gc() before and
+ * after each build, so the time score is not meaningful. Identifiers and digests are created in
+ * setup: the graphs reference those strings (about 300 more bytes per file in a real run) while the
+ * table copies them into its arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FootprintBenchmark {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final String PREMIS_NS = "http://www.loc.gov/premis/v3";
+    private static final ObjectFactory FACTORY = new ObjectFactory();
+    private static final List<String> ALGORITHMS = Collections.singletonList(FixityEngine.SHA_256);
+    private static final FormatIdentification PDF = new FormatIdentification("PDF", "1.6", "fmt/20", "application/pdf", true);
+    private static final FormatIdentification PDF_A = new FormatIdentification("PDF/A-1B", "1b", "fmt/354", "application/pdf", true);
+
+    @Param({"10000", "100000"})
+    public int objects;
+
+    /** Retained heap of the structure built by the invocation, divided by objects. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public double bytesPerObject;
+    }
+
+    private DocumentBuilder db;
+    private StringPlusAuthorityCache cache;
+    private long now;
+    /** EVENTS counters are summed over the measurement: each invocation reports its share. */
+    private long invocations;
+    private String[] identifiers;
+    private Map<String, String>[] digests;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws Exception {
+        invocations = (long) params.getMeasurement().getCount() * params.getMeasurement().getBatchSize();
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        db = dbf.newDocumentBuilder();
+        cache = StringPlusAuthorityCache.getInstance();
+        now = CompactObjectTable.toEpochNanos(Instant.now());
+        identifiers = new String[objects];
+        digests = newMapArray(objects);
+        for (int i = 0; i < objects; i++) {
+            identifiers[i] = identifier(i);
+            digests[i] = Collections.singletonMap(FixityEngine.SHA_256, digest(i));
+        }
+    }
+
+    @Benchmark
+    public Object jaxbGraphs(Retained retained) throws InterruptedException {
+        return measure(retained, () -> {
+            List<ObjectComplexType> graphs = new ArrayList<>(objects);
+            for (int i = 0; i < objects; i++) graphs.add(fileGraph(i));
+            return graphs;
+        });
+    }
+
+    @Benchmark
+    public Object objectTable(Retained retained) throws InterruptedException {
+        return measure(retained, () -> {
+            CompactObjectTable table = new CompactObjectTable(ALGORITHMS);
+            for (int i = 0; i < objects; i++) {
+                table.add(identifiers[i], 1000L + i, digests[i], format(i), now + i, now - i);
+            }
+            return table;
+        });
+    }
+
+    @Benchmark
+    public Object freshAuthorities(Retained retained) throws InterruptedException {
+        return measure(retained, () -> vocabularyGraphs(FootprintBenchmark::fresh));
+    }
+
+    @Benchmark
+    public Object sharedAuthorities(Retained retained) throws InterruptedException {
+        return measure(retained, () -> vocabularyGraphs(cache::get));
+    }
+
+    private Object measure(Retained retained, Supplier<Object> build) throws InterruptedException {
+        long base = usedAfterGc();
+        Object built = build.get();
+        retained.bytesPerObject = (double) (usedAfterGc() - base) / objects / invocations;
+        return built;
+    }
+
+    /** The graph a generator attached to the root for one file before CompactObjectTable. */
+    private ObjectComplexType fileGraph(int i) {
+        File obj = new File();
+        ObjectIdentifierComplexType oid = new ObjectIdentifierComplexType();
+        oid.setObjectIdentifierType(fresh("FilePath", null));
+        oid.setObjectIdentifierValue(identifiers[i]);
+        obj.getObjectIdentifier().add(oid);
+
+        ObjectCharacteristicsComplexType oc = new ObjectCharacteristicsComplexType();
+        CompositionLevelComplexType comp = new CompositionLevelComplexType();
+        comp.setValue(BigInteger.ZERO);
+        oc.setCompositionLevel(comp);
+        oc.setSize(1000L + i);
+
+        FixityComplexType fix = new FixityComplexType();
+        fix.setMessageDigestAlgorithm(fresh(FixityEngine.SHA_256, null));
+        fix.setMessageDigest(digests[i].get(FixityEngine.SHA_256));
+        oc.getFixity().add(fix);
+
+        FormatComplexType fmt = new FormatComplexType();
+        FormatDesignationComplexType fd = new FormatDesignationComplexType();
+        fd.setFormatName(fresh(format(i).getName(), null));
+        fmt.getContent().add(FACTORY.createFormatDesignation(fd));
+        oc.getFormat().add(fmt);
+
+        ExtensionComplexType ext = new ExtensionComplexType();
+        Document doc = db.newDocument();
+        Element rd = doc.createElementNS(PREMIS_NS, "receivingDate");
+        rd.setTextContent(ISO.format(OffsetDateTime.now()));
+        ext.getAny().add(rd);
+        oc.getObjectCharacteristicsExtension().add(ext);
+
+        CreatingApplicationComplexType ca = new CreatingApplicationComplexType();
+        ca.getContent().add(FACTORY.createCreatingApplicationName(fresh("JDPS-Repository", null)));
+        ca.getContent().add(FACTORY.createDateCreatedByApplication(ISO.format(OffsetDateTime.now())));
+        oc.getCreatingApplication().add(ca);
+        obj.getObjectCharacteristics().add(oc);
+        return obj;
+    }
+
+    private List<ObjectComplexType> vocabularyGraphs(BiFunction<String, String, StringPlusAuthority> spa) {
+        List<ObjectComplexType> graphs = new ArrayList<>(objects);
+        for (int i = 0; i < objects; i++) graphs.add(vocabularyGraph(i, spa));
+        return graphs;
+    }
+
+    /** One file object with the vocabulary values a generated document repeats per object. */
+    private static ObjectComplexType vocabularyGraph(int i, BiFunction<String, String, StringPlusAuthority> spa) {
+        File obj = new File();
+        ObjectIdentifierComplexType oid = new ObjectIdentifierComplexType();
+        oid.setObjectIdentifierType(spa.apply("FilePath", null));
+        oid.setObjectIdentifierValue("data/representation/rep1/ODHC010879122024_" + i + ".pdf");
+        obj.getObjectIdentifier().add(oid);
+
+        ObjectCharacteristicsComplexType oc = new ObjectCharacteristicsComplexType();
+        FixityComplexType fix = new FixityComplexType();
+        fix.setMessageDigestAlgorithm(spa.apply(FixityEngine.SHA_256, null));
+        fix.setMessageDigest(Integer.toHexString(i));
+        oc.getFixity().add(fix);
+
+        FormatComplexType fmt = new FormatComplexType();
+        FormatDesignationComplexType fd = new FormatDesignationComplexType();
+        fd.setFormatName(spa.apply(i % 2 == 0 ? "PDF" : "PDF/A-1B", null));
+        fmt.getContent().add(FACTORY.createFormatDesignation(fd));
+        oc.getFormat().add(fmt);
+
+        CreatingApplicationComplexType ca = new CreatingApplicationComplexType();
+        ca.getContent().add(FACTORY.createCreatingApplicationName(spa.apply("JTDR", null)));
+        oc.getCreatingApplication().add(ca);
+        obj.getObjectCharacteristics().add(oc);
+
+        RelationshipComplexType rel = new RelationshipComplexType();
+        rel.setRelationshipType(spa.apply("derivation", null));
+        rel.setRelationshipSubType(spa.apply("derivedFrom", null));
+        RelatedObjectIdentifierComplexType roi = new RelatedObjectIdentifierComplexType();
+        roi.setRelatedObjectIdentifierType(spa.apply("FilePath", null));
+        roi.setRelatedObjectIdentifierValue("data/representation/rep2/ODHC010879122024_" + i + ".pdf");
+        rel.getRelatedObjectIdentifier().add(roi);
+        obj.getRelationship().add(rel);
+        return obj;
+    }
+
+    private static StringPlusAuthority fresh(String value, String authority) {
+        StringPlusAuthority s = new StringPlusAuthority();
+        s.setValue(value);
+        if (authority != null) s.setAuthority(authority);
+        return s;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String>[] newMapArray(int n) {
+        return (Map<String, String>[]) new Map<?, ?>[n];
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static String identifier(int i) {
+        return "data/representation/rep" + (1 + i % 2) + "/dir" + (i / 1000) + "/ODHC010879122024_" + i + ".pdf";
+    }
+
+    private static FormatIdentification format(int i) {
+        return i % 2 == 0 ? PDF : PDF_A;
+    }
+
+    private static String digest(int i) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int k = 0; k < 8; k++) sb.append(String.format("%08x", i * 31 + k * 0x9e3779b9));
+        return sb.toString();
+    }
+}
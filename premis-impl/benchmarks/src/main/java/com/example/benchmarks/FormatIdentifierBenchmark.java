@@ -0,0 +1,99 @@
+package com.example.benchmarks;
+
+import com.example.bench.SyntheticSipGenerator;
+import com.example.fixity.FixityEngine;
+import com.example.format.FormatIdentification;
+import com.example.format.FormatIdentifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * FormatIdentifierBenchmark
+ *
+ * Format identification of the regular files below a directory, per file, cycling through them:
+ *   signatures       - FormatIdentifier without its cache
+ *   digestCache      - the same with the digest cache warm (what a re-run or duplicate content costs)
+ *   probeContentType - Files.probeContentType, for reference (name-based, no version or PRONOM key)
+ * Without -p dir=<dir> a 200-file SIP from SyntheticSipGenerator is used. Digests for the cache keys
+ * are computed once, in setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatIdentifierBenchmark {
+
+    /** Directory to identify; empty for a generated synthetic SIP. */
+    @Param({""})
+    public String dir;
+
+    private Path generated;
+    private Path[] files;
+    private String[] digests;
+    private FormatIdentifier uncached;
+    private FormatIdentifier cached;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Path root;
+        if (dir.isEmpty()) {
+            generated = Files.createTempDirectory("premis-bench-format");
+            SyntheticSipGenerator gen = new SyntheticSipGenerator();
+            gen.setFilesPerSip(200);
+            gen.setMaxSize(4L << 20);
+            gen.generate(generated, new SyntheticSipGenerator.Summary());
+            root = generated;
+        } else {
+            root = Paths.get(dir);
+        }
+        List<Path> list;
+        try (Stream<Path> s = Files.walk(root)) {
+            list = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        if (list.isEmpty()) throw new IllegalStateException("no files under " + root);
+        files = list.toArray(new Path[0]);
+        digests = new String[files.length];
+        for (int i = 0; i < files.length; i++) digests[i] = FixityEngine.getDefault().sha256Hex(files[i]);
+
+        uncached = new FormatIdentifier(FormatIdentifier.DEFAULT_SCAN_BYTES, 0);
+        cached = new FormatIdentifier(FormatIdentifier.DEFAULT_SCAN_BYTES, files.length);
+        for (int i = 0; i < files.length; i++) cached.identify(files[i], digests[i]); // fills the cache
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PremisFixtures.deleteTree(generated);
+    }
+
+    @Benchmark
+    public FormatIdentification signatures() throws Exception {
+        return uncached.identify(files[advance()]);
+    }
+
+    @Benchmark
+    public FormatIdentification digestCache() throws Exception {
+        int i = advance();
+        return cached.identify(files[i], digests[i]);
+    }
+
+    @Benchmark
+    public String probeContentType() throws Exception {
+        return Files.probeContentType(files[advance()]);
+    }
+
+    private int advance() {
+        int i = next;
+        next = i + 1 == files.length ? 0 : i + 1;
+        return i;
+    }
+}
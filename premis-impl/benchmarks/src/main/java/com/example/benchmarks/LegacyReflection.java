@@ -0,0 +1,209 @@
+package com.example.benchmarks;
+
+import gov.loc.premis.v3.*;
+
+import javax.xml.bind.JAXBElement;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Collection;
+
+/**
+ * LegacyReflection
+ *
+ * The generators' reflective helpers before ObjectFactoryIndex and PropertyAccessors, kept here as
+ * baselines for ObjectCreationBenchmark and PropertySettingBenchmark only:
+ *   createByScanning - invoke every zero-arg create* method on ObjectFactory until one matches
+ *   Legacy           - property set/add/get through a getMethods() scan on every call
+ * buildFile replays the 16 accessor calls buildObjectForFile makes for one file against either
+ * Accessors implementation.
+ */
+final class LegacyReflection {
+
+    /** The helper signatures both implementations provide. */
+    interface Accessors {
+        boolean setOrAdd(Object target, String prop, Object value);
+        boolean addToList(Object target, String prop, Object value);
+        Object get(Object target, String prop);
+        Method findMethod(Class<?> c, String name, Class<?>... params);
+    }
+
+    private LegacyReflection() {
+    }
+
+    /** The lookup the generators used before ObjectFactoryIndex (step 1 of createUsingFactoryOrUnmarshal). */
+    static Object createByScanning(ObjectFactory factory, Class<?> clazz) {
+        for (Method mtry : factory.getClass().getMethods()) {
+            if (!mtry.getName().toLowerCase().startsWith("create")) continue;
+            if (mtry.getParameterCount() != 0) continue;
+            try {
+                Object ret = mtry.invoke(factory);
+                if (ret == null) continue;
+                if (clazz.isInstance(ret)) return ret;
+                if (ret instanceof JAXBElement) {
+                    Object val = ((JAXBElement<?>) ret).getValue();
+                    if (val != null && clazz.isInstance(val)) return val;
+                }
+            } catch (Throwable ignored) {
+            }
+        }
+        return null;
+    }
+
+    /** The accessor sequence of PremisJaxbV3Generator.buildObjectForFile; returns successful calls. */
+    static int buildFile(Accessors a, int i) throws Exception {
+        int ok = 0;
+        File obj = new File();
+        ObjectIdentifierComplexType oid = new ObjectIdentifierComplexType();
+        StringPlusAuthority type = new StringPlusAuthority();
+        type.setValue("FilePath");
+        if (a.setOrAdd(oid, "ObjectIdentifierType", type)) ok++;
+        if (a.setOrAdd(oid, "ObjectIdentifierValue", "data/file-" + i + ".pdf")) ok++;
+        if (a.addToList(obj, "ObjectIdentifier", oid)) ok++;
+
+        ObjectCharacteristicsComplexType oc = new ObjectCharacteristicsComplexType();
+        CompositionLevelComplexType comp = new CompositionLevelComplexType();
+        if (a.setOrAdd(comp, "Value", "0")) ok++;
+        if (a.setOrAdd(oc, "CompositionLevel", comp)) ok++;
+        Method setSize = a.findMethod(oc.getClass(), "setSize", BigInteger.class);
+        if (setSize != null) {
+            setSize.invoke(oc, BigInteger.valueOf(i));
+            ok++;
+        }
+
+        FixityComplexType fix = new FixityComplexType();
+        StringPlusAuthority alg = new StringPlusAuthority();
+        alg.setValue("SHA-256");
+        if (a.setOrAdd(fix, "MessageDigestAlgorithm", alg)) ok++;
+        if (a.setOrAdd(fix, "MessageDigest", "00")) ok++;
+        if (a.addToList(oc, "Fixity", fix)) ok++;
+
+        FormatComplexType fmt = new FormatComplexType();
+        FormatDesignationComplexType fd = new FormatDesignationComplexType();
+        if (a.setOrAdd(fd, "FormatName", "application/pdf")) ok++;
+        if (a.addToList(fmt, "FormatDesignation", fd)) ok++;
+        if (a.addToList(oc, "Format", fmt)) ok++;
+        if (a.setOrAdd(obj, "ObjectCharacteristics", oc)) ok++;
+
+        CreatingApplicationComplexType ca = new CreatingApplicationComplexType();
+        if (a.setOrAdd(ca, "CreatingApplicationName", "JDPS-Repository")) ok++;
+        if (a.get(obj, "ObjectCharacteristics") != null) ok++;
+        if (a.setOrAdd(obj, "NoSuchProperty", "x")) ok++; // negative lookup
+        return ok;
+    }
+
+    /** The generators' property helpers before PropertyAccessors. */
+    static final class Legacy implements Accessors {
+        @Override
+        public boolean setOrAdd(Object target, String propName, Object value) {
+            if (target == null) return false;
+            String setter = "set" + propName;
+            try {
+                for (Method m : target.getClass().getMethods()) {
+                    if (m.getName().equalsIgnoreCase(setter) && m.getParameterCount() == 1) {
+                        Class<?> param = m.getParameterTypes()[0];
+                        Object arg = adaptArgumentForParameter(value, param);
+                        m.invoke(target, arg);
+                        return true;
+                    }
+                }
+                Method gm = findMethod(target.getClass(), "get" + propName);
+                if (gm != null) {
+                    Object got = gm.invoke(target);
+                    if (got instanceof Collection) {
+                        add(got, value);
+                        return true;
+                    }
+                }
+            } catch (Exception ignored) {
+            }
+            return false;
+        }
+
+        @Override
+        public boolean addToList(Object target, String getterShort, Object valueToAdd) {
+            try {
+                Method gm = findMethod(target.getClass(), "get" + getterShort);
+                if (gm == null) {
+                    for (Method m : target.getClass().getMethods()) {
+                        if (m.getName().toLowerCase().startsWith("get") && Collection.class.isAssignableFrom(m.getReturnType())
+                                && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
+                            gm = m;
+                            break;
+                        }
+                    }
+                }
+                if (gm != null) {
+                    Object list = gm.invoke(target);
+                    if (list instanceof Collection) {
+                        add(list, valueToAdd);
+                        return true;
+                    }
+                }
+            } catch (Exception ignored) {
+            }
+            return false;
+        }
+
+        @Override
+        public Object get(Object target, String getterShort) {
+            if (target == null) return null;
+            try {
+                Method gm = findMethod(target.getClass(), "get" + getterShort);
+                if (gm != null) return gm.invoke(target);
+                for (Method m : target.getClass().getMethods()) {
+                    if (m.getName().toLowerCase().startsWith("get") && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
+                        return m.invoke(target);
+                    }
+                }
+            } catch (Exception ignored) {
+            }
+            return null;
+        }
+
+        @Override
+        public Method findMethod(Class<?> c, String name, Class<?>... paramTypes) {
+            if (c == null || name == null) return null;
+            try {
+                return c.getMethod(name, paramTypes);
+            } catch (NoSuchMethodException e) {
+                try {
+                    Method dm = c.getDeclaredMethod(name, paramTypes);
+                    dm.setAccessible(true);
+                    return dm;
+                } catch (NoSuchMethodException ex) {
+                    return null;
+                }
+            }
+        }
+
+        private static Method findMethod(Class<?> c, String name) {
+            for (Method m : c.getMethods()) {
+                if (m.getName().equalsIgnoreCase(name)) return m;
+            }
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.getName().equalsIgnoreCase(name)) { m.setAccessible(true); return m; }
+            }
+            return null;
+        }
+
+        private static Object adaptArgumentForParameter(Object value, Class<?> param) {
+            if (value == null) return null;
+            if (param.isAssignableFrom(value.getClass())) return value;
+            if (param == BigInteger.class) {
+                if (value instanceof Number) return BigInteger.valueOf(((Number) value).longValue());
+                try { return new BigInteger(value.toString()); } catch (Exception ignored) {}
+            }
+            if (param == String.class) return value.toString();
+            if (value instanceof JAXBElement) {
+                Object v = ((JAXBElement<?>) value).getValue();
+                if (param.isAssignableFrom(v.getClass())) return v;
+            }
+            return value;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static void add(Object collection, Object value) {
+            ((Collection) collection).add(value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.benchmarks;
+
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.streaming.PremisStreamWriter;
+import gov.loc.premis.v3.ObjectComplexType;
+import gov.loc.premis.v3.ObjectFactory;
+import gov.loc.premis.v3.PremisComplexType;
+import org.openjdk.jmh.annotations.*;
+
+import javax.xml.bind.JAXBElement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MarshalBenchmark
+ *
+ * Serialising a PremisComplexType with N file objects to a discarding stream, per document:
+ *   jaxb   - the shared prefixed marshaller on the whole tree (PremisJaxbV3Generator.save)
+ *   stream - PremisStreamWriter, one object fragment at a time (scanAndSaveStreaming)
+ * Divide gc.alloc.rate.norm by the objects parameter for bytes allocated per object.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarshalBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int objects;
+
+    private PremisComplexType root;
+    private JAXBElement<PremisComplexType> element;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = PremisFixtures.document(objects);
+        element = new ObjectFactory().createPremis(root);
+        JaxbContextRegistry.premis().context();
+    }
+
+    @Benchmark
+    public long jaxb() throws Exception {
+        PremisFixtures.CountingNullStream out = new PremisFixtures.CountingNullStream();
+        JaxbContextRegistry.premis().prefixedMarshaller().marshal(element, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long stream() throws Exception {
+        PremisFixtures.CountingNullStream out = new PremisFixtures.CountingNullStream();
+        try (PremisStreamWriter w = new PremisStreamWriter(out, "3.0", true)) {
+            for (ObjectComplexType o : root.getObject()) w.writeObject(o);
+        }
+        return out.count;
+    }
+}
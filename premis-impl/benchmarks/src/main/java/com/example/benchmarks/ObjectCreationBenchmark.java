@@ -0,0 +1,98 @@
+package com.example.benchmarks;
+
+import com.example.PremisJaxbV3Generator;
+import com.example.jaxb.ObjectFactoryIndex;
+import gov.loc.premis.v3.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ObjectCreationBenchmark
+ *
+ * Cost per JAXB node of the node mix a generator builds for one file (object, identifier,
+ * characteristics, compositionLevel, fixity, format, formatDesignation, extension,
+ * creatingApplication, StringPlusAuthority):
+ *   generator - PremisJaxbV3Generator.createUsingFactoryOrUnmarshal, as the generators call it
+ *   index     - ObjectFactoryIndex.create alone
+ *   scan      - the old loop over every create* method on ObjectFactory (LegacyReflection)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectCreationBenchmark {
+
+    private static final Class<?>[] NODES_PER_FILE = {
+        ObjectComplexType.class,
+        ObjectIdentifierComplexType.class,
+        ObjectCharacteristicsComplexType.class,
+        CompositionLevelComplexType.class,
+        FixityComplexType.class,
+        FormatComplexType.class,
+        FormatDesignationComplexType.class,
+        ExtensionComplexType.class,
+        CreatingApplicationComplexType.class,
+        StringPlusAuthority.class
+    };
+    private static final int NODES = 10;
+
+    private final String[][] factoryNames = new String[NODES][];
+    private final String[] localNames = new String[NODES];
+    private Path sipRoot;
+    private MethodHandle createUsingFactoryOrUnmarshal;
+    private ObjectFactory factory;
+    private ObjectFactoryIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sipRoot = Files.createTempDirectory("premis-bench-sip");
+        PremisJaxbV3Generator generator = new PremisJaxbV3Generator(sipRoot);
+        Method m = PremisJaxbV3Generator.class.getDeclaredMethod("createUsingFactoryOrUnmarshal",
+                String[].class, Class.class, String.class);
+        m.setAccessible(true);
+        createUsingFactoryOrUnmarshal = MethodHandles.lookup().unreflect(m).bindTo(generator);
+        factory = new ObjectFactory();
+        index = ObjectFactoryIndex.getInstance();
+        for (int i = 0; i < NODES; i++) {
+            String simple = NODES_PER_FILE[i].getSimpleName();
+            String base = simple.endsWith("ComplexType") ? simple.substring(0, simple.length() - "ComplexType".length()) : simple;
+            factoryNames[i] = new String[] {"create" + simple, "create" + base};
+            localNames[i] = base.substring(0, 1).toLowerCase(Locale.ROOT) + base.substring(1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PremisFixtures.deleteTree(sipRoot);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public void generator(Blackhole bh) throws Throwable {
+        for (int i = 0; i < NODES; i++) {
+            bh.consume(createUsingFactoryOrUnmarshal.invoke(factoryNames[i], NODES_PER_FILE[i], localNames[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public void index(Blackhole bh) {
+        for (Class<?> c : NODES_PER_FILE) bh.consume(index.create(c));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public void scan(Blackhole bh) {
+        for (Class<?> c : NODES_PER_FILE) bh.consume(LegacyReflection.createByScanning(factory, c));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.benchmarks;
+
+import gov.loc.premis.v3.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * PremisFixtures
+ *
+ * Shared inputs for the benchmarks: schema-valid PREMIS documents of a given size, random files to
+ * hash, and premis.xsd extracted from the premis-impl jar.
+ */
+final class PremisFixtures {
+    private static final ObjectFactory FACTORY = new ObjectFactory();
+
+    private PremisFixtures() {
+    }
+
+    /** A premis root with the given number of file objects shaped like the generators' output. */
+    static PremisComplexType document(int objects) {
+        PremisComplexType root = new PremisComplexType();
+        root.setVersion("3.0");
+        for (int i = 0; i < objects; i++) root.getObject().add(fileObject(i));
+        return root;
+    }
+
+    /** One file object: identifier, size, SHA-256 fixity and format name. */
+    static File fileObject(int i) {
+        File f = new File();
+        ObjectIdentifierComplexType id = new ObjectIdentifierComplexType();
+        id.setObjectIdentifierType(spa("FilePath"));
+        id.setObjectIdentifierValue("representation/rep1/data/file-" + i + ".pdf");
+        f.getObjectIdentifier().add(id);
+
+        ObjectCharacteristicsComplexType oc = new ObjectCharacteristicsComplexType();
+        FixityComplexType fx = new FixityComplexType();
+        fx.setMessageDigestAlgorithm(spa("SHA-256"));
+        fx.setMessageDigest(String.format("%064x", i));
+        oc.getFixity().add(fx);
+        oc.setSize(1024L + i);
+        FormatComplexType fmt = new FormatComplexType();
+        FormatDesignationComplexType fd = new FormatDesignationComplexType();
+        fd.setFormatName(spa("application/pdf"));
+        fmt.getContent().add(FACTORY.createFormatDesignation(fd));
+        oc.getFormat().add(fmt);
+        f.getObjectCharacteristics().add(oc);
+        return f;
+    }
+
+    static StringPlusAuthority spa(String value) {
+        StringPlusAuthority s = new StringPlusAuthority();
+        s.setValue(value);
+        return s;
+    }
+
+    /** A file of random bytes (fixed seed) in the given directory. */
+    static Path randomFile(Path dir, long size) throws IOException {
+        Path file = dir.resolve("data-" + size + ".bin");
+        Random rnd = new Random(size);
+        byte[] buf = new byte[1 << 16];
+        try (OutputStream os = Files.newOutputStream(file)) {
+            for (long left = size; left > 0; left -= buf.length) {
+                rnd.nextBytes(buf);
+                os.write(buf, 0, (int) Math.min(buf.length, left));
+            }
+        }
+        return file;
+    }
+
+    /** premis.xsd from the classpath (packaged with premis-impl), copied into the directory. */
+    static Path premisXsd(Path dir) throws IOException {
+        Path xsd = dir.resolve("premis.xsd");
+        try (InputStream in = PremisFixtures.class.getResourceAsStream("/premis.xsd")) {
+            if (in == null) throw new IOException("premis.xsd not on the classpath");
+            Files.copy(in, xsd, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return xsd;
+    }
+
+    static void deleteTree(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) return;
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Discards output; counts bytes so the marshaller cannot be optimised away. */
+    static final class CountingNullStream extends OutputStream {
+        long count;
+
+        @Override public void write(int b) {
+            count++;
+        }
+
+        @Override public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
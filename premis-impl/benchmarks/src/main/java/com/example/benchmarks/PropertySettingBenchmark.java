@@ -0,0 +1,50 @@
+package com.example.benchmarks;
+
+import com.example.jaxb.PropertyAccessors;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PropertySettingBenchmark
+ *
+ * Name-based property setting for one file object (the 16 accessor calls buildObjectForFile makes,
+ * see LegacyReflection.buildFile), per file:
+ *   cached     - PropertyAccessors, what the generators use
+ *   reflective - the old getMethods() scan on every call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertySettingBenchmark {
+
+    private LegacyReflection.Accessors cached;
+    private LegacyReflection.Accessors reflective;
+    private int seq;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PropertyAccessors pa = PropertyAccessors.getInstance();
+        cached = new LegacyReflection.Accessors() {
+            @Override public boolean setOrAdd(Object t, String p, Object v) { return pa.setOrAdd(t, p, v); }
+            @Override public boolean addToList(Object t, String p, Object v) { return pa.addToList(t, p, v); }
+            @Override public Object get(Object t, String p) { return pa.get(t, p); }
+            @Override public Method findMethod(Class<?> c, String n, Class<?>... ps) { return pa.findMethod(c, n, ps); }
+        };
+        reflective = new LegacyReflection.Legacy();
+    }
+
+    @Benchmark
+    public int cached() throws Exception {
+        return LegacyReflection.buildFile(cached, seq++);
+    }
+
+    @Benchmark
+    public int reflective() throws Exception {
+        return LegacyReflection.buildFile(reflective, seq++);
+    }
+}
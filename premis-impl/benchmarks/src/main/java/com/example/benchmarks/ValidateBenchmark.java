@@ -0,0 +1,61 @@
+package com.example.benchmarks;
+
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.streaming.AtomicFileOutput;
+import com.example.validator.XmlValidator;
+import gov.loc.premis.v3.ObjectFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ValidateBenchmark
+ *
+ * XmlValidator.validate(xml, xsd) on a schema-valid PREMIS file with N file objects, per file. The
+ * compiled premis.xsd comes from SchemaCache after the first call, so this measures parsing and
+ * validation, not schema compilation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidateBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int objects;
+
+    private Path dir;
+    private File xml;
+    private File xsd;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("premis-bench-validate");
+        xsd = PremisFixtures.premisXsd(dir).toFile();
+        Path out = dir.resolve("premis-" + objects + ".xml");
+        try (AtomicFileOutput af = AtomicFileOutput.open(out)) {
+            JaxbContextRegistry.premis().prefixedMarshaller()
+                    .marshal(new ObjectFactory().createPremis(PremisFixtures.document(objects)), af.stream());
+            af.commit();
+        }
+        xml = out.toFile();
+        List<String> errors = XmlValidator.validate(xml, xsd);
+        if (!errors.isEmpty()) throw new IllegalStateException("fixture is not valid: " + errors.get(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        PremisFixtures.deleteTree(dir);
+    }
+
+    @Benchmark
+    public List<String> validate() throws Exception {
+        return XmlValidator.validate(xml, xsd);
+    }
+}
@@ -1,5 +1,18 @@
 package com.example;
 
+import com.example.fixity.FixityCache;
+import com.example.fixity.FixityEngine;
+import com.example.fixity.FixityResult;
+import com.example.fixity.ParallelFixityStage;
+import com.example.format.FormatIdentification;
+import com.example.format.FormatIdentifier;
+import com.example.jaxb.FormatBlocks;
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.jaxb.ObjectFactoryIndex;
+import com.example.jaxb.PropertyAccessors;
+import com.example.jaxb.StringPlusAuthorityCache;
+import com.example.jaxb.RootListDispatch;
+import com.example.metrics.RunMetrics;
 import gov.loc.premis.v3.ObjectFactory;
 import gov.loc.premis.v3.PremisComplexType;
 
@@ -11,7 +24,6 @@ import java.lang.reflect.*;
 import java.math.BigInteger;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -29,8 +41,12 @@ import java.util.logging.Logger;
  *
  * Notes:
  * - This class is resilient to differences in generated ObjectFactory API.
- * - It sets size as BigInteger when possible, adds fixity (SHA-256), formatDesignation->formatName,
- *   and an objectCharacteristicsExtension/receivingDate.
+ * - It sets size as BigInteger when possible, adds fixity (one entry per algorithm in
+ *   premis.fixity.algorithms, SHA-256 by default), a format block from the file's signature
+ *   (FormatIdentifier: name, version, PRONOM key) and an objectCharacteristicsExtension/receivingDate.
+ *   Synthesized rep2 entries describe their rep1 source, so they carry its format.
+ * - With premis.fixity.cache set, unchanged files (same size, mtime and file key) reuse the
+ *   digests from the previous run instead of being read again.
  */
 public class PremisCombinedGenerator {
     private static final Logger LOG = Logger.getLogger(PremisCombinedGenerator.class.getName());
@@ -38,19 +54,27 @@ public class PremisCombinedGenerator {
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 
     private final Path sipRoot;
-    private final JAXBContext jaxb;
+    private final JaxbContextRegistry jaxb;
     private final ObjectFactory factory;
 
     // strong typed root
     private PremisComplexType premisRoot;
     private JAXBElement<PremisComplexType> premisElement;
 
+    // digests computed ahead on a worker pool while scanFilesAndAddObjects runs (null otherwise)
+    private ParallelFixityStage<Map<String, String>> fixityStage;
+    private List<String> fixityAlgorithms = FixityEngine.configuredAlgorithms();
+    private FixityCache fixityCache;
+    private final RunMetrics metrics; // per-phase timings and counters of this generator's runs
+
     public PremisCombinedGenerator(Path sipRoot) throws Exception {
         if (sipRoot == null || !Files.isDirectory(sipRoot)) {
             throw new IllegalArgumentException("sipRoot must be an existing directory");
         }
         this.sipRoot = sipRoot;
-        this.jaxb = JAXBContext.newInstance("gov.loc.premis.v3");
+        this.metrics = new RunMetrics(String.valueOf(sipRoot.toAbsolutePath().normalize().getFileName()));
+        this.jaxb = JaxbContextRegistry.premis();
+        this.fixityCache = FixityCache.fromSystemProperties();
         this.factory = new ObjectFactory();
         initPremisRoot();
     }
@@ -104,13 +128,13 @@ public class PremisCombinedGenerator {
         }
 
         try {
-            scanFilesAndAddObjects();      // scan SIP and add file objects (and per-file relationships)
+            metrics.time("scan", this::scanFilesAndAddObjects); // scan SIP and add file objects (and per-file relationships)
         } catch (Throwable t) {
             LOG.warning("scanFilesAndAddObjects failed: " + t.getMessage());
         }
 
         try {
-            buildRelationships();          // build top-level relationships block (hasRepresentation, hasMetadata...)
+            metrics.time("relationships", this::buildRelationships); // top-level relationships block (hasRepresentation, hasMetadata...)
         } catch (Throwable t) {
             LOG.warning("buildRelationships failed: " + t.getMessage());
         }
@@ -122,6 +146,7 @@ public class PremisCombinedGenerator {
         // Finally marshal to disk
         dumpPremisRootDiagnostics();
         marshal(outFile);
+        metrics.publish();
     }
 
 
@@ -145,9 +170,7 @@ public class PremisCombinedGenerator {
             gov.loc.premis.v3.ObjectIdentifierComplexType.class,
             "objectIdentifier"
         );
-        gov.loc.premis.v3.StringPlusAuthority type = new gov.loc.premis.v3.StringPlusAuthority();
-        type.setValue("CNR");
-        callSetterOrAdd(id, "ObjectIdentifierType", type);
+        callSetterOrAdd(id, "ObjectIdentifierType", createStringPlusAuthority("CNR", null));
         callSetterOrAdd(id, "ObjectIdentifierValue", sipRoot.getFileName().toString());
 
         callGetterAndAdd(entity, "ObjectIdentifier", id);
@@ -199,12 +222,15 @@ public class PremisCombinedGenerator {
 
     private void scanFilesAndAddObjects() throws Exception {
         List<Path> files = new ArrayList<>();
-        Files.walkFileTree(sipRoot, new SimpleFileVisitor<Path>() {
-            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                files.add(file);
-                return FileVisitResult.CONTINUE;
-            }
+        metrics.time("walk", () -> {
+            Files.walkFileTree(sipRoot, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    files.add(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         });
+        metrics.add("files.found", files.size());
 
         // Map files to expected logical paths (metadata, rep1, rep2, schema)
         Path metadataFile = findFirstWhere(files, p -> p.getFileName().toString().toLowerCase().contains("metadata"));
@@ -219,10 +245,34 @@ public class PremisCombinedGenerator {
         List<Path> rep2 = findAllUnder(files, sipRoot.resolve("representation").resolve("rep2").resolve("data"));
         Path schema = findFirstUnderExtension(files, ".xsd");
 
+        // Hash everything we are about to describe on the fixity pool; objects are still added
+        // (and digests joined) in the order below, so the output order does not change.
+        List<Path> toDescribe = new ArrayList<>();
+        if (metadataFile != null) toDescribe.add(metadataFile);
+        toDescribe.addAll(rep1);
+        toDescribe.addAll(rep2);
+        if (schema != null) toDescribe.add(schema);
+
+        fixityStage = ParallelFixityStage.fromSystemProperties(this::hashFile);
+        try {
+            fixityStage.submitAll(toDescribe);
+            metrics.time("build", () -> addScannedObjects(metadataFile, rep1, rep2, schema));
+            metrics.add("files.processed", toDescribe.size());
+        } finally {
+            fixityStage.close();
+            fixityStage = null;
+            if (fixityCache != null) {
+                fixityCache.flush();
+                LOG.info(fixityCache.toString());
+            }
+        }
+    }
+
+    private void addScannedObjects(Path metadataFile, List<Path> rep1, List<Path> rep2, Path schema) throws Exception {
         // Add metadata object
         if (metadataFile != null) {
             String rel = "data/metadata/ODHC012342025_Metadata_ecourt.xml";
-            addFileObject(metadataFile, rel, "XML", true, "JTDR", true);
+            addFileObject(metadataFile, rel, true, "JTDR", true);
         }
 
         // Add rep1 originals
@@ -230,7 +280,7 @@ public class PremisCombinedGenerator {
             Path p = rep1.get(i);
             String rel = String.format("data/representation/rep1/ODHC010879122024_%d.pdf", i + 1);
             boolean createApp = (i == 1); // second original has creatingApplication in your example
-            addFileObject(p, rel, "PDF", createApp, "JTDR", true);
+            addFileObject(p, rel, createApp, "JTDR", true);
         }
 
         // Add rep2 entries — if real files exist under rep2 use them else synthesize from rep1
@@ -238,13 +288,13 @@ public class PremisCombinedGenerator {
             for (int i = 0; i < rep2.size(); i++) {
                 Path p = rep2.get(i);
                 String rel = String.format("data/representation/rep2/ODHC010879122024_%d_converted.pdf", i + 1);
-                addFileObject(p, rel, "PDF/A-1B", true, "JTDR", false);
+                addFileObject(p, rel, true, "JTDR", false);
             }
         } else {
             for (int i = 0; i < rep1.size(); i++) {
                 Path src = rep1.get(i);
                 String rel = String.format("data/representation/rep2/ODHC010879122024_%d_converted.pdf", i + 1);
-                Object obj = addFileObject(src, rel, "PDF/A-1B", true, "JTDR", false);
+                Object obj = addFileObject(src, rel, true, "JTDR", false);
 
                 // Build a RelationshipComplexType and a RelatedObjectIdentifierComplexType (both exist in your generated package)
                 Object relObj = createUsingFactoryOrUnmarshal(
@@ -366,7 +416,7 @@ public class PremisCombinedGenerator {
 
         // schema
         if (schema != null) {
-            addFileObject(schema, "data/schema/ecourt.xsd", "XSD", false, "JTDR", false);
+            addFileObject(schema, "data/schema/ecourt.xsd", false, "JTDR", false);
         }
     }
 
@@ -484,8 +534,7 @@ private void dumpPremisRootDiagnostics() {
         // Also print a short XML preview to see the real output (first 400 chars)
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Marshaller mm = jaxb.createMarshaller();
-            mm.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            Marshaller mm = jaxb.marshaller();
             JAXBElement<PremisComplexType> rootElem = this.premisElement;
             if (rootElem == null) rootElem = new JAXBElement<>(new QName(PREMIS_NS, "premis"), PremisComplexType.class, this.premisRoot);
             mm.marshal(rootElem, baos);
@@ -510,6 +559,8 @@ private void dumpPremisRootDiagnostics() {
  */
 private boolean attachToRootByValueType(Object value) {
     if (premisRoot == null || value == null) return false;
+    // 0) typed root lists (object, event, agent, rights): precomputed value class -> list getter
+    if (RootListDispatch.forRoot(premisRoot.getClass()).attach(premisRoot, value)) return true;
     Class<?> vClass = value.getClass();
 
     try {
@@ -625,7 +676,7 @@ private boolean attachToRootByValueType(Object value) {
      * Create and add an <object> for a file using generated JAXB classes.
      * Returns the object instance (generated type).
      */
-    private Object addFileObject(Path file, String relativePath, String formatName,
+    private Object addFileObject(Path file, String relativePath,
                                  boolean addCreatingApplication, String creatingApplicationName,
                                  boolean addReceivingDate) throws Exception {
         Object obj = createUsingFactoryOrUnmarshal(new String[]{"createObjectComplexType","createObjectType","createObject"}, gov.loc.premis.v3.ObjectComplexType.class, "object");
@@ -654,20 +705,19 @@ private boolean attachToRootByValueType(Object value) {
             callSetterOrAdd(oc, "Size", BigInteger.valueOf(size));
         }
 
-        // fixity: algorithm + digest
-        Object fix = createUsingFactoryOrUnmarshal(new String[]{"createFixityComplexType","createFixity"}, gov.loc.premis.v3.FixityComplexType.class, "fixity");
-        if (!callSetterOrAdd(fix, "MessageDigestAlgorithm", "SHA-256")) {
-            callSetterOrAdd(fix, "MessageDigestAlgorithm", createStringPlusAuthority("SHA-256", null));
+        // fixity: algorithm + digest, one entry per configured algorithm (single read of the file)
+        Map<String, String> digests = digestsOf(file);
+        for (Map.Entry<String, String> d : digests.entrySet()) {
+            Object fix = createUsingFactoryOrUnmarshal(new String[]{"createFixityComplexType","createFixity"}, gov.loc.premis.v3.FixityComplexType.class, "fixity");
+            if (!callSetterOrAdd(fix, "MessageDigestAlgorithm", d.getKey())) {
+                callSetterOrAdd(fix, "MessageDigestAlgorithm", createStringPlusAuthority(d.getKey(), null));
+            }
+            callSetterOrAdd(fix, "MessageDigest", d.getValue());
+            callGetterAndAdd(oc, "Fixity", fix);
         }
-        callSetterOrAdd(fix, "MessageDigest", computeSha256(file));
-        callGetterAndAdd(oc, "Fixity", fix);
 
-        // format/designation/name
-        Object fmt = createUsingFactoryOrUnmarshal(new String[]{"createFormatComplexType","createFormat"}, gov.loc.premis.v3.FormatComplexType.class, "format");
-        Object fd = createUsingFactoryOrUnmarshal(new String[]{"createFormatDesignationComplexType","createFormatDesignation"}, gov.loc.premis.v3.FormatDesignationComplexType.class, "formatDesignation");
-        callSetterOrAdd(fd, "FormatName", formatName);
-        callGetterAndAdd(fmt, "FormatDesignation", fd);
-        callGetterAndAdd(oc, "Format", fmt);
+        // format: designation (name, version) and PRONOM registry entry, from the file's signature
+        callGetterAndAdd(oc, "Format", FormatBlocks.create(factory, identifyFormat(file, digests)));
 
         // receivingDate extension (use DOM element or JAXBElement depending on generated api)
         Object ext = createUsingFactoryOrUnmarshal(new String[]{"createExtensionComplexType","createExtension"}, gov.loc.premis.v3.ExtensionComplexType.class, "extension");
@@ -692,7 +742,9 @@ private boolean attachToRootByValueType(Object value) {
         }
 
         // attach object to root
-        callGetterAndAdd(premisRoot, "Object", obj);
+        if (!RootListDispatch.forRoot(premisRoot.getClass()).attach(premisRoot, obj)) {
+            callGetterAndAdd(premisRoot, "Object", obj);
+        }
         LOG.info("Added object for: " + relativePath);
         return obj;
     }
@@ -701,63 +753,21 @@ private boolean attachToRootByValueType(Object value) {
 
 
     private void marshal(Path outFile) throws Exception {
-        Marshaller m = jaxb.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-        // try to set schemaLocation
-        try {
-            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, PREMIS_NS + " http://www.loc.gov/standards/premis/premis-3-0.xsd");
-        } catch (Throwable ignored) {}
-
-        // Try to set a NamespacePrefixMapper to force the "premis" prefix when using the JAXB RI (com.sun.xml.bind)
-        try {
-            // Avoid compile-time dependency on com.sun.* classes by setting via reflection
-            Class<?> prefixMapperClass = null;
-            try {
-                prefixMapperClass = Class.forName("com.sun.xml.bind.marshaller.NamespacePrefixMapper");
-            } catch (ClassNotFoundException cnf) {
-                // not JAXB RI; try the alternative RI classname
-                try { prefixMapperClass = Class.forName("com.sun.xml.internal.bind.marshaller.NamespacePrefixMapper"); } catch (Throwable t) { prefixMapperClass = null; }
-            }
-            if (prefixMapperClass != null) {
-                final Object mapper = Proxy.newProxyInstance(
-                    prefixMapperClass.getClassLoader(),
-                    new Class<?>[]{ prefixMapperClass },
-                    (proxy, method, args) -> {
-                        String mname = method.getName();
-                        if ("getPreferredPrefix".equals(mname) && args != null && args.length >= 3) {
-                            String namespaceUri = (String) args[0];
-                            // enforce the premis prefix for the PREMIS namespace
-                            if (PREMIS_NS.equals(namespaceUri)) return "premis";
-                            // keep default prefixes for common namespaces
-                            if ("http://www.w3.org/2001/XMLSchema-instance".equals(namespaceUri)) return "xsi";
-                            return (String) args[2]; // default
-                        }
-                        // default behaviour for other methods
-                        return method.getDefaultValue();
-                    }
-                );
-                // set via reflection: m.setProperty("com.sun.xml.bind.namespacePrefixMapper", mapper)
-                try {
-                    m.setProperty("com.sun.xml.bind.namespacePrefixMapper", mapper);
-                } catch (Throwable t1) {
-                    try { m.setProperty("com.sun.xml.internal.bind.namespacePrefixMapper", mapper); } catch (Throwable ignored) {}
-                }
-            }
-        } catch (Throwable t) {
-            LOG.fine("NamespacePrefixMapper not available: " + t.getMessage());
-        }
+        // shared thread-local marshaller: formatted, PREMIS schemaLocation and the "premis" prefix
+        Marshaller m = jaxb.prefixedMarshaller();
 
         // Ensure root element uses the PREMIS namespace name "premis"
-        JAXBElement<PremisComplexType> rootElem = this.premisElement;
-        if (rootElem == null) {
-            rootElem = new JAXBElement<>(new QName(PREMIS_NS, "premis"), PremisComplexType.class, premisRoot);
-        }
+        JAXBElement<PremisComplexType> rootElem = this.premisElement != null ? this.premisElement
+                : new JAXBElement<>(new QName(PREMIS_NS, "premis"), PremisComplexType.class, premisRoot);
 
-        try (OutputStream os = Files.newOutputStream(outFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            m.marshal(rootElem, os);
-        }
+        metrics.time("marshal", () -> {
+            try (OutputStream os = Files.newOutputStream(outFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                m.marshal(rootElem, os);
+            }
+        });
         LOG.info("Saved PREMIS to " + outFile.toAbsolutePath());
+        metrics.add("objects.emitted", premisRoot.getObject().size());
+        metrics.add("bytes.written", Files.size(outFile));
     }
 
     private void verifyAndLogRootContents() {
@@ -787,22 +797,9 @@ private boolean attachToRootByValueType(Object value) {
      */
     @SuppressWarnings("unchecked")
     private <T> T createUsingFactoryOrUnmarshal(String[] candidateFactoryMethodNames, Class<T> clazz, String xmlLocalName) {
-        // 1) try factory methods
-        for (Method mtry : factory.getClass().getMethods()) {
-            if (!mtry.getName().toLowerCase().startsWith("create")) continue;
-            if (mtry.getParameterCount() != 0) continue;
-            try {
-                Object ret = mtry.invoke(factory);
-                if (ret == null) continue;
-                if (clazz.isInstance(ret)) return (T) ret;
-                if (ret instanceof JAXBElement) {
-                    Object val = ((JAXBElement<?>) ret).getValue();
-                    if (val != null && clazz.isInstance(val)) return (T) val;
-                }
-            } catch (Throwable t) {
-                LOG.fine("factory invocation failed: " + t.getMessage());
-            }
-        }
+        // 1) indexed factory creator (resolved once per JVM, one direct call per object)
+        T created = ObjectFactoryIndex.getInstance().create(clazz);
+        if (created != null) return created;
         // 2) explicit candidates
         for (String candidate : candidateFactoryMethodNames) {
             if (candidate == null) continue;
@@ -848,7 +845,7 @@ private boolean attachToRootByValueType(Object value) {
         try {
             String local = (xmlLocalName != null && !xmlLocalName.isEmpty()) ? xmlLocalName : deriveLocalNameFromClass(clazz);
             String xml = "<" + local + " xmlns=\"" + PREMIS_NS + "\"/>";
-            Unmarshaller u = jaxb.createUnmarshaller();
+            Unmarshaller u = jaxb.unmarshaller();
             StreamSource src = new StreamSource(new StringReader(xml));
             JAXBElement<T> je = u.unmarshal(src, clazz);
             T val = je.getValue();
@@ -866,133 +863,26 @@ private boolean attachToRootByValueType(Object value) {
         return s.toLowerCase();
     }
 
-    /** Create a gov.loc.premis.v3.StringPlusAuthority populated value, using factory if present. */
+    /** Shared StringPlusAuthority for value/authority from the canonical cache; callers must not modify it. */
     private gov.loc.premis.v3.StringPlusAuthority createStringPlusAuthority(String value, String authority) {
-        try {
-            Method m = factory.getClass().getMethod("createStringPlusAuthority");
-            Object spa = m.invoke(factory);
-            if (spa instanceof gov.loc.premis.v3.StringPlusAuthority) {
-                gov.loc.premis.v3.StringPlusAuthority s = (gov.loc.premis.v3.StringPlusAuthority) spa;
-                s.setValue(value);
-                if (authority != null) s.setAuthority(authority);
-                return s;
-            }
-        } catch (Exception ignored) {}
-        gov.loc.premis.v3.StringPlusAuthority s = new gov.loc.premis.v3.StringPlusAuthority();
-        s.setValue(value);
-        if (authority != null) s.setAuthority(authority);
-        return s;
+        return StringPlusAuthorityCache.getInstance().get(value, authority);
     }
 
-    // call setter or add to getter list
+    // property access through the shared PropertyAccessors cache (resolved once per class and name)
     private boolean callSetterOrAdd(Object target, String propName, Object value) {
-        if (target == null) return false;
-        String setter = "set" + propName;
-        try {
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getName().equalsIgnoreCase(setter) && m.getParameterCount() == 1) {
-                    Class<?> param = m.getParameterTypes()[0];
-                    Object arg = adaptArgumentForParameter(value, param);
-                    m.invoke(target, arg);
-                    return true;
-                }
-            }
-            // fallback to getter list
-            String getter = "get" + propName;
-            Method gm = findMethod(target.getClass(), getter);
-            if (gm != null) {
-                Object got = gm.invoke(target);
-                if (got instanceof Collection) {
-                    ((Collection) got).add(value);
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callSetterOrAdd failed for " + propName + ": " + e.getMessage());
-        }
-        return false;
+        return PropertyAccessors.getInstance().setOrAdd(target, propName, value);
     }
 
     private boolean callGetterAndAdd(Object target, String getterShort, Object valueToAdd) {
-        try {
-            Method gm = findMethod(target.getClass(), "get" + getterShort);
-            if (gm == null) {
-                for (Method m : target.getClass().getMethods()) {
-                    if (m.getName().toLowerCase().startsWith("get") && Collection.class.isAssignableFrom(m.getReturnType())
-                            && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
-                        gm = m;
-                        break;
-                    }
-                }
-            }
-            if (gm != null) {
-                Object list = gm.invoke(target);
-                if (list instanceof Collection) {
-                    ((Collection) list).add(valueToAdd);
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callGetterAndAdd failed for " + getterShort + ": " + e.getMessage());
-        }
-        return false;
+        return PropertyAccessors.getInstance().addToList(target, getterShort, valueToAdd);
     }
 
     private Object callGetter(Object target, String getterShort) {
-        if (target == null) return null;
-        try {
-            Method gm = findMethod(target.getClass(), "get" + getterShort);
-            if (gm != null) return gm.invoke(target);
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getName().toLowerCase().startsWith("get") && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
-                    return m.invoke(target);
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callGetter failed for " + getterShort + ": " + e.getMessage());
-        }
-        return null;
+        return PropertyAccessors.getInstance().get(target, getterShort);
     }
 
     private Method findMethod(Class<?> c, String name, Class<?>... paramTypes) {
-        if (c == null || name == null) return null;
-        try {
-            return c.getMethod(name, paramTypes);
-        } catch (NoSuchMethodException e) {
-            try {
-                Method dm = c.getDeclaredMethod(name, paramTypes);
-                dm.setAccessible(true);
-                return dm;
-            } catch (NoSuchMethodException ex) {
-                return null;
-            }
-        }
-    }
-
-    private Method findMethod(Class<?> c, String name) {
-        if (c == null || name == null) return null;
-        for (Method m : c.getMethods()) {
-            if (m.getName().equalsIgnoreCase(name)) return m;
-        }
-        for (Method m : c.getDeclaredMethods()) {
-            if (m.getName().equalsIgnoreCase(name)) { m.setAccessible(true); return m; }
-        }
-        return null;
-    }
-
-    private Object adaptArgumentForParameter(Object value, Class<?> param) {
-        if (value == null) return null;
-        if (param.isAssignableFrom(value.getClass())) return value;
-        if (param == BigInteger.class) {
-            if (value instanceof Number) return BigInteger.valueOf(((Number) value).longValue());
-            try { return new BigInteger(value.toString()); } catch (Exception ignored) {}
-        }
-        if (param == String.class) return value.toString();
-        if (value instanceof JAXBElement) {
-            Object v = ((JAXBElement<?>) value).getValue();
-            if (param.isAssignableFrom(v.getClass())) return v;
-        }
-        return value;
+        return PropertyAccessors.getInstance().findMethod(c, name, paramTypes);
     }
 
     private List<Path> filterByExt(List<Path> files, String ext) {
@@ -1018,21 +908,64 @@ private boolean attachToRootByValueType(Object value) {
         return null;
     }
 
-    private String computeSha256(Path f) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            try (InputStream is = Files.newInputStream(f)) {
-                byte[] buf = new byte[8192];
-                int r;
-                while ((r = is.read(buf)) > 0) md.update(buf, 0, r);
+    /** Digest cache consulted before reading a file (defaults to premis.fixity.cache; null disables). */
+    public void setFixityCache(FixityCache fixityCache) {
+        this.fixityCache = fixityCache;
+    }
+
+    /** Digests for the configured algorithms, from the fixity cache when the file is unchanged. */
+    private Map<String, String> hashFile(Path f) throws IOException {
+        return metrics.time("hash", () -> {
+            FixityCache cache = this.fixityCache;
+            if (cache == null) {
+                return FixityEngine.getDefault().digestHexAll(f, fixityAlgorithms, this::recordRead);
             }
-            byte[] d = md.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte b : d) sb.append(String.format("%02x", b & 0xff));
-            return sb.toString();
+            boolean[] read = {false};
+            Map<String, String> digests = cache.digestHexAll(FixityEngine.getDefault(), f, fixityAlgorithms, r -> {
+                read[0] = true;
+                recordRead(r);
+            });
+            metrics.increment(read[0] ? "fixity.cache.misses" : "fixity.cache.hits");
+            return digests;
+        });
+    }
+
+    /** Bytes, size histogram and per-file throughput (MB/s histogram) of one file read. */
+    private void recordRead(FixityResult r) {
+        metrics.add("bytes.read", r.getBytes());
+        metrics.histogram("hash.fileBytes").record(r.getBytes());
+        if (r.getBytes() > 0) metrics.histogram("hash.fileMBps").record(Math.round(r.getMegabytesPerSecond()));
+    }
+
+    /** Timings and counters of this generator's runs (walk, hash, build, relationships, marshal). */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Algorithms recorded as fixity for each file (defaults to premis.fixity.algorithms). */
+    public void setFixityAlgorithms(List<String> algorithms) {
+        if (algorithms == null || algorithms.isEmpty()) throw new IllegalArgumentException("at least one algorithm is required");
+        this.fixityAlgorithms = new ArrayList<>(algorithms);
+    }
+
+    /** Format of a file from its signature; the first digest keys FormatIdentifier's cache. */
+    private FormatIdentification identifyFormat(Path f, Map<String, String> digests) throws IOException {
+        String key = digests.isEmpty() ? null : digests.values().iterator().next();
+        String cacheKey = key == null || key.isEmpty() ? null : key;
+        return metrics.time("format", () -> FormatIdentifier.getDefault().identify(f, cacheKey)); // part of build
+    }
+
+    /** Digests of a file keyed by algorithm, joined from the fixity stage while a scan is running. */
+    private Map<String, String> digestsOf(Path f) {
+        ParallelFixityStage<Map<String, String>> stage = this.fixityStage;
+        try {
+            if (stage == null) return hashFile(f);
+            return metrics.time("fixity.wait", () -> stage.await(f)); // part of build: waiting for the pool
         } catch (Exception e) {
-            LOG.fine("computeSha256 failed: " + e.getMessage());
-            return "";
+            LOG.fine("digest failed: " + e.getMessage());
+            Map<String, String> empty = new LinkedHashMap<>();
+            for (String alg : fixityAlgorithms) empty.put(alg, "");
+            return empty;
         }
     }
 
@@ -1,7 +1,11 @@
 package com.example;
 
+import com.example.fixity.FixityEngine;
+import com.example.format.FormatIdentification;
+import com.example.format.FormatIdentifier;
+import com.example.jaxb.JaxbContextRegistry;
+
 import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
 import javax.xml.namespace.QName;
@@ -15,7 +19,6 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.*;
 import java.lang.reflect.*;
 import java.nio.file.*;
-import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import org.w3c.dom.*;
@@ -328,7 +331,7 @@ public class PremisGenerator {
                         }
 
                         // create fixity/checksum element
-                        String sha256 = computeSha256Hex(f);
+                        String sha256 = FixityEngine.getDefault().sha256Hex(f.toPath());
                         // create fixity structure from factory if present
                         Object fixity = null;
                         for (Method m : factoryClass.getMethods()) {
@@ -397,9 +400,8 @@ public class PremisGenerator {
             }
 
             // Marshal premisRoot to file with JAXB
-            // Build JAXBContext for the generated package
-            JAXBContext jc = JAXBContext.newInstance(GENERATED_PACKAGE);
-            Marshaller m = jc.createMarshaller();
+            // Shared JAXBContext for the generated package (built once per JVM)
+            Marshaller m = JaxbContextRegistry.forContextPath(GENERATED_PACKAGE).context().createMarshaller();
             m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
 
             // If premisRoot is a JAXBElement wrapper, marshal it directly
@@ -470,7 +472,8 @@ public class PremisGenerator {
             Element alg = doc.createElementNS(PREMIS_NS, "premis:messageDigestAlgorithm");
             alg.setTextContent("SHA-256");
             Element digest = doc.createElementNS(PREMIS_NS, "premis:messageDigest");
-            digest.setTextContent(computeSha256Hex(f));
+            String sha256 = FixityEngine.getDefault().sha256Hex(f.toPath());
+            digest.setTextContent(sha256);
             fixity.appendChild(alg);
             fixity.appendChild(digest);
             objChar.appendChild(fixity);
@@ -484,13 +487,32 @@ public class PremisGenerator {
             oname.appendChild(onameValue);
             objectEl.appendChild(oname);
 
-            // formatIdentification (basic)
+            // formatIdentification: name and version, PRONOM key when known (as the JAXB generators write it)
+            FormatIdentification id = FormatIdentifier.getDefault().identify(f.toPath(), sha256);
             Element format = doc.createElementNS(PREMIS_NS, "premis:format");
             Element formatName = doc.createElementNS(PREMIS_NS, "premis:formatDesignation");
             Element formatLabel = doc.createElementNS(PREMIS_NS, "premis:formatName");
-            formatLabel.setTextContent(detectMimeType(f));
+            formatLabel.setTextContent(id.getName());
             formatName.appendChild(formatLabel);
+            if (id.getVersion() != null) {
+                Element formatVersion = doc.createElementNS(PREMIS_NS, "premis:formatVersion");
+                formatVersion.setTextContent(id.getVersion());
+                formatName.appendChild(formatVersion);
+            }
             format.appendChild(formatName);
+            if (id.getPuid() != null) {
+                Element registry = doc.createElementNS(PREMIS_NS, "premis:formatRegistry");
+                Element regName = doc.createElementNS(PREMIS_NS, "premis:formatRegistryName");
+                regName.setTextContent("PRONOM");
+                Element regKey = doc.createElementNS(PREMIS_NS, "premis:formatRegistryKey");
+                regKey.setTextContent(id.getPuid());
+                Element regRole = doc.createElementNS(PREMIS_NS, "premis:formatRegistryRole");
+                regRole.setTextContent("specification");
+                registry.appendChild(regName);
+                registry.appendChild(regKey);
+                registry.appendChild(regRole);
+                format.appendChild(registry);
+            }
             objectEl.appendChild(format);
         }
 
@@ -501,30 +523,4 @@ public class PremisGenerator {
         trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
         trans.transform(new DOMSource(doc), new StreamResult(outputXml));
     }
-
-    private static String computeSha256Hex(File f) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        try (InputStream is = Files.newInputStream(f.toPath())) {
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = is.read(buf)) > -1) {
-                md.update(buf, 0, n);
-            }
-        }
-        byte[] digest = md.digest();
-        StringBuilder sb = new StringBuilder(digest.length * 2);
-        for (byte b : digest) {
-            sb.append(String.format("%02x", b & 0xff));
-        }
-        return sb.toString();
-    }
-
-    private static String detectMimeType(File f) {
-        try {
-            String t = Files.probeContentType(f.toPath());
-            return t == null ? "application/pdf" : t;
-        } catch (IOException e) {
-            return "application/pdf";
-        }
-    }
 }
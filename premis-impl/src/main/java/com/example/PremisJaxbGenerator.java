@@ -1,12 +1,12 @@
 // package com.example;
 
+// import com.example.fixity.FixityEngine;
 // import gov.loc.premis.v3.*;
 // import javax.xml.bind.*;
 // import javax.xml.namespace.QName;
 // import java.io.*;
 // import java.nio.file.*;
 // import java.nio.file.attribute.BasicFileAttributes;
-// import java.security.*;
 // import java.time.*;
 // import java.time.format.DateTimeFormatter;
 // import java.util.*;
@@ -245,7 +245,7 @@
 //         // fixity
 //         FixityComplexType fix = factory.createFixityComplexType();
 //         fix.setMessageDigestAlgorithm("SHA-256");
-//         fix.setMessageDigest(computeSha256(file));
+//         fix.setMessageDigest(FixityEngine.getDefault().sha256Hex(file));
 //         oc.getFixity().add(fix);
 
 //         // format & designation
@@ -287,7 +287,7 @@
 
 //         FixityComplexType fix = factory.createFixityComplexType();
 //         fix.setMessageDigestAlgorithm("SHA-256");
-//         fix.setMessageDigest(computeSha256(file));
+//         fix.setMessageDigest(FixityEngine.getDefault().sha256Hex(file));
 //         oc.getFixity().clear();
 //         oc.getFixity().add(fix);
 
@@ -328,20 +328,6 @@
 //         LOG.info("Added ingest event: " + detail);
 //     }
 
-//     // helper: compute SHA-256 hex
-//     private String computeSha256(Path f) throws Exception {
-//         MessageDigest md = MessageDigest.getInstance("SHA-256");
-//         try (InputStream is = Files.newInputStream(f)) {
-//             byte[] buf = new byte[8192];
-//             int r;
-//             while ((r = is.read(buf)) > 0) md.update(buf, 0, r);
-//         }
-//         byte[] d = md.digest();
-//         StringBuilder sb = new StringBuilder();
-//         for (byte b : d) sb.append(String.format("%02x", b & 0xff));
-//         return sb.toString();
-//     }
-
 //     private String detectFormatName(Path f) {
 //         String fn = f.getFileName().toString().toLowerCase();
 //         if (fn.endsWith(".pdf")) {
@@ -1,15 +1,40 @@
 package com.example;
 
+import com.example.fixity.FixityCache;
+import com.example.fixity.FixityEngine;
+import com.example.fixity.FixityResult;
+import com.example.fixity.ParallelFixityStage;
+import com.example.format.FormatIdentification;
+import com.example.format.FormatIdentifier;
+import com.example.jaxb.FormatBlocks;
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.jaxb.ObjectIdentifierIndex;
+import com.example.streaming.PremisEventAppender;
+import com.example.streaming.PremisSelectiveLoader;
+import com.example.streaming.PremisStreamWriter;
+import com.example.table.CompactObjectTable;
+import com.example.validator.SchemaCache;
+import com.example.validator.XmlValidator;
+import com.example.jaxb.ObjectFactoryIndex;
+import com.example.jaxb.PropertyAccessors;
+import com.example.jaxb.StringPlusAuthorityCache;
+import com.example.metrics.RunMetrics;
+import gov.loc.premis.v3.AgentComplexType;
+import gov.loc.premis.v3.AgentIdentifierComplexType;
+import gov.loc.premis.v3.EventComplexType;
+import gov.loc.premis.v3.EventIdentifierComplexType;
+import gov.loc.premis.v3.ObjectComplexType;
 import gov.loc.premis.v3.ObjectFactory;
+import gov.loc.premis.v3.ObjectIdentifierComplexType;
 import gov.loc.premis.v3.PremisComplexType;
+import gov.loc.premis.v3.RightsComplexType;
 
 import javax.xml.bind.*;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.XMLConstants;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Schema;
 import javax.xml.validation.Validator;
 
@@ -22,8 +47,9 @@ import java.math.BigInteger;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
-import java.security.MessageDigest;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.logging.Logger;
@@ -35,23 +61,54 @@ import java.util.logging.Logger;
  *
  * - Uses gov.loc.premis.v3 generated JAXB classes.
  * - Robust to variation in codegen (uses factory when present, reflection and XML-unmarshal fallback).
+ * - Records one fixity entry per algorithm in premis.fixity.algorithms (SHA-256 by default); all
+ *   digests of a file come from a single read.
+ * - With premis.fixity.cache set, unchanged files (same size, mtime and file key) reuse the
+ *   digests from the previous run instead of being re-hashed.
+ * - Existing objects are found through an ObjectIdentifierIndex, so updating an N-file PREMIS is
+ *   linear in N.
+ * - Formats are identified from file signatures (FormatIdentifier: name, version, PRONOM key),
+ *   cached by digest, instead of from the file extension.
+ * - scanAndSaveStreaming() (CLI: --stream) writes objects as they are built instead of holding the
+ *   whole tree, for SIPs with hundreds of thousands of files. The file has the same namespace
+ *   layout as save() (PREMIS as the default namespace).
+ * - scanAndEnsureObjects() keeps new file objects as rows of a CompactObjectTable (about 150 bytes
+ *   each instead of a JAXB graph) and save() builds each JAXB object only while it is marshalled;
+ *   -Dpremis.objects.compact=false attaches full JAXB objects to the root as before.
+ * - When premis.xsd is in the working dir, save() validates while marshalling (Marshaller.setSchema)
+ *   and collects every problem in that single pass; -Dpremis.validate.reparse=true restores the
+ *   write-then-re-read check. Streaming output is still re-read after writing.
  */
 public class PremisJaxbV3Generator {
     private static final Logger LOG = Logger.getLogger(PremisJaxbV3Generator.class.getName());
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     private static final String PREMIS_NS = "http://www.loc.gov/premis/v3";
+    /** Set to true to validate by re-reading the saved file instead of while marshalling. */
+    public static final String REPARSE_VALIDATION_PROPERTY = "premis.validate.reparse";
+    /** Set to false to attach new objects to the root instead of collecting them in a CompactObjectTable. */
+    public static final String COMPACT_OBJECTS_PROPERTY = "premis.objects.compact";
     private final Path sipRoot;
-    private final JAXBContext jaxb;
+    private final JaxbContextRegistry jaxb;
     private final ObjectFactory factory;
     private PremisComplexType premisRoot; // strong type for convenience
     private JAXBElement<PremisComplexType> premisElement;
+    private ObjectIdentifierIndex objectIndex; // identifier value -> object, rebuilt when the root changes
+    private ParallelFixityStage<Map<String, String>> fixityStage; // set while scanAndEnsureObjects runs
+    private List<String> fixityAlgorithms = FixityEngine.configuredAlgorithms();
+    private FixityCache fixityCache; // premis.fixity.cache, null when not configured
+    private List<String> lastValidationErrors = Collections.emptyList();
+    private final RunMetrics metrics; // per-phase timings and counters of this generator's runs
+    private final boolean compactObjectsEnabled = !"false".equalsIgnoreCase(System.getProperty(COMPACT_OBJECTS_PROPERTY));
+    private CompactObjectTable compactObjects; // new file objects not attached to the root, created on first use
 
     public PremisJaxbV3Generator(Path sipRoot) throws Exception {
         if (sipRoot == null || !Files.isDirectory(sipRoot)) {
             throw new IllegalArgumentException("sipRoot must be an existing directory");
         }
         this.sipRoot = sipRoot;
-        this.jaxb = JAXBContext.newInstance("gov.loc.premis.v3");
+        this.metrics = new RunMetrics(String.valueOf(sipRoot.toAbsolutePath().normalize().getFileName()));
+        this.jaxb = JaxbContextRegistry.premis();
+        this.fixityCache = FixityCache.fromSystemProperties();
         this.factory = new ObjectFactory();
 
         // create or load premis root
@@ -102,6 +159,12 @@ public class PremisJaxbV3Generator {
         this.premisElement = new JAXBElement<>(new QName(PREMIS_NS, "premis"), PremisComplexType.class, this.premisRoot);
     }
 
+    /** Identifier index over the current root, (re)built when the root instance changed. */
+    private ObjectIdentifierIndex objectIndex() {
+        if (objectIndex == null) objectIndex = ObjectIdentifierIndex.of(premisRoot);
+        return objectIndex;
+    }
+
     private Optional<Path> findExistingPremisFile() throws IOException {
         try (DirectoryStream<Path> ds = Files.newDirectoryStream(sipRoot, "*.xml")) {
             for (Path p : ds) {
@@ -109,8 +172,12 @@ public class PremisJaxbV3Generator {
                 if (n.contains("premis")) return Optional.of(p);
             }
         }
+        // bounded fallback: PREMIS lives next to the metadata, never inside the payload
         final Path[] found = {null};
-        Files.walkFileTree(sipRoot, new SimpleFileVisitor<Path>() {
+        Files.walkFileTree(sipRoot, EnumSet.noneOf(FileVisitOption.class), 3, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return "representation".equals(String.valueOf(dir.getFileName())) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
             @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
                 String n = file.getFileName().toString().toLowerCase();
                 if (n.endsWith(".xml") && n.contains("premis")) {
@@ -124,7 +191,7 @@ public class PremisJaxbV3Generator {
     }
 
     private void unmarshalExisting(Path xml) throws Exception {
-        Unmarshaller u = jaxb.createUnmarshaller();
+        Unmarshaller u = jaxb.unmarshaller();
         try (InputStream is = Files.newInputStream(xml)) {
             Object unmar = u.unmarshal(is);
             if (unmar instanceof JAXBElement) {
@@ -137,6 +204,8 @@ public class PremisJaxbV3Generator {
                 this.premisElement = new JAXBElement<>(new QName(PREMIS_NS, "premis"), PremisComplexType.class, this.premisRoot);
             }
         }
+        // index the loaded objects once; ensureObjectForFile keeps it current
+        this.objectIndex = ObjectIdentifierIndex.of(premisRoot);
     }
 
     /**
@@ -211,48 +280,201 @@ public class PremisJaxbV3Generator {
      * Scans SIP folder and ensures objects for pdf/xml/xsd files
      */
     public void scanAndEnsureObjects() throws Exception {
-        LOG.info("Scanning SIP tree: " + sipRoot.toAbsolutePath());
-        Files.walkFileTree(sipRoot, new SimpleFileVisitor<Path>() {
-            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        List<Path> files = collectSipFiles();
+
+        // hash on the fixity pool, then ensure objects in walk order (joining each digest)
+        startFixityStage(files);
+        try {
+            for (Path file : files) {
                 try {
-                    String name = file.getFileName().toString().toLowerCase();
-                    if (name.endsWith(".pdf") || name.endsWith(".xml") || name.endsWith(".xsd")) {
-                        if (name.contains("premis")) return FileVisitResult.CONTINUE;
-                        ensureObjectForFile(file);
-                    }
+                    ensureObjectForFile(file);
+                    metrics.increment("files.processed");
                 } catch (Exception ex) {
                     LOG.warning("scan error: " + ex.getMessage());
                     ex.printStackTrace();
                 }
-                return FileVisitResult.CONTINUE;
             }
+        } finally {
+            stopFixityStage();
+        }
+    }
+
+    /**
+     * Streaming alternative to scanAndEnsureObjects() + save(). Objects already on the root are
+     * updated (when their file is still present) and written first, then an object is built,
+     * written and dropped for each new file, then the root's events, agents and rights follow.
+     * New objects are never attached to the root, so heap use does not grow with the file count.
+     */
+    public void scanAndSaveStreaming(Path outFile) throws Exception {
+        List<Path> files = collectSipFiles();
+        // existing objects are updated before new ones are built: hash them in that order
+        List<Path> existingFiles = new ArrayList<>();
+        List<Path> newFiles = new ArrayList<>();
+        for (Path file : files) {
+            (objectIndex().get(relativeId(file)) != null ? existingFiles : newFiles).add(file);
+        }
+        List<Path> ordered = new ArrayList<>(existingFiles);
+        ordered.addAll(newFiles);
+        startFixityStage(ordered);
+        try (PremisStreamWriter w = PremisStreamWriter.open(outFile, premisRoot.getVersion())) {
+            for (Path file : existingFiles) {
+                ObjectComplexType existing = objectIndex().get(relativeId(file));
+                try {
+                    updateSizeAndFixity(existing, file);
+                    metrics.increment("files.processed");
+                } catch (Exception ex) {
+                    LOG.warning("scan error: " + ex.getMessage());
+                }
+            }
+            for (ObjectComplexType o : premisRoot.getObject()) w.writeObject(o);
+            for (Path file : newFiles) {
+                try {
+                    Object obj = metrics.time("build", () -> buildObjectForFile(file, relativeId(file)));
+                    metrics.time("marshal", () -> w.writeObject((ObjectComplexType) obj));
+                    metrics.increment("files.processed");
+                } catch (Exception ex) {
+                    LOG.warning("scan error: " + ex.getMessage());
+                }
+            }
+            for (EventComplexType e : premisRoot.getEvent()) w.writeEvent(e);
+            for (AgentComplexType a : premisRoot.getAgent()) w.writeAgent(a);
+            for (RightsComplexType r : premisRoot.getRights()) w.writeRights(r);
+            LOG.info("Streamed PREMIS to " + outFile + " (" + w.getObjectCount() + " objects, "
+                    + newFiles.size() + " new)");
+            metrics.add("objects.emitted", w.getObjectCount());
+        } finally {
+            stopFixityStage();
+        }
+        metrics.add("bytes.written", Files.size(outFile));
+        validateIfSchemaPresent(outFile);
+        metrics.publish();
+    }
+
+    /** pdf/xml/xsd files of the SIP in walk order, skipping existing PREMIS files. */
+    private List<Path> collectSipFiles() throws IOException {
+        LOG.info("Scanning SIP tree: " + sipRoot.toAbsolutePath());
+        List<Path> files = new ArrayList<>();
+        metrics.time("walk", () -> {
+            Files.walkFileTree(sipRoot, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString().toLowerCase();
+                    if (name.endsWith(".pdf") || name.endsWith(".xml") || name.endsWith(".xsd")) {
+                        if (name.contains("premis")) return FileVisitResult.CONTINUE;
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
         });
+        metrics.add("files.found", files.size());
+        return files;
+    }
+
+    /** Starts hashing files (in the order they will be described) on the fixity pool; returns at once. */
+    private void startFixityStage(List<Path> files) {
+        fixityStage = ParallelFixityStage.fromSystemProperties(this::hashFile);
+        try {
+            fixityStage.submitAll(files);
+        } catch (RuntimeException e) {
+            stopFixityStage();
+            throw e;
+        }
+    }
+
+    private void stopFixityStage() {
+        if (fixityStage != null) {
+            fixityStage.close();
+            fixityStage = null;
+        }
+        if (fixityCache != null) {
+            fixityCache.flush();
+            LOG.info(fixityCache.toString());
+        }
+    }
+
+    private String relativeId(Path file) {
+        return sipRoot.relativize(file).toString().replace(File.separatorChar, '/');
     }
 
     /**
      * Ensure object entry exists for a file; create/update size+fixity+format.
      */
-    @SuppressWarnings("unchecked")
     public void ensureObjectForFile(Path file) throws Exception {
-        String rel = sipRoot.relativize(file).toString().replace(File.separatorChar, '/');
-
-        // find existing objects
-        List<Object> existingObjects = getListFromPremisRoot("Object");
-        for (Object o : existingObjects) {
-            List<Object> oids = (List<Object>) callGetter(o, "ObjectIdentifier");
-            if (oids != null) {
-                for (Object oid : oids) {
-                    Object val = callGetter(oid, "ObjectIdentifierValue");
-                    if (val != null && rel.equals(val.toString())) {
-                        // update
-                        updateSizeAndFixity(o, file);
-                        LOG.info("Updated existing PREMIS object for " + rel);
-                        return;
-                    }
-                }
-            }
+        String rel = relativeId(file);
+
+        // find existing object by identifier value
+        ObjectComplexType existing = objectIndex().get(rel);
+        if (existing != null) {
+            updateSizeAndFixity(existing, file);
+            LOG.info("Updated existing PREMIS object for " + rel);
+            return;
+        }
+
+        if (compactObjectsEnabled) {
+            // kept as a table row; save() builds the JAXB object while marshalling
+            boolean added = metrics.time("build", () -> putRow(file, rel));
+            LOG.info((added ? "Added" : "Updated") + " PREMIS object for " + rel);
+            return;
         }
 
+        Object obj = metrics.time("build", () -> buildObjectForFile(file, rel));
+
+        // attach object to root
+        callGetterAndAdd(premisRoot, "Object", obj);
+        if (obj instanceof ObjectComplexType) objectIndex().put((ObjectComplexType) obj);
+        LOG.info("Added PREMIS object for " + rel);
+    }
+
+    /** Adds or refreshes the table row of a file; returns true when the row is new. */
+    private boolean putRow(Path file, String rel) throws Exception {
+        CompactObjectTable table = compactObjects();
+        long size = Files.size(file);
+        Map<String, String> digests = digestsOf(file);
+        long modified;
+        try {
+            modified = CompactObjectTable.toEpochNanos(Files.getLastModifiedTime(file).toInstant());
+        } catch (Exception ex) {
+            modified = CompactObjectTable.UNKNOWN_TIME;
+        }
+        int row = table.find(rel);
+        if (row >= 0) {
+            table.update(row, size, digests, modified);
+            return false;
+        }
+        table.add(rel, size, digests, identifyFormat(file, digests), CompactObjectTable.toEpochNanos(Instant.now()), modified);
+        return true;
+    }
+
+    private CompactObjectTable compactObjects() {
+        if (compactObjects == null) compactObjects = new CompactObjectTable(fixityAlgorithms);
+        return compactObjects;
+    }
+
+    /** The object buildObjectForFile would have built for the file of a table row. */
+    private ObjectComplexType buildObjectForRow(CompactObjectTable table, int row) {
+        String rel = table.identifier(row);
+        try {
+            long modified = table.modifiedAt(row);
+            String dateCreated = modified == CompactObjectTable.UNKNOWN_TIME
+                    ? ISO.format(OffsetDateTime.now()) : isoAtCurrentOffset(CompactObjectTable.toInstant(modified));
+            String received = ISO.format(OffsetDateTime.ofInstant(CompactObjectTable.toInstant(table.receivedAt(row)), ZoneId.systemDefault()));
+            return (ObjectComplexType) buildObject(rel, table.size(row), table.digestsHex(row), table.format(row),
+                    received, dateCreated);
+        } catch (Exception e) {
+            throw new IllegalStateException("could not build PREMIS object for " + rel, e);
+        }
+    }
+
+    /** New file object (identifier, size, fixity, format, receivingDate, creatingApplication). */
+    private Object buildObjectForFile(Path file, String rel) throws Exception {
+        long size = Files.size(file);
+        Map<String, String> digests = digestsOf(file);
+        return buildObject(rel, size, digests, identifyFormat(file, digests),
+                ISO.format(OffsetDateTime.now()), fileTimeISO(file));
+    }
+
+    private Object buildObject(String rel, long size, Map<String, String> digests, FormatIdentification format,
+                               String receivingDate, String dateCreated) throws Exception {
         // create new ObjectComplexType
         Object obj = createUsingFactoryOrUnmarshal(new String[] {"createObjectComplexType","createObjectType","createObject"}, gov.loc.premis.v3.ObjectComplexType.class, "object");
         if (obj == null) throw new IllegalStateException("Unable to create ObjectComplexType instance");
@@ -270,7 +492,6 @@ public class PremisJaxbV3Generator {
         callSetterOrAdd(oc, "CompositionLevel", comp);
 
         // size as BigInteger when possible
-        long size = Files.size(file);
         boolean sizeSet = false;
         try {
             Method m = findMethod(oc.getClass(), "setSize", BigInteger.class);
@@ -283,21 +504,13 @@ public class PremisJaxbV3Generator {
             callSetterOrAdd(oc, "Size", BigInteger.valueOf(size));
         }
 
-        // fixity
-        Object fix = createUsingFactoryOrUnmarshal(new String[] {"createFixityComplexType","createFixity"}, gov.loc.premis.v3.FixityComplexType.class, "fixity");
-        // messageDigestAlgorithm may be a String or StringPlusAuthority
-        if (!callSetterOrAdd(fix, "MessageDigestAlgorithm", "SHA-256")) {
-            callSetterOrAdd(fix, "MessageDigestAlgorithm", createStringPlusAuthority("SHA-256", null));
+        // fixity, one entry per configured algorithm
+        for (Object fix : createFixities(digests)) {
+            callGetterAndAdd(oc, "Fixity", fix);
         }
-        callSetterOrAdd(fix, "MessageDigest", computeSha256(file));
-        callGetterAndAdd(oc, "Fixity", fix);
 
-        // format + designation + name
-        Object fmt = createUsingFactoryOrUnmarshal(new String[] {"createFormatComplexType","createFormat"}, gov.loc.premis.v3.FormatComplexType.class, "format");
-        Object fd = createUsingFactoryOrUnmarshal(new String[] {"createFormatDesignationComplexType","createFormatDesignation"}, gov.loc.premis.v3.FormatDesignationComplexType.class, "formatDesignation");
-        callSetterOrAdd(fd, "FormatName", detectFormatName(file));
-        callGetterAndAdd(fmt, "FormatDesignation", fd);
-        callGetterAndAdd(oc, "Format", fmt);
+        // format: designation (name, version) + PRONOM registry entry
+        callGetterAndAdd(oc, "Format", FormatBlocks.create(factory, format));
 
         // objectCharacteristicsExtension -> receivingDate (DOM Element)
         Object ext = createUsingFactoryOrUnmarshal(new String[] {"createExtensionComplexType","createExtension"}, gov.loc.premis.v3.ExtensionComplexType.class, "extension");
@@ -308,7 +521,7 @@ public class PremisJaxbV3Generator {
             DocumentBuilder db = dbf.newDocumentBuilder();
             Document doc = db.newDocument();
             Element rd = doc.createElementNS(PREMIS_NS, "receivingDate");
-            rd.setTextContent(ISO.format(OffsetDateTime.now()));
+            rd.setTextContent(receivingDate);
             callGetterAndAdd(ext, "Any", rd);
             callSetterOrAdd(oc, "ObjectCharacteristicsExtension", ext);
         } catch (Exception e) {
@@ -320,16 +533,17 @@ public class PremisJaxbV3Generator {
         // creatingApplication
         Object ca = createUsingFactoryOrUnmarshal(new String[] {"createCreatingApplicationComplexType","createCreatingApplication"}, gov.loc.premis.v3.CreatingApplicationComplexType.class, "creatingApplication");
         callSetterOrAdd(ca, "CreatingApplicationName", "JDPS-Repository");
-        callSetterOrAdd(ca, "DateCreatedByApplication", fileTimeISO(file));
+        callSetterOrAdd(ca, "DateCreatedByApplication", dateCreated);
         callSetterOrAdd(obj, "CreatingApplication", ca);
-
-        // attach object to root
-        callGetterAndAdd(premisRoot, "Object", obj);
-        LOG.info("Added PREMIS object for " + rel);
+        return obj;
     }
 
     private void updateSizeAndFixity(Object obj, Path file) throws Exception {
         Object oc = callGetter(obj, "ObjectCharacteristics");
+        if (oc instanceof List) { // File/Representation/Bitstream hold a list
+            List<?> ocs = (List<?>) oc;
+            oc = ocs.isEmpty() ? null : ocs.get(0);
+        }
         if (oc == null) {
             oc = createUsingFactoryOrUnmarshal(new String[] {"createObjectCharacteristicsComplexType"}, gov.loc.premis.v3.ObjectCharacteristicsComplexType.class, "objectCharacteristics");
             callSetterOrAdd(obj, "ObjectCharacteristics", oc);
@@ -345,17 +559,15 @@ public class PremisJaxbV3Generator {
             callSetterOrAdd(oc, "Size", BigInteger.valueOf(size));
         }
 
-        Object fix = createUsingFactoryOrUnmarshal(new String[] {"createFixityComplexType","createFixity"}, gov.loc.premis.v3.FixityComplexType.class, "fixity");
-        callSetterOrAdd(fix, "MessageDigestAlgorithm", "SHA-256");
-        callSetterOrAdd(fix, "MessageDigest", computeSha256(file));
+        List<Object> fixities = createFixities(digestsOf(file));
 
         // replace fixity list or set single
         Object fixList = callGetter(oc, "Fixity");
         if (fixList instanceof Collection) {
             ((Collection) fixList).clear();
-            ((Collection) fixList).add(fix);
+            ((Collection) fixList).addAll(fixities);
         } else {
-            callSetterOrAdd(oc, "Fixity", fix);
+            callSetterOrAdd(oc, "Fixity", fixities.get(0));
         }
 
         Object ca = callGetter(obj, "CreatingApplication");
@@ -366,28 +578,33 @@ public class PremisJaxbV3Generator {
         callSetterOrAdd(ca, "DateCreatedByApplication", fileTimeISO(file));
     }
 
+    /**
+     * Refresh size, fixity and creatingApplication of the objects for the given files in an existing
+     * PREMIS file (PremisSelectiveLoader): only those objects are unmarshalled and re-marshalled, the
+     * rest of the file is copied as is. Returns the number of objects updated.
+     */
+    public long updateExistingObjects(Path premisFile, Collection<Path> files) throws Exception {
+        Map<String, Path> byId = new LinkedHashMap<>();
+        for (Path f : files) {
+            Path rel = f.isAbsolute() ? sipRoot.toAbsolutePath().normalize().relativize(f.normalize()) : f;
+            Path file = sipRoot.resolve(rel);
+            byId.put(relativeId(file), file);
+        }
+        return PremisSelectiveLoader.objects().withIdentifiers(byId.keySet()).update(premisFile, obj -> {
+            for (ObjectIdentifierComplexType oid : ObjectIdentifierIndex.identifiersOf(obj)) {
+                Path f = byId.get(oid.getObjectIdentifierValue());
+                if (f != null) {
+                    updateSizeAndFixity(obj, f);
+                    break;
+                }
+            }
+            return obj;
+        });
+    }
+
     public void addIngestEvent(String detail) {
         try {
-            Object ev = createUsingFactoryOrUnmarshal(new String[] {"createEventComplexType","createEvent"}, gov.loc.premis.v3.EventComplexType.class, "event");
-            Object eid = createUsingFactoryOrUnmarshal(new String[] {"createEventIdentifierComplexType"}, gov.loc.premis.v3.EventIdentifierComplexType.class, "eventIdentifier");
-            callSetterOrAdd(eid, "EventIdentifierType", "eventID");
-            callSetterOrAdd(eid, "EventIdentifierValue", "EVT-INGEST-" + System.currentTimeMillis());
-            callGetterAndAdd(ev, "EventIdentifier", eid);
-            callSetterOrAdd(ev, "EventType", "ingest");
-            callSetterOrAdd(ev, "EventDateTime", ISO.format(OffsetDateTime.now()));
-            Object edi = createUsingFactoryOrUnmarshal(new String[] {"createEventDetailInformationComplexType"}, gov.loc.premis.v3.EventDetailInformationComplexType.class, "eventDetailInformation");
-            callSetterOrAdd(edi, "EventDetail", detail);
-            callSetterOrAdd(ev, "EventDetailInformation", edi);
-            Object eoi = createUsingFactoryOrUnmarshal(new String[] {"createEventOutcomeInformationComplexType"}, gov.loc.premis.v3.EventOutcomeInformationComplexType.class, "eventOutcomeInformation");
-            callGetterAndAdd(eoi, "EventOutcome", "success");
-            callSetterOrAdd(ev, "EventOutcomeInformation", eoi);
-
-            Object la = createUsingFactoryOrUnmarshal(new String[] {"createLinkingAgentIdentifierComplexType"}, gov.loc.premis.v3.LinkingAgentIdentifierComplexType.class, "linkingAgentIdentifier");
-            callSetterOrAdd(la, "LinkingAgentIdentifierType", createStringPlusAuthority("system", null));
-            callSetterOrAdd(la, "LinkingAgentIdentifierValue", "JDPS-Repository");
-            callGetterAndAdd(ev, "LinkingAgentIdentifier", la);
-
-            callGetterAndAdd(premisRoot, "Event", ev);
+            callGetterAndAdd(premisRoot, "Event", buildIngestEvent(detail));
 
             LOG.info("Added ingest event");
         } catch (Throwable t) {
@@ -396,43 +613,181 @@ public class PremisJaxbV3Generator {
         }
     }
 
+    /**
+     * Append an event to an existing PREMIS file without loading it (PremisEventAppender): the file
+     * is streamed, copied and atomically replaced, with the event after the existing objects/events.
+     */
+    public void appendIngestEvent(Path premisFile, String detail) throws IOException, XMLStreamException, JAXBException {
+        PremisEventAppender.append(premisFile, Collections.singletonList(buildIngestEvent(detail)));
+    }
+
+    private EventComplexType buildIngestEvent(String detail) {
+        EventComplexType ev = createUsingFactoryOrUnmarshal(new String[] {"createEventComplexType","createEvent"}, gov.loc.premis.v3.EventComplexType.class, "event");
+        Object eid = createUsingFactoryOrUnmarshal(new String[] {"createEventIdentifierComplexType"}, gov.loc.premis.v3.EventIdentifierComplexType.class, "eventIdentifier");
+        callSetterOrAdd(eid, "EventIdentifierType", "eventID");
+        callSetterOrAdd(eid, "EventIdentifierValue", "EVT-INGEST-" + System.currentTimeMillis());
+        callGetterAndAdd(ev, "EventIdentifier", eid);
+        callSetterOrAdd(ev, "EventType", "ingest");
+        callSetterOrAdd(ev, "EventDateTime", ISO.format(OffsetDateTime.now()));
+        Object edi = createUsingFactoryOrUnmarshal(new String[] {"createEventDetailInformationComplexType"}, gov.loc.premis.v3.EventDetailInformationComplexType.class, "eventDetailInformation");
+        callSetterOrAdd(edi, "EventDetail", detail);
+        callSetterOrAdd(ev, "EventDetailInformation", edi);
+        Object eoi = createUsingFactoryOrUnmarshal(new String[] {"createEventOutcomeInformationComplexType"}, gov.loc.premis.v3.EventOutcomeInformationComplexType.class, "eventOutcomeInformation");
+        callGetterAndAdd(eoi, "EventOutcome", "success");
+        callSetterOrAdd(ev, "EventOutcomeInformation", eoi);
+
+        Object la = createUsingFactoryOrUnmarshal(new String[] {"createLinkingAgentIdentifierComplexType"}, gov.loc.premis.v3.LinkingAgentIdentifierComplexType.class, "linkingAgentIdentifier");
+        callSetterOrAdd(la, "LinkingAgentIdentifierType", createStringPlusAuthority("system", null));
+        callSetterOrAdd(la, "LinkingAgentIdentifierValue", "JDPS-Repository");
+        callGetterAndAdd(ev, "LinkingAgentIdentifier", la);
+        return ev;
+    }
+
     /**
      * Save premisRoot to disk
      */
     public void save(Path outFile) throws Exception {
-        Marshaller m = jaxb.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        // set schemaLocation for PREMIS v3
-        try {
-            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, PREMIS_NS + " http://www.loc.gov/standards/premis/premis-3-0.xsd");
-        } catch (Exception e) {
-            LOG.fine("Could not set schemaLocation property: " + e.getMessage());
+        // shared thread-local marshaller: formatted output and PREMIS v3 schemaLocation
+        Marshaller m = jaxb.marshaller();
+        Schema schema = Boolean.getBoolean(REPARSE_VALIDATION_PROPERTY) ? null : outputSchema();
+        XmlValidator.CollectingEventHandler events = null;
+        if (schema != null) {
+            // validate while writing: one pass, every problem collected
+            events = new XmlValidator.CollectingEventHandler(PremisJaxbV3Generator::validationLabel);
+            m.setSchema(schema);
+            m.setEventHandler(events);
+            m.setListener(events); // tracks the enclosing object/event/agent for the messages
         }
-        try (OutputStream os = Files.newOutputStream(outFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
-            m.marshal(premisElement, os);
+        JAXBElement<PremisComplexType> toWrite = premisElement;
+        CompactObjectTable table = this.compactObjects;
+        if (table != null && !table.isEmpty()) {
+            LOG.info("Collected objects: " + table);
+            metrics.add("objects.compact", table.size());
+            metrics.add("objects.compact.bytes", table.estimatedBytes());
+            toWrite = new JAXBElement<>(premisElement.getName(), PremisComplexType.class, new CompactRoot(premisRoot, table));
+        }
+        final JAXBElement<PremisComplexType> root = toWrite;
+        try {
+            metrics.time("marshal", () -> {
+                try (OutputStream os = Files.newOutputStream(outFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    m.marshal(root, os);
+                }
+            });
+        } finally {
+            if (events != null) {
+                // pooled marshaller: restore the defaults for the next caller on this thread
+                m.setSchema(null);
+                m.setEventHandler(null);
+                m.setListener(null);
+            }
         }
         LOG.info("Saved PREMIS to " + outFile);
+        metrics.add("objects.emitted", premisRoot.getObject().size() + (table == null ? 0 : table.size()));
+        metrics.add("bytes.written", Files.size(outFile));
+        if (events != null) {
+            reportValidation(events.getErrors());
+        } else {
+            validateIfSchemaPresent(outFile);
+        }
+        metrics.publish();
+    }
+
+    /**
+     * The root as save() marshals it: the attached objects, then one object per table row, built
+     * when the marshaller reaches it and unreachable once it has been written. Events, agents and
+     * rights are the root's own lists.
+     */
+    private final class CompactRoot extends PremisComplexType {
+        CompactRoot(PremisComplexType root, CompactObjectTable table) {
+            final List<ObjectComplexType> attached = root.getObject();
+            this.object = new AbstractList<ObjectComplexType>() {
+                @Override public ObjectComplexType get(int i) {
+                    int n = attached.size();
+                    return i < n ? attached.get(i) : buildObjectForRow(table, i - n);
+                }
+
+                @Override public int size() {
+                    return attached.size() + table.size();
+                }
+            };
+            this.event = root.getEvent();
+            this.agent = root.getAgent();
+            this.rights = root.getRights();
+            this.version = root.getVersion();
+        }
+    }
+
+    /** Problems found by the last save() or streaming save against premis.xsd (empty when valid or not validated). */
+    public List<String> getLastValidationErrors() {
+        return lastValidationErrors;
+    }
+
+    /** "object <first identifier>", "event <id>" or "agent <id>" in inline validation messages. */
+    private static String validationLabel(Object bean) {
+        if (bean instanceof ObjectComplexType) {
+            for (ObjectIdentifierComplexType id : ObjectIdentifierIndex.identifiersOf((ObjectComplexType) bean)) {
+                if (id.getObjectIdentifierValue() != null) return "object " + id.getObjectIdentifierValue();
+            }
+            return "object";
+        }
+        if (bean instanceof EventComplexType) {
+            EventIdentifierComplexType id = ((EventComplexType) bean).getEventIdentifier();
+            return id == null || id.getEventIdentifierValue() == null ? "event" : "event " + id.getEventIdentifierValue();
+        }
+        if (bean instanceof AgentComplexType) {
+            for (AgentIdentifierComplexType id : ((AgentComplexType) bean).getAgentIdentifier()) {
+                if (id.getAgentIdentifierValue() != null) return "agent " + id.getAgentIdentifierValue();
+            }
+            return "agent";
+        }
+        return null;
+    }
+
+    /** premis.xsd from the working dir (compiled once per JVM), or null when it is not there. */
+    private Schema outputSchema() {
+        Path schemaPath = Paths.get("premis.xsd");
+        if (!Files.exists(schemaPath)) return null;
+        try {
+            return SchemaCache.get(schemaPath);
+        } catch (Exception ex) {
+            LOG.warning("Could not compile premis.xsd: " + ex.getMessage());
+            return null;
+        }
+    }
 
-        // optional: validate the output against provided premis.xsd if available in working dir
+    /** Optional: re-parse the written file against premis.xsd when it is present in the working dir. */
+    private void validateIfSchemaPresent(Path outFile) {
+        Schema schema = outputSchema();
+        if (schema == null) return;
         try {
-            Path schemaPath = Paths.get("premis.xsd");
-            if (Files.exists(schemaPath)) {
-                SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-                Schema schema = sf.newSchema(schemaPath.toFile());
+            metrics.time("validate", () -> {
                 Validator v = schema.newValidator();
+                XmlValidator.CollectingErrorHandler handler = new XmlValidator.CollectingErrorHandler();
+                v.setErrorHandler(handler);
                 v.validate(new StreamSource(outFile.toFile()));
-                LOG.info("Validation successful against premis.xsd");
-            }
+                reportValidation(handler.getErrors());
+            });
         } catch (Exception ex) {
-            LOG.warning("Validation failed or premis.xsd not present: " + ex.getMessage());
+            LOG.warning("Validation failed: " + ex.getMessage());
         }
     }
 
+    private void reportValidation(List<String> errors) {
+        lastValidationErrors = Collections.unmodifiableList(new ArrayList<>(errors));
+        metrics.add("validation.errors", errors.size());
+        if (errors.isEmpty()) {
+            LOG.info("Validation successful against premis.xsd");
+            return;
+        }
+        LOG.warning("Validation against premis.xsd reported " + errors.size() + " problem(s)");
+        for (String e : errors) LOG.warning("  " + e);
+    }
+
     // -------------------- Reflection & factory helpers --------------------
 
     /**
      * Robust creation helper. Attempts:
-     *  - any createXxx() method on ObjectFactory that returns required type (or JAXBElement of it)
+     *  - the zero-arg createXxx() method on ObjectFactory that returns the required type (ObjectFactoryIndex)
      *  - explicit candidate factory names (if supplied)
      *  - direct no-arg constructor
      *  - try to find a concrete impl (ClassNameJ or ClassNameImpl) in same package and instantiate
@@ -440,28 +795,9 @@ public class PremisJaxbV3Generator {
      */
     @SuppressWarnings("unchecked")
     private <T> T createUsingFactoryOrUnmarshal(String[] candidateFactoryMethodNames, Class<T> clazz, String xmlLocalName) {
-        // 1) try factory methods generically
-        for (Method mtry : factory.getClass().getMethods()) {
-            if (!mtry.getName().toLowerCase().startsWith("create")) continue;
-            if (mtry.getParameterCount() != 0) continue;
-            try {
-                Object ret = mtry.invoke(factory);
-                if (ret == null) continue;
-                if (clazz.isInstance(ret)) {
-                    LOG.info("Factory method " + mtry.getName() + " returned instance of " + clazz.getSimpleName());
-                    return (T) ret;
-                }
-                if (ret instanceof JAXBElement) {
-                    Object val = ((JAXBElement<?>) ret).getValue();
-                    if (val != null && clazz.isInstance(val)) {
-                        LOG.info("Factory method " + mtry.getName() + " returned JAXBElement of " + val.getClass().getSimpleName());
-                        return (T) val;
-                    }
-                }
-            } catch (Throwable t) {
-                LOG.fine("Factory method " + mtry.getName() + " invocation failed: " + t.getMessage());
-            }
-        }
+        // 1) indexed factory creator (resolved once per JVM, one direct call per object)
+        T created = ObjectFactoryIndex.getInstance().create(clazz);
+        if (created != null) return created;
 
         // 2) explicit candidate names
         for (String candidate : candidateFactoryMethodNames) {
@@ -524,7 +860,7 @@ public class PremisJaxbV3Generator {
             String local = (xmlLocalName != null && !xmlLocalName.isEmpty()) ? xmlLocalName : deriveLocalNameFromClass(clazz);
             String xml = "<" + local + " xmlns=\"" + PREMIS_NS + "\"/>";
 
-            Unmarshaller u = jaxb.createUnmarshaller();
+            Unmarshaller u = jaxb.unmarshaller();
             StreamSource source = new StreamSource(new StringReader(xml));
             try {
                 JAXBElement<T> je = u.unmarshal(source, clazz);
@@ -560,187 +896,157 @@ public class PremisJaxbV3Generator {
         return simple.toLowerCase();
     }
 
-    /** create StringPlusAuthority using factory or direct new */
+    /** Shared StringPlusAuthority for value/authority from the canonical cache; callers must not modify it. */
     private gov.loc.premis.v3.StringPlusAuthority createStringPlusAuthority(String value, String authority) {
-        try {
-            Method m = factory.getClass().getMethod("createStringPlusAuthority");
-            Object spa = m.invoke(factory);
-            if (spa instanceof gov.loc.premis.v3.StringPlusAuthority) {
-                gov.loc.premis.v3.StringPlusAuthority s = (gov.loc.premis.v3.StringPlusAuthority) spa;
-                s.setValue(value);
-                if (authority != null) s.setAuthority(authority);
-                return s;
-            }
-        } catch (Exception ignored) { }
-        gov.loc.premis.v3.StringPlusAuthority s = new gov.loc.premis.v3.StringPlusAuthority();
-        s.setValue(value);
-        if (authority != null) s.setAuthority(authority);
-        return s;
+        return StringPlusAuthorityCache.getInstance().get(value, authority);
     }
 
-    // call setter or add to getter list if appropriate
+    // property access through the shared PropertyAccessors cache (resolved once per class and name)
     private boolean callSetterOrAdd(Object target, String propName, Object value) {
-        if (target == null) return false;
-        String setter = "set" + propName;
-        try {
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getName().equalsIgnoreCase(setter) && m.getParameterCount() == 1) {
-                    Class<?> param = m.getParameterTypes()[0];
-                    Object arg = adaptArgumentForParameter(value, param);
-                    m.invoke(target, arg);
-                    return true;
-                }
-            }
-            // fallback to getter that returns a collection
-            String getter = "get" + propName;
-            Method gm = findMethod(target.getClass(), getter);
-            if (gm != null) {
-                Object got = gm.invoke(target);
-                if (got instanceof Collection) {
-                    ((Collection) got).add(value);
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callSetterOrAdd failed for " + propName + ": " + e.getMessage());
-        }
-        return false;
+        return PropertyAccessors.getInstance().setOrAdd(target, propName, value);
     }
 
-    // call getter and add to list returned
     private boolean callGetterAndAdd(Object target, String getterShort, Object valueToAdd) {
-        try {
-            Method gm = findMethod(target.getClass(), "get" + getterShort);
-            if (gm == null) {
-                for (Method m : target.getClass().getMethods()) {
-                    if (m.getName().toLowerCase().startsWith("get") && Collection.class.isAssignableFrom(m.getReturnType())
-                        && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
-                        gm = m;
-                        break;
-                    }
-                }
-            }
-            if (gm != null) {
-                Object list = gm.invoke(target);
-                if (list instanceof Collection) {
-                    ((Collection) list).add(valueToAdd);
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callGetterAndAdd failed for " + getterShort + ": " + e.getMessage());
-        }
-        return false;
+        return PropertyAccessors.getInstance().addToList(target, getterShort, valueToAdd);
     }
 
     private Object callGetter(Object target, String getterShort) {
-        if (target == null) return null;
-        try {
-            Method gm = findMethod(target.getClass(), "get" + getterShort);
-            if (gm != null) return gm.invoke(target);
-            for (Method m : target.getClass().getMethods()) {
-                if (m.getName().toLowerCase().startsWith("get") && m.getName().toLowerCase().contains(getterShort.toLowerCase())) {
-                    return m.invoke(target);
-                }
-            }
-        } catch (Exception e) {
-            LOG.fine("callGetter failed for " + getterShort + ": " + e.getMessage());
-        }
-        return null;
+        return PropertyAccessors.getInstance().get(target, getterShort);
     }
 
-    // find method by exact param types
     private Method findMethod(Class<?> c, String name, Class<?>... paramTypes) {
-        if (c == null || name == null) return null;
-        try {
-            return c.getMethod(name, paramTypes);
-        } catch (NoSuchMethodException e) {
-            try {
-                Method dm = c.getDeclaredMethod(name, paramTypes);
-                dm.setAccessible(true);
-                return dm;
-            } catch (NoSuchMethodException ex) {
-                return null;
+        return PropertyAccessors.getInstance().findMethod(c, name, paramTypes);
+    }
+
+    private List<Object> getListFromPremisRoot(String propName) {
+        Object got = callGetter(premisRoot, propName);
+        if (got instanceof Collection) return new ArrayList<>((Collection<?>) got);
+        if (got != null) return Collections.singletonList(got);
+        return Collections.emptyList();
+    }
+
+    /** Digest cache consulted before reading a file (defaults to premis.fixity.cache; null disables). */
+    public void setFixityCache(FixityCache fixityCache) {
+        this.fixityCache = fixityCache;
+    }
+
+    /** Digests for the configured algorithms, from the fixity cache when the file is unchanged. */
+    private Map<String, String> hashFile(Path f) throws IOException {
+        return metrics.time("hash", () -> {
+            FixityCache cache = this.fixityCache;
+            if (cache == null) {
+                return FixityEngine.getDefault().digestHexAll(f, fixityAlgorithms, this::recordRead);
             }
-        }
+            boolean[] read = {false};
+            Map<String, String> digests = cache.digestHexAll(FixityEngine.getDefault(), f, fixityAlgorithms, r -> {
+                read[0] = true;
+                recordRead(r);
+            });
+            metrics.increment(read[0] ? "fixity.cache.misses" : "fixity.cache.hits");
+            return digests;
+        });
     }
 
-    // find any method by name (case-insensitive)
-    private Method findMethod(Class<?> c, String name) {
-        if (c == null || name == null) return null;
-        for (Method m : c.getMethods()) {
-            if (m.getName().equalsIgnoreCase(name)) return m;
-        }
-        for (Method m : c.getDeclaredMethods()) {
-            if (m.getName().equalsIgnoreCase(name)) { m.setAccessible(true); return m; }
-        }
-        return null;
+    /** Bytes, size histogram and per-file throughput (MB/s histogram) of one file read. */
+    private void recordRead(FixityResult r) {
+        metrics.add("bytes.read", r.getBytes());
+        metrics.histogram("hash.fileBytes").record(r.getBytes());
+        if (r.getBytes() > 0) metrics.histogram("hash.fileMBps").record(Math.round(r.getMegabytesPerSecond()));
     }
 
-    private Object adaptArgumentForParameter(Object value, Class<?> param) {
-        if (value == null) return null;
-        if (param.isAssignableFrom(value.getClass())) return value;
-        if (param == BigInteger.class) {
-            if (value instanceof Number) return BigInteger.valueOf(((Number) value).longValue());
-            try { return new BigInteger(value.toString()); } catch (Exception ignored) {}
-        }
-        if (param == String.class) return value.toString();
-        if (value instanceof JAXBElement) {
-            Object v = ((JAXBElement<?>) value).getValue();
-            if (param.isAssignableFrom(v.getClass())) return v;
+    /** Timings and counters of this generator's runs (walk, hash, build, marshal, validate). */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Algorithms recorded as fixity for each file (defaults to premis.fixity.algorithms). */
+    public void setFixityAlgorithms(List<String> algorithms) {
+        if (algorithms == null || algorithms.isEmpty()) throw new IllegalArgumentException("at least one algorithm is required");
+        if (compactObjects != null && !compactObjects.isEmpty()) {
+            throw new IllegalStateException("objects were already collected with " + compactObjects.getAlgorithms());
         }
-        return value;
+        this.fixityAlgorithms = new ArrayList<>(algorithms);
+        this.compactObjects = null;
     }
 
-    private List<Object> getListFromPremisRoot(String propName) {
-        Object got = callGetter(premisRoot, propName);
-        if (got instanceof Collection) return new ArrayList<>((Collection<?>) got);
-        if (got != null) return Collections.singletonList(got);
-        return Collections.emptyList();
+    /** Digests of a file keyed by algorithm, joined from the fixity stage during a scan. */
+    private Map<String, String> digestsOf(Path f) throws Exception {
+        ParallelFixityStage<Map<String, String>> stage = this.fixityStage;
+        if (stage == null) return hashFile(f);
+        return metrics.time("fixity.wait", () -> stage.take(f)); // part of build: waiting for the pool
     }
 
-    private String computeSha256(Path f) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        try (InputStream is = Files.newInputStream(f)) {
-            byte[] buf = new byte[8192];
-            int r;
-            while ((r = is.read(buf)) > 0) md.update(buf, 0, r);
+    /** One fixity node per digest, in the map's (configuration) order. */
+    private List<Object> createFixities(Map<String, String> digests) {
+        List<Object> out = new ArrayList<>();
+        for (Map.Entry<String, String> d : digests.entrySet()) {
+            Object fix = createUsingFactoryOrUnmarshal(new String[] {"createFixityComplexType","createFixity"}, gov.loc.premis.v3.FixityComplexType.class, "fixity");
+            // messageDigestAlgorithm may be a String or StringPlusAuthority
+            if (!callSetterOrAdd(fix, "MessageDigestAlgorithm", d.getKey())) {
+                callSetterOrAdd(fix, "MessageDigestAlgorithm", createStringPlusAuthority(d.getKey(), null));
+            }
+            callSetterOrAdd(fix, "MessageDigest", d.getValue());
+            out.add(fix);
         }
-        byte[] d = md.digest();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : d) sb.append(String.format("%02x", b & 0xff));
-        return sb.toString();
+        return out;
     }
 
-    private String detectFormatName(Path f) {
-        String fn = f.getFileName().toString().toLowerCase();
-        if (fn.endsWith(".pdf")) {
-            String path = f.toString().toLowerCase();
-            if (path.contains(FileSystems.getDefault().getSeparator() + "rep2" + FileSystems.getDefault().getSeparator()) || path.contains("/rep2/")) return "PDF/A-1B";
-            return "PDF";
-        } else if (fn.endsWith(".xml")) return "XML";
-        else if (fn.endsWith(".xsd")) return "XSD";
-        else return fn.substring(fn.lastIndexOf('.')+1).toUpperCase();
+    /** Format of a file from its signature; the first digest keys FormatIdentifier's cache. */
+    private FormatIdentification identifyFormat(Path f, Map<String, String> digests) throws IOException {
+        String key = digests.isEmpty() ? null : digests.values().iterator().next();
+        return metrics.time("format", () -> FormatIdentifier.getDefault().identify(f, key)); // part of build
     }
 
     private String fileTimeISO(Path f) {
         try {
             FileTime ft = Files.getLastModifiedTime(f);
-            return ISO.format(ft.toInstant().atOffset(OffsetDateTime.now().getOffset()));
+            return isoAtCurrentOffset(ft.toInstant());
         } catch (Exception ex) {
             return ISO.format(OffsetDateTime.now());
         }
     }
 
+    private String isoAtCurrentOffset(Instant t) {
+        return ISO.format(t.atOffset(OffsetDateTime.now().getOffset()));
+    }
+
     // ----------------- main for CLI -----------------
     public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && "--append".equals(args[0])) {
+            Path premisFile = Paths.get(args[1]);
+            Path parent = premisFile.toAbsolutePath().getParent();
+            String detail = args.length >= 3 ? args[2] : "Event appended by PremisJaxbV3Generator";
+            new PremisJaxbV3Generator(parent).appendIngestEvent(premisFile, detail);
+            return;
+        }
+        if (args.length >= 3 && "--update".equals(args[0])) {
+            PremisJaxbV3Generator g = new PremisJaxbV3Generator(Paths.get(args[1]));
+            Optional<Path> existing = g.findExistingPremisFile();
+            if (!existing.isPresent()) {
+                System.err.println("No existing PREMIS file under " + args[1]);
+                System.exit(1);
+            }
+            List<Path> files = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) files.add(Paths.get(args[i]));
+            g.updateExistingObjects(existing.get(), files);
+            return;
+        }
+        boolean stream = args.length >= 1 && "--stream".equals(args[0]);
+        if (stream) args = Arrays.copyOfRange(args, 1, args.length);
         if (args.length < 1) {
-            System.err.println("Usage: PremisJaxbV3Generator <sip-root> [out-premis.xml]");
+            System.err.println("Usage: PremisJaxbV3Generator [--stream] <sip-root> [out-premis.xml]");
+            System.err.println("       PremisJaxbV3Generator --append <premis.xml> [event-detail]");
+            System.err.println("       PremisJaxbV3Generator --update <sip-root> <file>...");
             System.exit(2);
         }
         Path sip = Paths.get(args[0]);
         Path out = args.length >= 2 ? Paths.get(args[1]) : sip.resolve("odhc_premis_v3.xml");
         PremisJaxbV3Generator g = new PremisJaxbV3Generator(sip);
+        if (stream) {
+            g.addIngestEvent("SIP ingested by PremisJaxbV3Generator");
+            g.scanAndSaveStreaming(out);
+            return;
+        }
         // g.scanAndEnsureObjects();
         // g.addIngestEvent("SIP ingested by PremisJaxbV3Generator");
         g.save(out);
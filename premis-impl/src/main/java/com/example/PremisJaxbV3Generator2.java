@@ -1,5 +1,6 @@
 package com.example;
 
+import com.example.fixity.FixityEngine;
 import org.w3c.dom.*;
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
@@ -8,7 +9,6 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.security.MessageDigest;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -259,7 +259,7 @@ public class PremisJaxbV3Generator2 {
         Element fix = createElement(doc, "fixity"); oc.appendChild(fix);
         fix.appendChild(textElement(doc, "messageDigestAlgorithm", "SHA-256"));
         try {
-            fix.appendChild(textElement(doc, "messageDigest", computeSha256(file)));
+            fix.appendChild(textElement(doc, "messageDigest", FixityEngine.getDefault().sha256Hex(file)));
         } catch (Exception ex) {
             fix.appendChild(textElement(doc, "messageDigest", ""));
         }
@@ -294,20 +294,6 @@ public class PremisJaxbV3Generator2 {
         return e;
     }
 
-    // compute sha256 hex of file
-    private String computeSha256(Path p) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        try (InputStream is = Files.newInputStream(p)) {
-            byte[] buf = new byte[8192];
-            int r;
-            while ((r = is.read(buf)) > 0) md.update(buf, 0, r);
-        }
-        byte[] d = md.digest();
-        StringBuilder sb = new StringBuilder();
-        for (byte b : d) sb.append(String.format("%02x", b & 0xff));
-        return sb.toString();
-    }
-
     // pretty-print DOM to file
     private void writeDocument(Document doc, Path out) throws Exception {
         TransformerFactory tf = TransformerFactory.newInstance();
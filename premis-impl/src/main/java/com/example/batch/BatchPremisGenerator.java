@@ -0,0 +1,271 @@
+package com.example.batch;
+
+import com.example.PremisCombinedGenerator;
+import com.example.PremisJaxbV3Generator;
+import com.example.fixity.ParallelFixityStage;
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.metrics.RunMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * BatchPremisGenerator
+ *
+ * Generates PREMIS for many SIPs in one JVM: every SIP directory under a parent directory, or every
+ * path listed in a text file. SIPs run concurrently on a bounded pool and share the process-wide
+ * JAXBContext, ObjectFactory index and fixity engine, so a case folder no longer costs a JVM start
+ * and a JAXB bootstrap.
+ *
+ * Usage:
+ *   java -cp <classpath> com.example.batch.BatchPremisGenerator <parent-dir | list-file>
+ *        [--parallel N] [--out-dir DIR] [--engine combined|v3|v3-stream]
+ *
+ *   list-file: one SIP root per line; blank lines and lines starting with '#' are ignored.
+ *   --parallel: SIPs processed at once (default: half the processors, at least 1).
+ *   --out-dir:  write <sip-name>_premis.xml there instead of next to each SIP's files.
+ *   --engine:   combined = PremisCombinedGenerator (default), v3 = PremisJaxbV3Generator,
+ *               v3-stream = PremisJaxbV3Generator streaming output.
+ *
+ * Notes:
+ * - A failing SIP is logged and reported in the summary; the other SIPs continue. The exit code is
+ *   1 when any SIP failed.
+ * - Unless premis.fixity.parallelism is set, each SIP's fixity pool gets processors / parallel
+ *   threads so concurrent SIPs do not oversubscribe the CPU.
+ * - The summary reports SIPs/s and MB/s, where MB counts every regular file under the SIP roots.
+ */
+public class BatchPremisGenerator {
+    private static final Logger LOG = Logger.getLogger(BatchPremisGenerator.class.getName());
+
+    /** Generator used per SIP. */
+    public enum Engine { COMBINED, V3, V3_STREAM }
+
+    /** Outcome of one SIP. */
+    public static final class SipResult {
+        final Path sip;
+        final Path out;
+        final long bytes;
+        final long nanos;
+        final Throwable failure;
+        final RunMetrics metrics;
+
+        SipResult(Path sip, Path out, long bytes, long nanos, Throwable failure, RunMetrics metrics) {
+            this.sip = sip;
+            this.out = out;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.failure = failure;
+            this.metrics = metrics;
+        }
+
+        public Path getSip() {
+            return sip;
+        }
+
+        public Path getOutput() {
+            return out;
+        }
+
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public boolean isOk() {
+            return failure == null;
+        }
+
+        /** Per-phase metrics of the SIP's generator run, null when it failed before starting. */
+        public RunMetrics getMetrics() {
+            return metrics;
+        }
+    }
+
+    private final int parallelism;
+    private final Path outDir;
+    private final Engine engine;
+
+    public BatchPremisGenerator(int parallelism, Path outDir, Engine engine) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        this.parallelism = parallelism;
+        this.outDir = outDir;
+        this.engine = engine == null ? Engine.COMBINED : engine;
+    }
+
+    /** SIP roots from a parent directory (its subdirectories) or a list file. */
+    public static List<Path> resolveSipRoots(Path source) throws IOException {
+        List<Path> sips = new ArrayList<>();
+        if (Files.isDirectory(source)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(source, Files::isDirectory)) {
+                for (Path p : ds) {
+                    if (!p.getFileName().toString().startsWith(".")) sips.add(p);
+                }
+            }
+            sips.sort(Comparator.comparing(Path::toString));
+        } else {
+            for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+                String t = line.trim();
+                if (t.isEmpty() || t.startsWith("#")) continue;
+                sips.add(Paths.get(t));
+            }
+        }
+        return sips;
+    }
+
+    /** Process every SIP and return one result per SIP, in input order. */
+    public List<SipResult> run(List<Path> sips) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "premis-batch-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<SipResult>> futures = new ArrayList<>(sips.size());
+            for (Path sip : sips) futures.add(pool.submit(() -> processOne(sip)));
+            List<SipResult> results = new ArrayList<>(sips.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new SipResult(sips.get(i), null, 0L, 0L, e.getCause(), null));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SipResult processOne(Path sip) {
+        long t0 = System.nanoTime();
+        Path out = outputFor(sip);
+        long bytes = 0L;
+        RunMetrics metrics = null;
+        try {
+            bytes = sizeOf(sip);
+            switch (engine) {
+                case V3: {
+                    PremisJaxbV3Generator g = new PremisJaxbV3Generator(sip);
+                    metrics = g.getMetrics();
+                    g.scanAndEnsureObjects();
+                    g.addIngestEvent("SIP ingested by BatchPremisGenerator");
+                    g.save(out);
+                    break;
+                }
+                case V3_STREAM: {
+                    PremisJaxbV3Generator g = new PremisJaxbV3Generator(sip);
+                    metrics = g.getMetrics();
+                    g.addIngestEvent("SIP ingested by BatchPremisGenerator");
+                    g.scanAndSaveStreaming(out);
+                    break;
+                }
+                default: {
+                    PremisCombinedGenerator g = new PremisCombinedGenerator(sip);
+                    metrics = g.getMetrics();
+                    g.generateAndSave(out);
+                }
+            }
+            long nanos = System.nanoTime() - t0;
+            LOG.info("SIP " + sip.getFileName() + " done in " + nanos / 1_000_000 + " ms -> " + out);
+            return new SipResult(sip, out, bytes, nanos, null, metrics);
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Throwable t) {
+            LOG.warning("SIP " + sip + " failed: " + t);
+            return new SipResult(sip, out, bytes, System.nanoTime() - t0, t, metrics);
+        }
+    }
+
+    private Path outputFor(Path sip) {
+        if (outDir == null) {
+            return sip.resolve(engine == Engine.COMBINED ? "odhc_premis_combined.xml" : "odhc_premis_v3.xml");
+        }
+        return outDir.resolve(sip.getFileName() + "_premis.xml");
+    }
+
+    private static long sizeOf(Path sip) throws IOException {
+        try (Stream<Path> s = Files.walk(sip)) {
+            return s.filter(Files::isRegularFile).mapToLong(p -> {
+                try {
+                    return Files.size(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Human-readable summary: counts, SIPs/s, MB/s and every failure. */
+    public static String summary(List<SipResult> results, long wallNanos) {
+        int ok = 0;
+        long bytes = 0L;
+        List<SipResult> failed = new ArrayList<>();
+        for (SipResult r : results) {
+            if (r.isOk()) {
+                ok++;
+                bytes += r.bytes;
+            } else {
+                failed.add(r);
+            }
+        }
+        double secs = Math.max(1e-9, wallNanos / 1e9);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "SIPs: %d total, %d ok, %d failed in %.2f s%n",
+                results.size(), ok, failed.size(), secs));
+        sb.append(String.format(Locale.ROOT, "Throughput: %.2f SIPs/s, %.1f MB/s (%.1f MB)%n",
+                ok / secs, bytes / 1e6 / secs, bytes / 1e6));
+        for (SipResult r : failed) {
+            sb.append("FAILED ").append(r.sip).append(": ").append(r.failure).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path source = null;
+        Path outDir = null;
+        Engine engine = Engine.COMBINED;
+        int parallel = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if ("--parallel".equals(a) && i + 1 < args.length) parallel = Integer.parseInt(args[++i]);
+            else if ("--out-dir".equals(a) && i + 1 < args.length) outDir = Paths.get(args[++i]);
+            else if ("--engine".equals(a) && i + 1 < args.length) engine = Engine.valueOf(args[++i].toUpperCase(Locale.ROOT).replace('-', '_'));
+            else if (source == null) source = Paths.get(a);
+            else {
+                source = null;
+                break;
+            }
+        }
+        if (source == null || parallel < 1) {
+            System.err.println("Usage: BatchPremisGenerator <parent-dir | list-file> [--parallel N] [--out-dir DIR] [--engine combined|v3|v3-stream]");
+            System.exit(2);
+        }
+        if (System.getProperty(ParallelFixityStage.PARALLELISM_PROPERTY) == null) {
+            int perSip = Math.max(1, Runtime.getRuntime().availableProcessors() / parallel);
+            System.setProperty(ParallelFixityStage.PARALLELISM_PROPERTY, Integer.toString(perSip));
+        }
+        if (outDir != null) Files.createDirectories(outDir);
+
+        List<Path> sips = resolveSipRoots(source);
+        LOG.info("Batch: " + sips.size() + " SIPs, parallelism " + parallel + ", engine " + engine);
+        JaxbContextRegistry.premis().context(); // bootstrap once before the workers start
+
+        long t0 = System.nanoTime();
+        List<SipResult> results = new BatchPremisGenerator(parallel, outDir, engine).run(sips);
+        System.out.print(summary(results, System.nanoTime() - t0));
+        for (SipResult r : results) {
+            if (!r.isOk()) System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * SyntheticSipGenerator
+ *
+ * Creates synthetic SIP trees in the eCourt layout for load and scale tests of the generators:
+ *
+ *   <CNR>/data/metadata/<CNR>_Metadata_ecourt.xml
+ *   <CNR>/data/representation/rep1/[d0/d1/...]<CNR>_<n>.pdf
+ *   <CNR>/data/representation/rep2/[d0/d1/...]<CNR>_<n>.pdf
+ *   <CNR>/data/schema/ecourt.xsd
+ *
+ * Everything is derived from one seed, so the same arguments produce byte-identical trees.
+ *
+ * Usage:
+ *   java -cp <classpath> com.example.bench.SyntheticSipGenerator <out-dir> [--sips N] [--files N]
+ *        [--sizes SPEC] [--max-size SIZE] [--depth D] [--fanout F] [--rep2-ratio R]
+ *        [--dup-ratio R] [--seed S] [--template <sip-dir>]
+ *
+ *   --files:      representation files per SIP (default 10), split between rep1 and rep2.
+ *   --sizes:      file size distribution (default lognormal:256k:1.5):
+ *                   fixed:SIZE | uniform:MIN:MAX | lognormal:MEDIAN:SIGMA
+ *                 sizes accept k/m/g suffixes (powers of 1024).
+ *   --max-size:   upper bound applied to every drawn size (default 64m).
+ *   --depth:      directory levels below rep1/rep2 (default 0 = flat); --fanout directories per
+ *                 level (default 10).
+ *   --rep2-ratio: share of files placed in rep2 (default 0.5).
+ *   --dup-ratio:  share of files whose bytes repeat an earlier file of the same SIP (default 0).
+ *   --template:   copy data/schema/*.xsd and the metadata document (CNR rewritten) from an existing
+ *                 SIP; without it a minimal metadata document and a lax stand-in ecourt.xsd are
+ *                 written, which are enough for the generators but not for eCourt validation.
+ *
+ * Notes:
+ * - File content is random bytes framed by a %PDF-1.7 header and a %%EOF trailer (when the size
+ *   allows), so format detection sees PDFs and every non-duplicate file has a distinct digest.
+ * - The summary line on stdout lists files, bytes and duplicates per run.
+ */
+public class SyntheticSipGenerator {
+    private static final Logger LOG = Logger.getLogger(SyntheticSipGenerator.class.getName());
+
+    /** Header plus the binary-marker comment (bytes E2 E3 CF D3) PDF writers put on line 2. */
+    private static final byte[] PDF_HEADER = "%PDF-1.7\n%\u00e2\u00e3\u00cf\u00d3\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] PDF_TRAILER = "\n%%EOF\n".getBytes(StandardCharsets.ISO_8859_1);
+    /** Earlier contents remembered per SIP as duplicate sources. */
+    private static final int DUP_SOURCES = 4096;
+
+    /** Draws file sizes from a seeded Random. */
+    public interface SizeDistribution {
+        long next(Random rnd);
+
+        /** fixed:SIZE, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA. */
+        static SizeDistribution parse(String spec) {
+            String[] p = spec.trim().toLowerCase(Locale.ROOT).split(":");
+            switch (p[0]) {
+                case "fixed": {
+                    if (p.length != 2) break;
+                    long size = parseSize(p[1]);
+                    return rnd -> size;
+                }
+                case "uniform": {
+                    if (p.length != 3) break;
+                    long min = parseSize(p[1]);
+                    long max = parseSize(p[2]);
+                    if (max < min) throw new IllegalArgumentException("uniform max < min: " + spec);
+                    return rnd -> min + (long) (rnd.nextDouble() * (max - min + 1));
+                }
+                case "lognormal": {
+                    if (p.length != 3) break;
+                    double mu = Math.log(Math.max(1, parseSize(p[1])));
+                    double sigma = Double.parseDouble(p[2]);
+                    return rnd -> (long) Math.exp(mu + sigma * rnd.nextGaussian());
+                }
+                default:
+            }
+            throw new IllegalArgumentException("bad size distribution: " + spec
+                    + " (fixed:SIZE | uniform:MIN:MAX | lognormal:MEDIAN:SIGMA)");
+        }
+    }
+
+    /** Totals of a run. */
+    public static final class Summary {
+        long sips;
+        long files;
+        long bytes;
+        long duplicates;
+        long nanos;
+
+        @Override
+        public String toString() {
+            double secs = Math.max(1e-9, nanos / 1e9);
+            return String.format(Locale.ROOT, "SIPs=%d files=%d duplicates=%d bytes=%d (%.1f MB) in %.2f s: %.0f files/s",
+                    sips, files, duplicates, bytes, bytes / 1e6, secs, files / secs);
+        }
+    }
+
+    private int sips = 1;
+    private int filesPerSip = 10;
+    private SizeDistribution sizes = SizeDistribution.parse("lognormal:256k:1.5");
+    private long maxSize = 64L << 20;
+    private int depth;
+    private int fanout = 10;
+    private double rep2Ratio = 0.5;
+    private double dupRatio;
+    private long seed = 1L;
+    private Path template;
+
+    public void setSips(int sips) {
+        if (sips < 1) throw new IllegalArgumentException("sips must be >= 1");
+        this.sips = sips;
+    }
+
+    public void setFilesPerSip(int files) {
+        if (files < 0) throw new IllegalArgumentException("files must be >= 0");
+        this.filesPerSip = files;
+    }
+
+    public void setSizes(SizeDistribution sizes) {
+        this.sizes = Objects.requireNonNull(sizes);
+    }
+
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("max size must be >= 0");
+        this.maxSize = maxSize;
+    }
+
+    public void setDepth(int depth, int fanout) {
+        if (depth < 0 || fanout < 1) throw new IllegalArgumentException("depth must be >= 0 and fanout >= 1");
+        this.depth = depth;
+        this.fanout = fanout;
+    }
+
+    public void setRep2Ratio(double ratio) {
+        this.rep2Ratio = checkRatio(ratio);
+    }
+
+    public void setDupRatio(double ratio) {
+        this.dupRatio = checkRatio(ratio);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setTemplate(Path templateSip) {
+        this.template = templateSip;
+    }
+
+    /** Create the SIPs under the parent directory; returns the SIP roots and fills the summary. */
+    public List<Path> generate(Path parent, Summary summary) throws IOException {
+        long t0 = System.nanoTime();
+        Files.createDirectories(parent);
+        Random master = new Random(seed);
+        List<Path> roots = new ArrayList<>(sips);
+        byte[] buf = new byte[1 << 16];
+        for (int s = 0; s < sips; s++) {
+            String cnr = String.format(Locale.ROOT, "SYNT01%06d%04d", s + 1, 2024);
+            Path sip = parent.resolve(cnr);
+            writeSip(sip, cnr, new Random(master.nextLong()), buf, summary);
+            roots.add(sip);
+            summary.sips++;
+        }
+        summary.nanos = System.nanoTime() - t0;
+        return roots;
+    }
+
+    private void writeSip(Path sip, String cnr, Random rnd, byte[] buf, Summary summary) throws IOException {
+        Path data = sip.resolve("data");
+        Path metadataDir = Files.createDirectories(data.resolve("metadata"));
+        Path schemaDir = Files.createDirectories(data.resolve("schema"));
+        writeMetadataAndSchema(cnr, metadataDir, schemaDir);
+
+        Path[] reps = {data.resolve("representation").resolve("rep1"), data.resolve("representation").resolve("rep2")};
+        // (content seed, size) of earlier files, the sources for duplicates
+        long[] dupSeeds = new long[DUP_SOURCES];
+        long[] dupSizes = new long[DUP_SOURCES];
+        int dupCount = 0;
+        Set<Path> createdDirs = new HashSet<>();
+        for (int i = 1; i <= filesPerSip; i++) {
+            Path dir = reps[rnd.nextDouble() < rep2Ratio ? 1 : 0];
+            for (int d = 0; d < depth; d++) dir = dir.resolve("d" + rnd.nextInt(fanout));
+            if (createdDirs.add(dir)) Files.createDirectories(dir);
+
+            long contentSeed;
+            long size;
+            if (dupCount > 0 && rnd.nextDouble() < dupRatio) {
+                int k = rnd.nextInt(Math.min(dupCount, DUP_SOURCES));
+                contentSeed = dupSeeds[k];
+                size = dupSizes[k];
+                summary.duplicates++;
+            } else {
+                contentSeed = rnd.nextLong();
+                size = Math.max(0L, Math.min(maxSize, sizes.next(rnd)));
+                int slot = dupCount < DUP_SOURCES ? dupCount : rnd.nextInt(DUP_SOURCES);
+                dupSeeds[slot] = contentSeed;
+                dupSizes[slot] = size;
+                dupCount++;
+            }
+            writeContent(dir.resolve(cnr + "_" + i + ".pdf"), contentSeed, size, buf);
+            summary.files++;
+            summary.bytes += size;
+        }
+        LOG.fine("Synthetic SIP " + sip + ": " + filesPerSip + " files");
+    }
+
+    /** Deterministic PDF-framed random content of exactly size bytes. */
+    static void writeContent(Path file, long contentSeed, long size, byte[] buf) throws IOException {
+        Random content = new Random(contentSeed);
+        boolean framed = size >= PDF_HEADER.length + PDF_TRAILER.length;
+        try (OutputStream os = Files.newOutputStream(file)) {
+            long body = size;
+            if (framed) {
+                os.write(PDF_HEADER);
+                body -= PDF_HEADER.length + PDF_TRAILER.length;
+            }
+            while (body > 0) {
+                content.nextBytes(buf);
+                int n = (int) Math.min(buf.length, body);
+                os.write(buf, 0, n);
+                body -= n;
+            }
+            if (framed) os.write(PDF_TRAILER);
+        }
+    }
+
+    private void writeMetadataAndSchema(String cnr, Path metadataDir, Path schemaDir) throws IOException {
+        Path metadata = metadataDir.resolve(cnr + "_Metadata_ecourt.xml");
+        if (template != null) {
+            Path src = null;
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(template.resolve("data").resolve("metadata"), "*_Metadata_ecourt.xml")) {
+                for (Path p : ds) { src = p; break; }
+            }
+            if (src == null) throw new IOException("no *_Metadata_ecourt.xml in template " + template);
+            String templateCnr = src.getFileName().toString().replace("_Metadata_ecourt.xml", "");
+            String xml = new String(Files.readAllBytes(src), StandardCharsets.UTF_8).replace(templateCnr, cnr);
+            Files.write(metadata, xml.getBytes(StandardCharsets.UTF_8));
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(template.resolve("data").resolve("schema"), "*.xsd")) {
+                for (Path p : ds) Files.copy(p, schemaDir.resolve(p.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Jdps:ecourtcase xmlns:Jdps=\"http://www.ndpp.in/2020/eCOURTCASE\">\n"
+                + "    <Jdps:Case>\n"
+                + "        <Jdps:CaseCNRNumber>" + cnr + "</Jdps:CaseCNRNumber>\n"
+                + "        <Jdps:EstablishmentCode>SYNT01</Jdps:EstablishmentCode>\n"
+                + "    </Jdps:Case>\n"
+                + "</Jdps:ecourtcase>\n";
+        Files.write(metadata, xml.getBytes(StandardCharsets.UTF_8));
+        String xsd = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!-- synthetic stand-in for ecourt.xsd: accepts any content under ecourtcase -->\n"
+                + "<schema targetNamespace=\"http://www.ndpp.in/2020/eCOURTCASE\" elementFormDefault=\"qualified\"\n"
+                + "        xmlns=\"http://www.w3.org/2001/XMLSchema\">\n"
+                + "    <element name=\"ecourtcase\">\n"
+                + "        <complexType>\n"
+                + "            <sequence>\n"
+                + "                <any processContents=\"lax\" minOccurs=\"0\" maxOccurs=\"unbounded\"/>\n"
+                + "            </sequence>\n"
+                + "        </complexType>\n"
+                + "    </element>\n"
+                + "</schema>\n";
+        Files.write(schemaDir.resolve("ecourt.xsd"), xsd.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double checkRatio(double r) {
+        if (!(r >= 0.0 && r <= 1.0)) throw new IllegalArgumentException("ratio must be in [0, 1]: " + r);
+        return r;
+    }
+
+    /** Bytes with an optional k/m/g suffix (powers of 1024). */
+    static long parseSize(String s) {
+        String t = s.trim().toLowerCase(Locale.ROOT);
+        long mult = 1L;
+        char last = t.isEmpty() ? ' ' : t.charAt(t.length() - 1);
+        if (last == 'k') mult = 1L << 10;
+        else if (last == 'm') mult = 1L << 20;
+        else if (last == 'g') mult = 1L << 30;
+        if (mult != 1L) t = t.substring(0, t.length() - 1);
+        return (long) (Double.parseDouble(t) * mult);
+    }
+
+    public static void main(String[] args) throws Exception {
+        SyntheticSipGenerator g = new SyntheticSipGenerator();
+        Path out = null;
+        int depth = 0;
+        int fanout = 10;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                boolean hasValue = i + 1 < args.length;
+                if ("--sips".equals(a) && hasValue) g.setSips(Integer.parseInt(args[++i]));
+                else if ("--files".equals(a) && hasValue) g.setFilesPerSip(Integer.parseInt(args[++i]));
+                else if ("--sizes".equals(a) && hasValue) g.setSizes(SizeDistribution.parse(args[++i]));
+                else if ("--max-size".equals(a) && hasValue) g.setMaxSize(parseSize(args[++i]));
+                else if ("--depth".equals(a) && hasValue) depth = Integer.parseInt(args[++i]);
+                else if ("--fanout".equals(a) && hasValue) fanout = Integer.parseInt(args[++i]);
+                else if ("--rep2-ratio".equals(a) && hasValue) g.setRep2Ratio(Double.parseDouble(args[++i]));
+                else if ("--dup-ratio".equals(a) && hasValue) g.setDupRatio(Double.parseDouble(args[++i]));
+                else if ("--seed".equals(a) && hasValue) g.setSeed(Long.parseLong(args[++i]));
+                else if ("--template".equals(a) && hasValue) g.setTemplate(Paths.get(args[++i]));
+                else if (out == null && !a.startsWith("--")) out = Paths.get(a);
+                else throw new IllegalArgumentException("unexpected argument: " + a);
+            }
+            g.setDepth(depth, fanout);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            out = null;
+        }
+        if (out == null) {
+            System.err.println("Usage: SyntheticSipGenerator <out-dir> [--sips N] [--files N] [--sizes SPEC] [--max-size SIZE]"
+                    + " [--depth D] [--fanout F] [--rep2-ratio R] [--dup-ratio R] [--seed S] [--template <sip-dir>]");
+            System.exit(2);
+        }
+        Summary summary = new Summary();
+        g.generate(out, summary);
+        System.out.println(summary);
+    }
+}
@@ -0,0 +1,452 @@
+package com.example.fixity;
+
+import com.example.jaxb.ObjectIdentifierIndex;
+import com.example.jaxb.StringPlusAuthorityCache;
+import com.example.streaming.PremisEventAppender;
+import com.example.streaming.PremisSelectiveLoader;
+import gov.loc.premis.v3.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * FixityAuditor
+ *
+ * Re-verifies stored files against the fixity already recorded in PREMIS documents. Each PREMIS
+ * file is streamed with PremisSelectiveLoader (one premis:object in memory at a time); every object
+ * with messageDigestAlgorithm/messageDigest pairs is re-hashed on a bounded worker pool, and one
+ * "fixity check" event per object (success or failure) is appended to its PREMIS file with
+ * PremisEventAppender once all of its objects are done.
+ *
+ * Usage:
+ *   java -cp <classpath> com.example.fixity.FixityAuditor <premis.xml|dir>... [--report <audit.tsv>]
+ *        [--threads N] [--no-events]
+ *
+ *   dir:          walked for *premis*.xml files.
+ *   --report:     default fixity-audit-report.tsv in the working directory.
+ *   --threads:    default premis.fixity.parallelism, else available processors.
+ *   --no-events:  verify and report only; the PREMIS files are not modified.
+ *
+ * Report format (tab separated, one line per object, followed by its messages):
+ *   OK|MISMATCH|MISSING|ERROR  bytes  millis  premis-file  objectIdentifierValue
+ *       SHA-256 expected 3a7b... but was 91c0...
+ * The last line is a summary that is also printed to stdout with bytes/s and every MISMATCH and
+ * MISSING object. Progress is logged once a minute. The exit code is 1 when any object is not OK.
+ *
+ * Notes:
+ * - Object identifiers are paths relative to the PREMIS file's directory (the SIP root), as the
+ *   generators write them. Objects without fixity (intellectual entities, representations) are
+ *   not audited.
+ * - Every algorithm of an object is computed in one read (FixityEngine.hashAll). The fixity cache
+ *   is deliberately not consulted: an audit has to read the bytes.
+ * - MISMATCH and MISSING are recorded as failure events; ERROR (unreadable file, unknown
+ *   algorithm, PREMIS file that cannot be parsed) is reported only.
+ */
+public class FixityAuditor {
+    private static final Logger LOG = Logger.getLogger(FixityAuditor.class.getName());
+
+    public static final String EVENT_TYPE = "fixity check";
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    /** Problem objects kept in the Summary for the console listing; all of them are in the report. */
+    private static final int MAX_LISTED_PROBLEMS = 1000;
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final ObjectFactory FACTORY = new ObjectFactory();
+
+    public enum Status { OK, MISMATCH, MISSING, ERROR }
+
+    /** Audit outcome of one object. */
+    public static final class Result {
+        final Path premisFile;
+        final String identifier;
+        final Status status;
+        final long bytes;
+        final long nanos;
+        final List<String> messages;
+
+        Result(Path premisFile, String identifier, Status status, long bytes, long nanos, List<String> messages) {
+            this.premisFile = premisFile;
+            this.identifier = identifier;
+            this.status = status;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.messages = messages;
+        }
+    }
+
+    /** Totals of a run. */
+    public static final class Summary {
+        private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        private final List<String> problems = new ArrayList<>();
+        private int premisFiles;
+        private int events;
+        private long bytes;
+        private long wallNanos;
+
+        void add(Result r) {
+            counts.merge(r.status, 1, Integer::sum);
+            bytes += r.bytes;
+            if ((r.status == Status.MISMATCH || r.status == Status.MISSING) && problems.size() < MAX_LISTED_PROBLEMS) {
+                problems.add(r.status + "\t" + r.premisFile + "\t" + r.identifier);
+            }
+        }
+
+        public int count(Status s) {
+            return counts.getOrDefault(s, 0);
+        }
+
+        public int total() {
+            int n = 0;
+            for (int c : counts.values()) n += c;
+            return n;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** "STATUS TAB premis-file TAB identifier" for the first MISMATCH/MISSING objects. */
+        public List<String> getProblems() {
+            return Collections.unmodifiableList(problems);
+        }
+
+        @Override
+        public String toString() {
+            double secs = Math.max(1e-9, wallNanos / 1e9);
+            return String.format(Locale.ROOT,
+                    "premis=%d objects=%d ok=%d mismatch=%d missing=%d error=%d events=%d in %.2f s: %.1f objects/s, %.1f MB/s (%.1f MB)",
+                    premisFiles, total(), count(Status.OK), count(Status.MISMATCH), count(Status.MISSING),
+                    count(Status.ERROR), events, secs, total() / secs, bytes / 1e6 / secs, bytes / 1e6);
+        }
+    }
+
+    /** Per PREMIS file: the events of its objects, appended once the last object is verified. */
+    private final class Audit {
+        final Path premisFile;
+        final Path base;
+        /** scan ordinal -> event, so events follow object order whatever order the workers finish in */
+        final SortedMap<Integer, EventComplexType> events = new TreeMap<>();
+        /** 1 for the scan itself plus one per queued object */
+        final AtomicInteger pending = new AtomicInteger(1);
+        volatile boolean failed;
+        int objects;
+        int unchecked;
+
+        Audit(Path premisFile) {
+            this.premisFile = premisFile;
+            Path parent = premisFile.toAbsolutePath().getParent();
+            this.base = parent != null ? parent : premisFile.toAbsolutePath();
+        }
+
+        /** Called by the scan and by each object task when it is done; the last one records the events. */
+        void release(BlockingQueue<Result> done) {
+            if (pending.decrementAndGet() != 0) return;
+            List<EventComplexType> ordered;
+            synchronized (events) {
+                ordered = new ArrayList<>(events.values());
+            }
+            if (!recordEvents || failed || ordered.isEmpty()) return;
+            try {
+                PremisEventAppender.append(premisFile, ordered);
+                eventsWritten.addAndGet(ordered.size());
+            } catch (Exception e) {
+                LOG.warning("could not record fixity events in " + premisFile + ": " + e);
+                done.add(new Result(premisFile, "-", Status.ERROR, 0L, 0L,
+                        Collections.singletonList("ERROR: events not recorded: " + e)));
+            }
+        }
+    }
+
+    private static final Result POISON = new Result(null, null, Status.ERROR, 0L, 0L, Collections.emptyList());
+
+    private final int threads;
+    private final boolean recordEvents;
+    private final FixityEngine engine;
+    private final String runId = Long.toString(System.currentTimeMillis());
+    private final AtomicInteger eventsWritten = new AtomicInteger();
+
+    public FixityAuditor(int threads, boolean recordEvents) {
+        this(threads, recordEvents, FixityEngine.getDefault());
+    }
+
+    public FixityAuditor(int threads, boolean recordEvents, FixityEngine engine) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+        this.recordEvents = recordEvents;
+        this.engine = engine;
+    }
+
+    /** True for the files this tool audits when walking a directory. */
+    public static boolean isCandidate(Path file) {
+        String n = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return n.endsWith(".xml") && n.contains("premis");
+    }
+
+    /** Audit every PREMIS file given (or found under the given directories) and stream results to the report. */
+    public Summary run(List<Path> inputs, Path reportFile) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Summary summary = new Summary();
+        BlockingQueue<Result> done = new LinkedBlockingQueue<>();
+        // bound queued objects so a large PREMIS file is not turned into an unbounded task queue
+        Semaphore queued = new Semaphore(threads * 4);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "premis-audit-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try (PrintWriter report = new PrintWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))) {
+            Thread writer = new Thread(() -> writeResults(done, report, summary, t0), "premis-audit-report");
+            writer.start();
+            try {
+                for (Path input : inputs) {
+                    if (!Files.isDirectory(input)) {
+                        summary.premisFiles++;
+                        audit(input, pool, queued, done);
+                        continue;
+                    }
+                    Files.walkFileTree(input, new SimpleFileVisitor<Path>() {
+                        @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                            if (!attrs.isRegularFile() || !isCandidate(file)) return FileVisitResult.CONTINUE;
+                            summary.premisFiles++;
+                            audit(file, pool, queued, done);
+                            return Thread.currentThread().isInterrupted() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                        }
+
+                        @Override public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                            done.add(new Result(file, "-", Status.ERROR, 0L, 0L, Collections.singletonList("ERROR: " + exc)));
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
+                }
+            } finally {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                done.add(POISON);
+                writer.join();
+            }
+            summary.events = eventsWritten.get();
+            summary.wallNanos = System.nanoTime() - t0;
+            report.println("# " + summary);
+        }
+        return summary;
+    }
+
+    /** Scan one PREMIS file on the calling thread and queue its objects. */
+    private void audit(Path premisFile, ExecutorService pool, Semaphore queued, BlockingQueue<Result> done) {
+        Audit audit = new Audit(premisFile);
+        try {
+            PremisSelectiveLoader.objects().load(premisFile, obj -> {
+                List<FixityComplexType> fixity = fixityOf(obj);
+                if (fixity.isEmpty()) {
+                    audit.unchecked++;
+                    return;
+                }
+                ObjectIdentifierComplexType oid = firstIdentifier(obj);
+                int ordinal = audit.objects++;
+                queued.acquireUninterruptibly();
+                audit.pending.incrementAndGet();
+                pool.execute(() -> {
+                    try {
+                        Result r = verify(audit, oid, fixity);
+                        done.add(r);
+                        if (recordEvents && r.status != Status.ERROR) {
+                            EventComplexType ev = fixityCheckEvent(ordinal, oid, r);
+                            synchronized (audit.events) {
+                                audit.events.put(ordinal, ev);
+                            }
+                        }
+                    } finally {
+                        queued.release();
+                        audit.release(done);
+                    }
+                });
+            });
+            LOG.info("Queued " + audit.objects + " objects of " + premisFile + " for fixity audit ("
+                    + audit.unchecked + " without fixity)");
+        } catch (Exception e) {
+            audit.failed = true;
+            LOG.warning("fixity audit of " + premisFile + " failed: " + e);
+            done.add(new Result(premisFile, "-", Status.ERROR, 0L, 0L, Collections.singletonList("ERROR: " + e)));
+        } finally {
+            audit.release(done);
+        }
+    }
+
+    private Result verify(Audit audit, ObjectIdentifierComplexType oid, List<FixityComplexType> fixity) {
+        String id = oid == null ? null : oid.getObjectIdentifierValue();
+        if (id == null || id.trim().isEmpty()) {
+            return new Result(audit.premisFile, "-", Status.ERROR, 0L, 0L,
+                    Collections.singletonList("ERROR: object has fixity but no objectIdentifierValue"));
+        }
+        long t0 = System.nanoTime();
+        try {
+            Path file = audit.base.resolve(id.trim()).normalize();
+            if (!Files.isRegularFile(file)) {
+                return new Result(audit.premisFile, id, Status.MISSING, 0L, System.nanoTime() - t0,
+                        Collections.singletonList("file not found: " + file));
+            }
+            Map<String, String> expected = new LinkedHashMap<>();
+            for (FixityComplexType f : fixity) {
+                String alg = f.getMessageDigestAlgorithm() == null ? null : f.getMessageDigestAlgorithm().getValue();
+                if (alg == null || f.getMessageDigest() == null) continue;
+                expected.put(jcaName(alg), f.getMessageDigest().trim());
+            }
+            if (expected.isEmpty()) {
+                return new Result(audit.premisFile, id, Status.ERROR, 0L, 0L,
+                        Collections.singletonList("ERROR: fixity without messageDigestAlgorithm/messageDigest"));
+            }
+            List<String> messages = new ArrayList<>();
+            long bytes = 0L;
+            for (FixityResult r : engine.hashAll(file, expected.keySet())) {
+                bytes = r.getBytes();
+                String want = expected.get(r.getAlgorithm());
+                String got = r.getDigestHex();
+                if (!got.equalsIgnoreCase(want)) {
+                    messages.add(r.getAlgorithm() + " expected " + want + " but was " + got);
+                }
+            }
+            return new Result(audit.premisFile, id, messages.isEmpty() ? Status.OK : Status.MISMATCH, bytes,
+                    System.nanoTime() - t0, messages);
+        } catch (Exception e) {
+            LOG.fine("fixity audit of " + id + " in " + audit.premisFile + " failed: " + e);
+            return new Result(audit.premisFile, id, Status.ERROR, 0L, System.nanoTime() - t0,
+                    Collections.singletonList("ERROR: " + e));
+        }
+    }
+
+    private static void writeResults(BlockingQueue<Result> done, PrintWriter report, Summary summary, long t0) {
+        long nextProgress = t0 + PROGRESS_INTERVAL_NANOS;
+        try {
+            while (true) {
+                Result r = done.poll(1, TimeUnit.SECONDS);
+                long now = System.nanoTime();
+                if (now >= nextProgress) {
+                    summary.wallNanos = now - t0;
+                    LOG.info("fixity audit progress: " + summary);
+                    nextProgress = now + PROGRESS_INTERVAL_NANOS;
+                }
+                if (r == null) continue;
+                if (r == POISON) return;
+                summary.add(r);
+                report.print(r.status);
+                report.print('\t');
+                report.print(r.bytes);
+                report.print('\t');
+                report.print(r.nanos / 1_000_000);
+                report.print('\t');
+                report.print(r.premisFile);
+                report.print('\t');
+                report.println(r.identifier);
+                for (String m : r.messages) {
+                    report.print("    ");
+                    report.println(m);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Fixity entries of a file or bitstream object; empty for other object kinds. */
+    static List<FixityComplexType> fixityOf(ObjectComplexType obj) {
+        List<ObjectCharacteristicsComplexType> chars;
+        if (obj instanceof File) chars = ((File) obj).getObjectCharacteristics();
+        else if (obj instanceof Bitstream) chars = ((Bitstream) obj).getObjectCharacteristics();
+        else return Collections.emptyList();
+        List<FixityComplexType> out = new ArrayList<>(1);
+        for (ObjectCharacteristicsComplexType oc : chars) out.addAll(oc.getFixity());
+        return out;
+    }
+
+    private static ObjectIdentifierComplexType firstIdentifier(ObjectComplexType obj) {
+        for (ObjectIdentifierComplexType oid : ObjectIdentifierIndex.identifiersOf(obj)) {
+            if (oid.getObjectIdentifierValue() != null && !oid.getObjectIdentifierValue().trim().isEmpty()) return oid;
+        }
+        return null;
+    }
+
+    /** JCA name for a recorded algorithm: "sha256" and "SHA256" become "SHA-256", "md5" becomes "MD5". */
+    static String jcaName(String recorded) {
+        String a = recorded.trim().toUpperCase(Locale.ROOT);
+        if (a.matches("SHA[0-9]+")) a = "SHA-" + a.substring(3);
+        return a;
+    }
+
+    private EventComplexType fixityCheckEvent(int ordinal, ObjectIdentifierComplexType oid, Result r) {
+        EventComplexType ev = new EventComplexType();
+        EventIdentifierComplexType eid = new EventIdentifierComplexType();
+        eid.setEventIdentifierType(authority("eventID"));
+        eid.setEventIdentifierValue("EVT-FIXITY-" + runId + "-" + (ordinal + 1));
+        ev.setEventIdentifier(eid);
+        ev.setEventType(authority(EVENT_TYPE));
+        ev.setEventDateTime(ISO.format(OffsetDateTime.now()));
+
+        EventDetailInformationComplexType edi = new EventDetailInformationComplexType();
+        edi.setEventDetail(r.status == Status.OK ? "Stored digests verified by FixityAuditor"
+                : r.status == Status.MISSING ? "File not found" : "Stored digest does not match the file");
+        ev.getEventDetailInformation().add(edi);
+
+        EventOutcomeInformationComplexType eoi = new EventOutcomeInformationComplexType();
+        eoi.getContent().add(FACTORY.createEventOutcome(authority(r.status == Status.OK ? "success" : "failure")));
+        for (String m : r.messages) {
+            EventOutcomeDetailComplexType eod = new EventOutcomeDetailComplexType();
+            eod.getContent().add(FACTORY.createEventOutcomeDetailNote(m));
+            eoi.getContent().add(FACTORY.createEventOutcomeDetail(eod));
+        }
+        ev.getEventOutcomeInformation().add(eoi);
+
+        LinkingAgentIdentifierComplexType la = new LinkingAgentIdentifierComplexType();
+        la.setLinkingAgentIdentifierType(authority("system"));
+        la.setLinkingAgentIdentifierValue("JDPS-Repository");
+        ev.getLinkingAgentIdentifier().add(la);
+
+        LinkingObjectIdentifierComplexType lo = new LinkingObjectIdentifierComplexType();
+        lo.setLinkingObjectIdentifierType(oid.getObjectIdentifierType());
+        lo.setLinkingObjectIdentifierValue(oid.getObjectIdentifierValue());
+        ev.getLinkingObjectIdentifier().add(lo);
+        return ev;
+    }
+
+    private static StringPlusAuthority authority(String value) {
+        return StringPlusAuthorityCache.getInstance().get(value, null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Path> inputs = new ArrayList<>();
+        Path report = Paths.get("fixity-audit-report.tsv");
+        int threads = Integer.getInteger(ParallelFixityStage.PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+        boolean recordEvents = true;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if ("--report".equals(a) && i + 1 < args.length) report = Paths.get(args[++i]);
+            else if ("--threads".equals(a) && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if ("--no-events".equals(a)) recordEvents = false;
+            else inputs.add(Paths.get(a));
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: FixityAuditor <premis.xml|dir>... [--report <file>] [--threads N] [--no-events]");
+            System.exit(2);
+        }
+        Summary s = new FixityAuditor(Math.max(1, threads), recordEvents).run(inputs, report);
+        System.out.println(s);
+        for (String p : s.getProblems()) System.out.println(p);
+        if (s.getProblems().size() < s.count(Status.MISMATCH) + s.count(Status.MISSING)) {
+            System.out.println("... more in the report");
+        }
+        System.out.println("Report: " + report.toAbsolutePath());
+        if (s.count(Status.OK) != s.total()) System.exit(1);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.fixity;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * FixityCache
+ *
+ * Persistent digest cache for incremental re-generation. A file whose size, modification time and
+ * file key (inode on POSIX file systems) are unchanged since it was last hashed gets its previous
+ * digests back without being read again.
+ *
+ * Usage:
+ *   FixityCache cache = FixityCache.shared(Paths.get("/repo/.premis-fixity.cache"));
+ *   Map<String, String> digests = cache.digestHexAll(FixityEngine.getDefault(), file, algorithms);
+ *   cache.flush();
+ *   LOG.info(cache.toString());   // hits / misses
+ *
+ * Configuration (system properties):
+ *   premis.fixity.cache   cache file used by the generators (unset: no caching)
+ *
+ * File format: UTF-8 text, append-only, one line per file and algorithm:
+ *   size TAB mtime-nanos TAB file-key TAB algorithm TAB hex-digest TAB absolute-path
+ * The last line for a path/algorithm wins. On open the file is rewritten without stale lines when
+ * they outnumber the live ones.
+ *
+ * Notes:
+ * - One instance per cache file and JVM (shared()); it is safe to use from the fixity workers.
+ * - A file without a file key (some Windows/network file systems) is matched on size + mtime only.
+ * - Paths containing line breaks are hashed but never cached.
+ */
+public final class FixityCache implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(FixityCache.class.getName());
+
+    public static final String CACHE_PROPERTY = "premis.fixity.cache";
+
+    private static final String HEADER = "# premis fixity cache v1";
+    private static final String NO_KEY = "-";
+    private static final ConcurrentHashMap<Path, FixityCache> SHARED = new ConcurrentHashMap<>();
+
+    /** Attributes a cached digest is valid for. */
+    private static final class Entry {
+        final long size;
+        final long mtimeNanos;
+        final String fileKey;
+        final String digestHex;
+
+        Entry(long size, long mtimeNanos, String fileKey, String digestHex) {
+            this.size = size;
+            this.mtimeNanos = mtimeNanos;
+            this.fileKey = fileKey;
+            this.digestHex = digestHex;
+        }
+
+        boolean matches(long size, long mtimeNanos, String fileKey) {
+            return this.size == size && this.mtimeNanos == mtimeNanos && this.fileKey.equals(fileKey);
+        }
+    }
+
+    private final Path cacheFile;
+    /** absolute path -> algorithm -> entry */
+    private final ConcurrentHashMap<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private BufferedWriter out;
+
+    private FixityCache(Path cacheFile) throws IOException {
+        this.cacheFile = cacheFile;
+        int lines = load();
+        int live = 0;
+        for (Map<String, Entry> m : entries.values()) live += m.size();
+        if (lines > 2 * live && lines > 0) compact();
+        Path parent = cacheFile.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        boolean fresh = !Files.exists(cacheFile) || Files.size(cacheFile) == 0;
+        out = Files.newBufferedWriter(cacheFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh) {
+            out.write(HEADER);
+            out.newLine();
+        }
+        LOG.info("Fixity cache " + cacheFile + ": " + live + " digests for " + entries.size() + " files");
+    }
+
+    /** The JVM-wide instance for a cache file, opened on first use and closed at shutdown. */
+    public static FixityCache shared(Path cacheFile) throws IOException {
+        Path key = cacheFile.toAbsolutePath().normalize();
+        FixityCache c = SHARED.get(key);
+        if (c != null) return c;
+        synchronized (SHARED) {
+            c = SHARED.get(key);
+            if (c == null) {
+                c = new FixityCache(key);
+                SHARED.put(key, c);
+                final FixityCache toClose = c;
+                Runtime.getRuntime().addShutdownHook(new Thread(toClose::close, "premis-fixity-cache-close"));
+            }
+            return c;
+        }
+    }
+
+    /** Cache named by premis.fixity.cache, or null when caching is not configured. */
+    public static FixityCache fromSystemProperties() throws IOException {
+        String prop = System.getProperty(CACHE_PROPERTY);
+        if (prop == null || prop.trim().isEmpty()) return null;
+        return shared(Paths.get(prop.trim()));
+    }
+
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Digests for every requested algorithm: all from the cache when the file is unchanged,
+     * otherwise from one engine read (the new digests are appended to the cache file).
+     */
+    public Map<String, String> digestHexAll(FixityEngine engine, Path file, List<String> algorithms) throws IOException {
+        return digestHexAll(engine, file, algorithms, null);
+    }
+
+    /** As {@link #digestHexAll(FixityEngine, Path, List)}; onRead gets the read's FixityResult when the file was read. */
+    public Map<String, String> digestHexAll(FixityEngine engine, Path file, List<String> algorithms,
+                                            Consumer<? super FixityResult> onRead)
+            throws IOException {
+        Path abs = file.toAbsolutePath().normalize();
+        String key = abs.toString();
+        BasicFileAttributes attrs = Files.readAttributes(abs, BasicFileAttributes.class);
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        String fileKey = attrs.fileKey() == null ? NO_KEY : attrs.fileKey().toString();
+
+        Map<String, Entry> known = entries.get(key);
+        if (known != null) {
+            Map<String, String> cached = new LinkedHashMap<>();
+            for (String alg : algorithms) {
+                Entry e = known.get(alg);
+                if (e == null || !e.matches(size, mtime, fileKey)) {
+                    cached = null;
+                    break;
+                }
+                cached.put(alg, e.digestHex);
+            }
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        misses.incrementAndGet();
+        Map<String, String> digests = engine.digestHexAll(abs, algorithms, onRead);
+        if (key.indexOf('\n') < 0 && key.indexOf('\r') < 0) {
+            Map<String, Entry> byAlg = entries.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+            StringBuilder sb = new StringBuilder(256);
+            for (Map.Entry<String, String> d : digests.entrySet()) {
+                byAlg.put(d.getKey(), new Entry(size, mtime, fileKey, d.getValue()));
+                sb.append(size).append('\t').append(mtime).append('\t').append(fileKey).append('\t')
+                  .append(d.getKey()).append('\t').append(d.getValue()).append('\t').append(key)
+                  .append(System.lineSeparator());
+            }
+            append(sb.toString());
+        }
+        return digests;
+    }
+
+    /** Push appended entries to disk (the generators call this at the end of each scan). */
+    public synchronized void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            LOG.warning("Could not flush fixity cache " + cacheFile + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            LOG.warning("Could not close fixity cache " + cacheFile + ": " + e.getMessage());
+        }
+        out = null;
+        SHARED.remove(cacheFile, this);
+    }
+
+    @Override
+    public String toString() {
+        return "FixityCache[" + cacheFile + ", hits=" + hits.get() + ", misses=" + misses.get() + "]";
+    }
+
+    private synchronized void append(String lines) throws IOException {
+        if (out == null) throw new IOException("fixity cache is closed: " + cacheFile);
+        out.write(lines);
+    }
+
+    /** Read the cache file into memory; returns the number of entry lines seen. */
+    private int load() throws IOException {
+        if (!Files.exists(cacheFile)) return 0;
+        int lines = 0;
+        try (BufferedReader r = Files.newBufferedReader(cacheFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] f = line.split("\t", 6);
+                if (f.length < 6) {
+                    LOG.fine("skipping malformed fixity cache line: " + line);
+                    continue;
+                }
+                try {
+                    Entry e = new Entry(Long.parseLong(f[0]), Long.parseLong(f[1]), f[2], f[4]);
+                    entries.computeIfAbsent(f[5], k -> new ConcurrentHashMap<>()).put(f[3], e);
+                    lines++;
+                } catch (NumberFormatException nfe) {
+                    LOG.fine("skipping malformed fixity cache line: " + line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /** Rewrite the cache file with only the live entries (write to a sibling, then replace). */
+    private void compact() throws IOException {
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        int written = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(HEADER);
+            w.newLine();
+            for (Map.Entry<String, Map<String, Entry>> p : entries.entrySet()) {
+                for (Map.Entry<String, Entry> a : p.getValue().entrySet()) {
+                    Entry e = a.getValue();
+                    w.write(e.size + "\t" + e.mtimeNanos + "\t" + e.fileKey + "\t" + a.getKey() + "\t"
+                            + e.digestHex + "\t" + p.getKey());
+                    w.newLine();
+                    written++;
+                }
+            }
+        }
+        try {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException atomicUnsupported) {
+            Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LOG.info("Compacted fixity cache " + cacheFile + " to " + written + " entries");
+    }
+}
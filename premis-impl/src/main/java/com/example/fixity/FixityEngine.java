@@ -0,0 +1,365 @@
+package com.example.fixity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FixityEngine
+ *
+ * The one place that computes file digests for PREMIS fixity (messageDigestAlgorithm /
+ * messageDigest). Replaces the computeSha256 copies each generator used to carry.
+ *
+ * Usage:
+ *   String hex = FixityEngine.getDefault().sha256Hex(path);
+ *   String md5 = FixityEngine.getDefault().digestHex(path, "MD5");
+ *   FixityResult r = FixityEngine.getDefault().hash(path, "SHA-256");  // digest + MB/s
+ *   Map<String, String> all = FixityEngine.getDefault().digestHexAll(path, Arrays.asList("SHA-256", "SHA-512", "MD5"));
+ *
+ * Read strategies (chosen per file by size, always sequential):
+ * - CHANNEL: FileChannel into a per-thread direct ByteBuffer (1 MiB by default).
+ * - MAPPED:  files at or above the map threshold (64 MiB by default) are memory mapped in
+ *            fixed-size chunks (256 MiB), so 2-20 GB bundles never map more than one chunk;
+ *            each chunk is unmapped as soon as it is digested (where the JVM allows it).
+ * - STREAM:  InputStream into a per-thread heap buffer, used when the file system has no
+ *            FileChannel support.
+ *
+ * Several algorithms can be computed in one pass: every buffer read is fed to each digest, so
+ * SHA-256 + SHA-512 + MD5 read the file once instead of three times.
+ *
+ * Configuration for getDefault() (system properties):
+ *   premis.fixity.algorithms    comma-separated algorithms the generators record (default SHA-256)
+ *   premis.fixity.bufferSize    read buffer bytes
+ *   premis.fixity.mapThreshold  file size from which MAPPED is used (negative disables mapping)
+ *   premis.fixity.mapChunkSize  bytes mapped at a time
+ *
+ * Notes:
+ * - MessageDigest instances are kept per thread and per algorithm and reset between files.
+ * - Per-file throughput is returned in FixityResult (digestHexAll can hand it to a callback) and
+ *   logged at FINE; files of LARGE_FILE_BYTES and more are logged at INFO.
+ * - Buffer methods are called through java.nio.Buffer so classes built by a newer javac with
+ *   -source/-target 8 still run on a Java 8 JRE (ByteBuffer's covariant overrides are 9+).
+ * - Hex encoding is table driven into a per-thread char buffer; the returned String is the only
+ *   allocation.
+ * - Safe to share across threads (ParallelFixityStage workers call it concurrently).
+ */
+public final class FixityEngine {
+    private static final Logger LOG = Logger.getLogger(FixityEngine.class.getName());
+
+    public static final String SHA_256 = "SHA-256";
+    public static final String ALGORITHMS_PROPERTY = "premis.fixity.algorithms";
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    public static final long DEFAULT_MAP_THRESHOLD = 64L << 20;
+    public static final long DEFAULT_MAP_CHUNK_SIZE = 256L << 20;
+    /** Files of at least this size get an INFO line with their throughput. */
+    public static final long LARGE_FILE_BYTES = 64L << 20;
+
+    /** How file bytes are fed to the digest. */
+    public enum ReadStrategy { STREAM, CHANNEL, MAPPED }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final FixityEngine DEFAULT = new FixityEngine(
+            Integer.getInteger("premis.fixity.bufferSize", DEFAULT_BUFFER_SIZE),
+            Long.getLong("premis.fixity.mapThreshold", DEFAULT_MAP_THRESHOLD),
+            Long.getLong("premis.fixity.mapChunkSize", DEFAULT_MAP_CHUNK_SIZE));
+
+    private static final ThreadLocal<Map<String, MessageDigest>> DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<char[]> HEX_BUFFER = ThreadLocal.withInitial(() -> new char[128]);
+
+    private final int bufferSize;
+    private final long mapThreshold;
+    private final long mapChunkSize;
+    private final ThreadLocal<byte[]> buffers;
+    private final ThreadLocal<ByteBuffer> directBuffers;
+
+    public FixityEngine(int bufferSize) {
+        this(bufferSize, DEFAULT_MAP_THRESHOLD, DEFAULT_MAP_CHUNK_SIZE);
+    }
+
+    /**
+     * @param bufferSize   heap/direct read buffer size per thread
+     * @param mapThreshold files of at least this size are memory mapped; negative disables mapping
+     * @param mapChunkSize bytes mapped per chunk (at most Integer.MAX_VALUE)
+     */
+    public FixityEngine(int bufferSize, long mapThreshold, long mapChunkSize) {
+        if (bufferSize < 4096) throw new IllegalArgumentException("bufferSize must be >= 4096");
+        if (mapChunkSize < bufferSize || mapChunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("mapChunkSize must be between bufferSize and Integer.MAX_VALUE");
+        }
+        this.bufferSize = bufferSize;
+        this.mapThreshold = mapThreshold;
+        this.mapChunkSize = mapChunkSize;
+        this.buffers = ThreadLocal.withInitial(() -> new byte[this.bufferSize]);
+        this.directBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(this.bufferSize));
+    }
+
+    /** Shared engine configured from the premis.fixity.* system properties. */
+    public static FixityEngine getDefault() {
+        return DEFAULT;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getMapThreshold() {
+        return mapThreshold;
+    }
+
+    /**
+     * Algorithms the generators record per file, from premis.fixity.algorithms
+     * (for example "SHA-256,SHA-512,MD5"); SHA-256 when unset.
+     */
+    public static List<String> configuredAlgorithms() {
+        String prop = System.getProperty(ALGORITHMS_PROPERTY);
+        if (prop == null || prop.trim().isEmpty()) return Collections.singletonList(SHA_256);
+        Set<String> algs = new LinkedHashSet<>();
+        for (String a : prop.split(",")) {
+            String t = a.trim();
+            if (!t.isEmpty()) algs.add(t.toUpperCase(Locale.ROOT));
+        }
+        for (String a : algs) messageDigest(a); // fail fast on unknown names
+        return Collections.unmodifiableList(new ArrayList<>(algs));
+    }
+
+    /** Strategy used for a file of the given size. */
+    public ReadStrategy strategyFor(long size) {
+        return (mapThreshold >= 0 && size >= mapThreshold) ? ReadStrategy.MAPPED : ReadStrategy.CHANNEL;
+    }
+
+    /** Lower-case hex SHA-256 of the file. */
+    public String sha256Hex(Path file) throws IOException {
+        return digestHex(file, SHA_256);
+    }
+
+    /** Lower-case hex digest of the file for any JCA algorithm name (SHA-256, SHA-512, MD5, ...). */
+    public String digestHex(Path file, String algorithm) throws IOException {
+        return toHex(digest(file, algorithm));
+    }
+
+    /** Raw digest bytes of the file. */
+    public byte[] digest(Path file, String algorithm) throws IOException {
+        return hash(file, algorithm).getDigest();
+    }
+
+    /** Digest plus bytes read, elapsed time and the read strategy used. */
+    public FixityResult hash(Path file, String algorithm) throws IOException {
+        return hashAll(file, Collections.singletonList(algorithm)).get(0);
+    }
+
+    /** Lower-case hex digests keyed by algorithm (in the given order), from a single read. */
+    public Map<String, String> digestHexAll(Path file, Collection<String> algorithms) throws IOException {
+        return digestHexAll(file, algorithms, null);
+    }
+
+    /**
+     * As {@link #digestHexAll(Path, Collection)}; onHashed (may be null) gets the read's result
+     * (bytes, time, MB/s; the first algorithm's digest), e.g. for a throughput histogram.
+     */
+    public Map<String, String> digestHexAll(Path file, Collection<String> algorithms, Consumer<? super FixityResult> onHashed)
+            throws IOException {
+        List<FixityResult> results = hashAll(file, algorithms);
+        Map<String, String> out = new LinkedHashMap<>();
+        for (FixityResult r : results) out.put(r.getAlgorithm(), r.getDigestHex());
+        if (onHashed != null) onHashed.accept(results.get(0));
+        return out;
+    }
+
+    /**
+     * One result per distinct algorithm, in the given order. The file is read once and each
+     * buffer is fed to every digest.
+     */
+    public List<FixityResult> hashAll(Path file, Collection<String> algorithms) throws IOException {
+        List<String> algs = new ArrayList<>(new LinkedHashSet<>(algorithms));
+        if (algs.isEmpty()) throw new IllegalArgumentException("at least one algorithm is required");
+        MessageDigest[] mds = new MessageDigest[algs.size()];
+        for (int i = 0; i < mds.length; i++) mds[i] = messageDigest(algs.get(i));
+        long t0 = System.nanoTime();
+        long bytes;
+        ReadStrategy used;
+        try {
+            FileChannel ch;
+            try {
+                ch = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (UnsupportedOperationException noChannel) {
+                ch = null;
+            }
+            if (ch == null) {
+                used = ReadStrategy.STREAM;
+                bytes = readStream(file, mds);
+            } else {
+                try (FileChannel c = ch) {
+                    long size = c.size();
+                    used = strategyFor(size);
+                    bytes = used == ReadStrategy.MAPPED ? readMapped(c, size, mds) : readChannel(c, mds);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (MessageDigest md : mds) md.reset();
+            throw e;
+        }
+        long nanos = System.nanoTime() - t0;
+        List<FixityResult> results = new ArrayList<>(mds.length);
+        for (int i = 0; i < mds.length; i++) {
+            FixityResult r = new FixityResult(file, algs.get(i), mds[i].digest(), bytes, nanos, used);
+            if (LOG.isLoggable(Level.FINE)) LOG.fine(r.toString());
+            results.add(r);
+        }
+        if (bytes >= LARGE_FILE_BYTES && LOG.isLoggable(Level.INFO)) {
+            LOG.info(String.format(Locale.ROOT, "hashed %s: %d bytes in %.1f s, %.1f MB/s (%s, %s)", file, bytes,
+                    nanos / 1e9, results.get(0).getMegabytesPerSecond(), String.join("+", algs), used));
+        }
+        return results;
+    }
+
+    private long readStream(Path file, MessageDigest[] mds) throws IOException {
+        byte[] buf = buffers.get();
+        long total = 0;
+        try (InputStream is = Files.newInputStream(file)) {
+            int r;
+            while ((r = is.read(buf)) > 0) {
+                for (MessageDigest md : mds) md.update(buf, 0, r);
+                total += r;
+            }
+        }
+        return total;
+    }
+
+    private long readChannel(FileChannel ch, MessageDigest[] mds) throws IOException {
+        ByteBuffer buf = directBuffers.get();
+        long total = 0;
+        ((Buffer) buf).clear();
+        while (ch.read(buf) >= 0) {
+            ((Buffer) buf).flip();
+            total += buf.remaining();
+            update(mds, buf);
+            ((Buffer) buf).clear();
+        }
+        return total;
+    }
+
+    private long readMapped(FileChannel ch, long size, MessageDigest[] mds) throws IOException {
+        long pos = 0;
+        while (pos < size) {
+            long len = Math.min(mapChunkSize, size - pos);
+            MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            try {
+                update(mds, mb);
+            } finally {
+                unmap(mb);
+            }
+            pos += len;
+        }
+        return pos;
+    }
+
+    /** Feed the buffer's remaining bytes to every digest; the position ends at the limit. */
+    private static void update(MessageDigest[] mds, ByteBuffer buf) {
+        int start = buf.position();
+        for (MessageDigest md : mds) {
+            ((Buffer) buf).position(start);
+            md.update(buf);
+        }
+    }
+
+    /** Releases a mapped chunk now instead of at the next GC; a no-op where the JVM offers no way. */
+    private static void unmap(MappedByteBuffer mb) {
+        if (UNMAPPER == null) return;
+        try {
+            UNMAPPER.invokeExact((ByteBuffer) mb);
+        } catch (Throwable t) {
+            LOG.log(Level.FINE, "unmapping failed; the chunk is released by GC", t);
+        }
+    }
+
+    /**
+     * (ByteBuffer)void that frees a direct buffer: Unsafe.invokeCleaner on Java 9+, else
+     * DirectBuffer.cleaner().clean() on Java 8; null when neither is accessible.
+     */
+    private static final MethodHandle UNMAPPER = findUnmapper();
+
+    private static MethodHandle findUnmapper() {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodType type = MethodType.methodType(void.class, ByteBuffer.class);
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            MethodHandle invokeCleaner = lookup.findVirtual(unsafeClass, "invokeCleaner", type);
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            return invokeCleaner.bindTo(f.get(null));
+        } catch (ReflectiveOperationException | RuntimeException java8) {
+            // fall through
+        }
+        try {
+            Class<?> directBuffer = Class.forName("sun.nio.ch.DirectBuffer");
+            Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+            MethodHandle cleaner = lookup.findVirtual(directBuffer, "cleaner", MethodType.methodType(cleanerClass));
+            MethodHandle clean = lookup.findVirtual(cleanerClass, "clean", MethodType.methodType(void.class));
+            return MethodHandles.filterReturnValue(cleaner, clean).asType(type);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.fine("mapped chunks cannot be unmapped explicitly on this JVM: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Per-thread MessageDigest for the algorithm, reset and ready for use. Only valid on the calling
+     * thread and until the next call for the same algorithm.
+     */
+    public static MessageDigest messageDigest(String algorithm) {
+        Map<String, MessageDigest> byAlg = DIGESTS.get();
+        MessageDigest md = byAlg.get(algorithm);
+        if (md == null) {
+            try {
+                md = MessageDigest.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+            }
+            byAlg.put(algorithm, md);
+        } else {
+            md.reset();
+        }
+        return md;
+    }
+
+    /** Lower-case hex of the bytes. */
+    public static String toHex(byte[] bytes) {
+        int n = bytes.length * 2;
+        char[] out = HEX_BUFFER.get();
+        if (out.length < n) {
+            out = new char[n];
+            HEX_BUFFER.set(out);
+        }
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            out[j++] = HEX[b >>> 4];
+            out[j++] = HEX[b & 0x0f];
+        }
+        return new String(out, 0, n);
+    }
+
+    /** Appends lower-case hex of the bytes without intermediate Strings. */
+    public static StringBuilder appendHex(StringBuilder sb, byte[] bytes) {
+        for (byte value : bytes) {
+            int b = value & 0xff;
+            sb.append(HEX[b >>> 4]).append(HEX[b & 0x0f]);
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.fixity;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of hashing one file: digest, bytes read, elapsed time and the read strategy used.
+ */
+public final class FixityResult {
+    private final Path file;
+    private final String algorithm;
+    private final byte[] digest;
+    private final long bytes;
+    private final long nanos;
+    private final FixityEngine.ReadStrategy strategy;
+
+    public FixityResult(Path file, String algorithm, byte[] digest, long bytes, long nanos,
+                        FixityEngine.ReadStrategy strategy) {
+        this.file = file;
+        this.algorithm = algorithm;
+        this.digest = digest;
+        this.bytes = bytes;
+        this.nanos = nanos;
+        this.strategy = strategy;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public byte[] getDigest() {
+        return digest;
+    }
+
+    public String getDigestHex() {
+        return FixityEngine.toHex(digest);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public FixityEngine.ReadStrategy getStrategy() {
+        return strategy;
+    }
+
+    /** Throughput in MB/s (10^6 bytes), 0 for empty files. */
+    public double getMegabytesPerSecond() {
+        if (bytes == 0 || nanos <= 0) return 0.0;
+        return (bytes / 1_000_000.0) / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %d bytes in %.1f ms (%.1f MB/s, %s)",
+                algorithm, file, bytes, nanos / 1_000_000.0, getMegabytesPerSecond(), strategy);
+    }
+}
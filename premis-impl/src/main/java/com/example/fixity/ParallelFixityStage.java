@@ -0,0 +1,272 @@
+package com.example.fixity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * ParallelFixityStage
+ *
+ * Bounded worker pool that hashes SIP files ahead of the generator. The generator hands over the
+ * files it is about to describe with {@link #submitAll(Collection)}, which returns at once: a feeder
+ * thread queues them, in that order, at most a window of files ahead of the generator. The generator
+ * builds PREMIS objects in the same order and joins each digest with {@link #await(Path)} when it
+ * reaches the fixity element, so hashing overlaps building, object order in the output stays
+ * deterministic and the stage never holds futures for more than the window.
+ *
+ * Usage:
+ *   try (ParallelFixityStage<String> stage = ParallelFixityStage.fromSystemProperties(engine::sha256Hex)) {
+ *       stage.submitAll(files);                       // returns immediately
+ *       for (Path p : files) addFixity(p, stage.take(p));
+ *   }
+ *
+ * Configuration (system properties):
+ *   premis.fixity.parallelism    worker threads (default: available processors)
+ *   premis.fixity.inflightBytes  max bytes of submitted-but-unfinished files (default: 256 MB)
+ *   premis.fixity.window         max files queued ahead of the last one awaited (default: 4 x parallelism)
+ *
+ * Notes:
+ * - submit() blocks while the in-flight byte budget is exhausted, which throttles I/O on very large
+ *   representations. A single file larger than the budget takes the whole budget. The feeder of
+ *   submitAll() is throttled by both the budget and the window; the caller is never blocked by them.
+ * - The window moves with the generator: awaiting the k-th file of submitAll() frees the slots of
+ *   every earlier one, so files the generator skips do not stall the feeder. A file the generator
+ *   reaches before the feeder does is hashed on the calling thread and skipped by the feeder.
+ * - Submitting the same path twice hashes it once (rep2 entries synthesized from rep1 reuse it).
+ * - await() on a path that was never submitted hashes it on the calling thread; take() does the
+ *   same and also drops the stored result.
+ */
+public final class ParallelFixityStage<T> implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ParallelFixityStage.class.getName());
+
+    public static final String PARALLELISM_PROPERTY = "premis.fixity.parallelism";
+    public static final String INFLIGHT_BYTES_PROPERTY = "premis.fixity.inflightBytes";
+    public static final String WINDOW_PROPERTY = "premis.fixity.window";
+    public static final long DEFAULT_INFLIGHT_BYTES = 256L * 1024 * 1024;
+
+    /** Budget granularity: the semaphore counts KiB so multi-GB budgets fit in int permits. */
+    private static final long PERMIT_BYTES = 1024;
+
+    /** Digest function run on the workers (a hex String, or one digest per algorithm). */
+    public interface Hasher<T> {
+        T hash(Path file) throws Exception;
+    }
+
+    private final Hasher<T> hasher;
+    private final int parallelism;
+    private final long maxInFlightBytes;
+    private final int budgetPermits;
+    private final Semaphore budget;
+    private final int windowFiles;
+    private final Semaphore window;
+    private final ExecutorService pool;
+    private final ConcurrentHashMap<Path, Future<T>> results = new ConcurrentHashMap<>();
+
+    // submitAll() plan; guarded by this
+    private final Map<Path, Integer> planIndex = new HashMap<>();
+    private int fed;         // plan entries the feeder has passed (queued or skipped)
+    private int consumed;    // plan entries before the last one awaited
+    private Thread feeder;
+
+    public ParallelFixityStage(Hasher<T> hasher, int parallelism, long maxInFlightBytes) {
+        this(hasher, parallelism, maxInFlightBytes, 4 * parallelism);
+    }
+
+    public ParallelFixityStage(Hasher<T> hasher, int parallelism, long maxInFlightBytes, int windowFiles) {
+        if (hasher == null) throw new IllegalArgumentException("hasher must not be null");
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+        if (maxInFlightBytes < PERMIT_BYTES) throw new IllegalArgumentException("maxInFlightBytes must be >= " + PERMIT_BYTES);
+        if (windowFiles < 1) throw new IllegalArgumentException("windowFiles must be >= 1");
+        this.hasher = hasher;
+        this.parallelism = parallelism;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.budgetPermits = (int) Math.min(Integer.MAX_VALUE, maxInFlightBytes / PERMIT_BYTES);
+        this.budget = new Semaphore(budgetPermits);
+        this.windowFiles = windowFiles;
+        this.window = new Semaphore(windowFiles);
+        this.pool = Executors.newFixedThreadPool(parallelism, new WorkerFactory());
+    }
+
+    /** Stage configured from premis.fixity.parallelism / .inflightBytes / .window. */
+    public static <T> ParallelFixityStage<T> fromSystemProperties(Hasher<T> hasher) {
+        int par = Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+        long bytes = Long.getLong(INFLIGHT_BYTES_PROPERTY, DEFAULT_INFLIGHT_BYTES);
+        int win = Integer.getInteger(WINDOW_PROPERTY, 4 * par);
+        return new ParallelFixityStage<>(hasher, par, Math.max(PERMIT_BYTES, bytes), Math.max(1, win));
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public int getWindowFiles() {
+        return windowFiles;
+    }
+
+    /**
+     * Queue every file in iteration order from a feeder thread and return immediately. The caller
+     * should await the files in the same order; one plan per stage.
+     */
+    public synchronized void submitAll(Collection<Path> files) {
+        if (feeder != null) throw new IllegalStateException("submitAll already called");
+        final List<Path> plan = new ArrayList<>(files.size());
+        for (Path p : files) {
+            if (planIndex.putIfAbsent(p, plan.size()) == null) plan.add(p);
+        }
+        feeder = new Thread(() -> feed(plan), "premis-fixity-feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    private void feed(List<Path> plan) {
+        try {
+            for (int i = 0; i < plan.size(); i++) {
+                Path file = plan.get(i);
+                window.acquire();
+                final int permits = permitsFor(file);
+                budget.acquire(permits);
+                FutureTask<T> task = newTask(file, permits);
+                boolean queued;
+                synchronized (this) {
+                    fed = i + 1;
+                    if (i < consumed) {
+                        // the generator got there first and hashed it inline
+                        window.release();
+                        budget.release(permits);
+                        continue;
+                    }
+                    // already queued by submit(): its slot is still freed when the generator passes it
+                    queued = results.putIfAbsent(file, task) == null;
+                }
+                if (!queued) {
+                    budget.release(permits);
+                    continue;
+                }
+                try {
+                    pool.execute(task);
+                } catch (RejectedExecutionException e) {
+                    results.remove(file, task);
+                    budget.release(permits);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            LOG.fine("fixity feeder stopped: " + e);
+        }
+    }
+
+    /** Queue one file for hashing, blocking while the in-flight byte budget is used up. */
+    public void submit(Path file) throws InterruptedException {
+        if (results.containsKey(file)) return;
+        final int permits = permitsFor(file);
+        budget.acquire(permits);
+        FutureTask<T> task = newTask(file, permits);
+        if (results.putIfAbsent(file, task) != null) {
+            budget.release(permits);
+            return;
+        }
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            results.remove(file, task);
+            budget.release(permits);
+            throw e;
+        }
+    }
+
+    private FutureTask<T> newTask(Path file, int permits) {
+        return new FutureTask<>(() -> {
+            try {
+                return hasher.hash(file);
+            } finally {
+                budget.release(permits);
+            }
+        });
+    }
+
+    /**
+     * Digest of a file: joins the worker result, or hashes inline when the file was not submitted
+     * (or the feeder has not reached it yet). Hash failures are rethrown with their original cause.
+     */
+    public T await(Path file) throws Exception {
+        Future<T> f = advanceTo(file);
+        if (f == null) return hasher.hash(file);
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof Exception) throw (Exception) c;
+            throw e;
+        }
+    }
+
+    /** Like {@link #await(Path)}, then forgets the result so long scans do not retain every digest. */
+    public T take(Path file) throws Exception {
+        try {
+            return await(file);
+        } finally {
+            results.remove(file);
+        }
+    }
+
+    /**
+     * Moves the window up to a planned file, freeing the slots of every plan entry before it, and
+     * returns the file's future (null when it is to be hashed inline).
+     */
+    private Future<T> advanceTo(Path file) {
+        synchronized (this) {
+            Integer idx = planIndex.get(file);
+            if (idx != null && idx >= consumed) {
+                int freed = Math.max(0, Math.min(idx + 1, fed) - consumed);
+                consumed = idx + 1;
+                if (freed > 0) window.release(freed);
+            }
+            return results.get(file);
+        }
+    }
+
+    @Override
+    public void close() {
+        Thread f;
+        synchronized (this) {
+            f = feeder;
+        }
+        if (f != null) f.interrupt();
+        pool.shutdownNow();
+        results.clear();
+    }
+
+    private int permitsFor(Path file) {
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (Exception e) {
+            LOG.fine("size unknown for " + file + ": " + e.getMessage());
+            size = 0L;
+        }
+        long permits = Math.max(1L, (size + PERMIT_BYTES - 1) / PERMIT_BYTES);
+        return (int) Math.min(permits, budgetPermits);
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+        private static final AtomicInteger SEQ = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "premis-fixity-" + SEQ.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
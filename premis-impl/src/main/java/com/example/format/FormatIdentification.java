@@ -0,0 +1,83 @@
+package com.example.format;
+
+import java.util.Objects;
+
+/**
+ * FormatIdentification
+ *
+ * Result of FormatIdentifier for one file: what the generators write into the PREMIS format
+ * block (formatDesignation/formatName, formatVersion, formatRegistry with the PRONOM key).
+ *
+ * Usage:
+ *   FormatIdentification f = FormatIdentifier.getDefault().identify(path, sha256Hex);
+ *   f.getName();      // "PDF/A-3B"
+ *   f.getVersion();   // "3b", or null when the signature carries none
+ *   f.getPuid();      // "fmt/480", or null when not registered / not known
+ *
+ * Notes:
+ * - Immutable value object; equal results share a code in CompactObjectTable.
+ * - isSignatureMatch() is false for the extension-based fallback of files no signature matched.
+ */
+public final class FormatIdentification {
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    private final String name;
+    private final String version;
+    private final String puid;
+    private final String mimeType;
+    private final boolean signatureMatch;
+
+    public FormatIdentification(String name, String version, String puid, String mimeType, boolean signatureMatch) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.version = version;
+        this.puid = puid;
+        this.mimeType = mimeType == null ? OCTET_STREAM : mimeType;
+        this.signatureMatch = signatureMatch;
+    }
+
+    /** Result of a matched signature. */
+    static FormatIdentification matched(String name, String version, String puid, String mimeType) {
+        return new FormatIdentification(name, version, puid, mimeType, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /** PRONOM unique identifier (fmt/..., x-fmt/...). */
+    public String getPuid() {
+        return puid;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    public boolean isSignatureMatch() {
+        return signatureMatch;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FormatIdentification)) return false;
+        FormatIdentification f = (FormatIdentification) o;
+        return signatureMatch == f.signatureMatch && name.equals(f.name) && Objects.equals(version, f.version)
+                && Objects.equals(puid, f.puid) && mimeType.equals(f.mimeType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, version, puid, mimeType, signatureMatch);
+    }
+
+    @Override
+    public String toString() {
+        return name + (version == null ? "" : " " + version) + (puid == null ? "" : " (" + puid + ")")
+                + " " + mimeType + (signatureMatch ? "" : " [by extension]");
+    }
+}
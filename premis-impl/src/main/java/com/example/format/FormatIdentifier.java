@@ -0,0 +1,476 @@
+package com.example.format;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * FormatIdentifier
+ *
+ * Signature-based file format identification for the PREMIS format block. Replaces the
+ * generators' extension guess (detectFormatName: ".pdf" under rep2 = PDF/A-1B) and
+ * Files.probeContentType, which is slow and answers differently per platform.
+ *
+ * Only the first and last scanBytes of a file are read. The leading bytes are looked up in a
+ * signature table compiled by first byte; the matching signature then refines name, version and
+ * PRONOM key from the sampled bytes:
+ *   PDF      %PDF-n.n header; PDF/A-<part><conformance> from the XMP pdfaid entries
+ *   XML/XSD  XML declaration (with or without BOM); XSD when the root is xs:schema
+ *   TIFF     II*\0 / MM\0* (BigTIFF II+\0 / MM\0+)
+ *   JPEG     FF D8 FF; JFIF version from the APP0 segment
+ *   ZIP      PK\3\4, PK\5\6 (empty archive), PK\7\8 (spanned)
+ * Content no signature matches is named after its extension (isSignatureMatch() false).
+ *
+ * Usage:
+ *   FormatIdentification f = FormatIdentifier.getDefault().identify(path, sha256Hex);
+ *   FormatIdentification g = FormatIdentifier.getDefault().identify(path);   // not cached
+ *
+ * Configuration for getDefault() (system properties):
+ *   premis.format.scanBytes  bytes read from the start and from the end of a file (default 16384)
+ *   premis.format.cacheSize  identifications kept by content digest (default 10000, 0 disables)
+ *
+ * Notes:
+ * - Results are cached by digest: a file whose content was already seen (a duplicate, or the same
+ *   file in the next run with the fixity cache) is not opened again.
+ * - The last XMP packet wins, as in an incrementally updated PDF; XMP placed outside the sampled
+ *   head and tail (rare: PDF/A writers put the metadata stream first or last) reports plain PDF.
+ * - Safe to share across threads; sample buffers are per thread.
+ */
+public final class FormatIdentifier {
+    private static final Logger LOG = Logger.getLogger(FormatIdentifier.class.getName());
+
+    public static final String SCAN_BYTES_PROPERTY = "premis.format.scanBytes";
+    public static final String CACHE_SIZE_PROPERTY = "premis.format.cacheSize";
+    public static final int DEFAULT_SCAN_BYTES = 16 * 1024;
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+    /** PDF readers accept the header anywhere in the first 1024 bytes. */
+    private static final int PDF_HEADER_WINDOW = 1024;
+
+    private static final byte[] PDF_MAGIC = ascii("%PDF-");
+    private static final byte[] PDFAID_PART = ascii("pdfaid:part");
+    private static final byte[] PDFAID_CONFORMANCE = ascii("pdfaid:conformance");
+    private static final byte[] JFIF = ascii("JFIF\0");
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+    private static final FormatIdentification TIFF = FormatIdentification.matched("TIFF", null, "fmt/353", "image/tiff");
+    private static final FormatIdentification BIGTIFF = FormatIdentification.matched("BigTIFF", null, null, "image/tiff");
+    private static final FormatIdentification ZIP = FormatIdentification.matched("ZIP", null, "x-fmt/263", "application/zip");
+
+    /** PRONOM keys by version. */
+    private static final Map<String, String> PDF_PUIDS = puids(
+            "1.0", "fmt/14", "1.1", "fmt/15", "1.2", "fmt/16", "1.3", "fmt/17", "1.4", "fmt/18",
+            "1.5", "fmt/19", "1.6", "fmt/20", "1.7", "fmt/276", "2.0", "fmt/1129");
+    private static final Map<String, String> PDFA_PUIDS = puids(
+            "1a", "fmt/95", "1b", "fmt/354", "2a", "fmt/476", "2b", "fmt/477", "2u", "fmt/478",
+            "3a", "fmt/479", "3b", "fmt/480", "3u", "fmt/481");
+    private static final Map<String, String> JFIF_PUIDS = puids("1.00", "fmt/42", "1.01", "fmt/43", "1.02", "fmt/44");
+    private static final Map<String, String> XML_PUIDS = puids("1.0", "fmt/101");
+    private static final String XSD_PUID = "x-fmt/280";
+
+    /** Cache entry for content no signature matched (the extension is applied per file). */
+    private static final FormatIdentification NO_MATCH = new FormatIdentification("-", null, null, null, false);
+
+    /** Identifies sampled content whose magic bytes matched at offset at; null to try the next one. */
+    private interface Signature {
+        FormatIdentification match(Sample s, int at);
+    }
+
+    private static final class Magic {
+        final byte[] bytes;
+        final Signature signature;
+
+        Magic(byte[] bytes, Signature signature) {
+            this.bytes = bytes;
+            this.signature = signature;
+        }
+    }
+
+    /** Signatures by first magic byte, longest magic first within a bucket. */
+    private static final Magic[][] BY_FIRST_BYTE = compile(Arrays.asList(
+            new Magic(PDF_MAGIC, FormatIdentifier::pdf),
+            new Magic(new byte[] {'I', 'I', 42, 0}, (s, at) -> TIFF),
+            new Magic(new byte[] {'M', 'M', 0, 42}, (s, at) -> TIFF),
+            new Magic(new byte[] {'I', 'I', 43, 0}, (s, at) -> BIGTIFF),
+            new Magic(new byte[] {'M', 'M', 0, 43}, (s, at) -> BIGTIFF),
+            new Magic(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}, FormatIdentifier::jpeg),
+            new Magic(new byte[] {'P', 'K', 3, 4}, (s, at) -> ZIP),
+            new Magic(new byte[] {'P', 'K', 5, 6}, (s, at) -> ZIP),
+            new Magic(new byte[] {'P', 'K', 7, 8}, (s, at) -> ZIP),
+            new Magic(UTF8_BOM, FormatIdentifier::xml),
+            new Magic(UTF16BE_BOM, FormatIdentifier::xml),
+            new Magic(UTF16LE_BOM, FormatIdentifier::xml),
+            new Magic(new byte[] {'<'}, FormatIdentifier::xml)));
+
+    /** The sampled bytes of one file; tailLen is 0 when the whole file fit into head. */
+    private static final class Sample {
+        final byte[] head;
+        final byte[] tail;
+        int headLen;
+        int tailLen;
+
+        Sample(int scanBytes) {
+            head = new byte[scanBytes];
+            tail = new byte[scanBytes];
+        }
+    }
+
+    private static final FormatIdentifier DEFAULT = new FormatIdentifier(
+            Integer.getInteger(SCAN_BYTES_PROPERTY, DEFAULT_SCAN_BYTES),
+            Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+    private final int scanBytes;
+    private final int cacheSize;
+    private final ThreadLocal<Sample> samples;
+    private final Map<String, FormatIdentification> byDigest;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FormatIdentifier(int scanBytes, int cacheSize) {
+        if (scanBytes < PDF_HEADER_WINDOW) throw new IllegalArgumentException("scanBytes must be at least " + PDF_HEADER_WINDOW);
+        this.scanBytes = scanBytes;
+        this.cacheSize = Math.max(0, cacheSize);
+        this.samples = ThreadLocal.withInitial(() -> new Sample(scanBytes));
+        final int cap = this.cacheSize;
+        this.byDigest = new LinkedHashMap<String, FormatIdentification>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FormatIdentification> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+
+    public static FormatIdentifier getDefault() {
+        return DEFAULT;
+    }
+
+    public int getScanBytes() {
+        return scanBytes;
+    }
+
+    /** Identifies the file from its sampled bytes, without the digest cache. */
+    public FormatIdentification identify(Path file) throws IOException {
+        return identify(file, null);
+    }
+
+    /**
+     * Identifies the file; digestHex (any digest of its content, null for none) keys the cache, so
+     * content seen before is identified without opening the file.
+     */
+    public FormatIdentification identify(Path file, String digestHex) throws IOException {
+        boolean cached = digestHex != null && cacheSize > 0;
+        FormatIdentification r = null;
+        if (cached) {
+            synchronized (byDigest) {
+                r = byDigest.get(digestHex);
+            }
+        }
+        if (r != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            r = match(read(file));
+            if (r == null) r = NO_MATCH;
+            if (cached) {
+                synchronized (byDigest) {
+                    byDigest.put(digestHex, r);
+                }
+            }
+        }
+        if (r != NO_MATCH) return r;
+        FormatIdentification ext = byExtension(file);
+        LOG.fine(() -> "no format signature matched " + file + "; named after its extension: " + ext.getName());
+        return ext;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private Sample read(Path file) throws IOException {
+        Sample s = samples.get();
+        s.headLen = 0;
+        s.tailLen = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            s.headLen = fill(ch, ByteBuffer.wrap(s.head), 0);
+            if (size > s.head.length && s.headLen == s.head.length) {
+                long from = Math.max(s.head.length, size - s.tail.length);
+                s.tailLen = fill(ch, ByteBuffer.wrap(s.tail, 0, (int) (size - from)), from);
+            }
+        }
+        return s;
+    }
+
+    private static int fill(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, position + buf.position()) < 0) break;
+        }
+        return buf.position();
+    }
+
+    private static FormatIdentification match(Sample s) {
+        if (s.headLen == 0) return null;
+        Magic[] bucket = BY_FIRST_BYTE[s.head[0] & 0xff];
+        if (bucket != null) {
+            for (Magic m : bucket) {
+                if (!startsWith(s.head, s.headLen, 0, m.bytes)) continue;
+                FormatIdentification r = m.signature.match(s, 0);
+                if (r != null) return r;
+            }
+        }
+        // whitespace before an XML root element, junk before a PDF header
+        int i = 0;
+        while (i < s.headLen && isXmlSpace(s.head[i])) i++;
+        if (i > 0 && i < s.headLen && s.head[i] == '<') {
+            FormatIdentification r = xml(s, i);
+            if (r != null) return r;
+        }
+        int pdf = indexOf(s.head, Math.min(s.headLen, PDF_HEADER_WINDOW), PDF_MAGIC, 1);
+        return pdf > 0 ? pdf(s, pdf) : null;
+    }
+
+    // ---- signatures ----
+
+    private static FormatIdentification pdf(Sample s, int at) {
+        int v = at + PDF_MAGIC.length;
+        int end = v;
+        while (end < s.headLen && end - v < 4 && (Character.isDigit(s.head[end]) || s.head[end] == '.')) end++;
+        String version = end > v ? new String(s.head, v, end - v, StandardCharsets.US_ASCII) : null;
+
+        // the last XMP packet wins: look in the tail first
+        byte[] buf = s.tail;
+        int len = s.tailLen;
+        int part = lastElementOrAttribute(buf, len, PDFAID_PART);
+        if (part < 0) {
+            buf = s.head;
+            len = s.headLen;
+            part = lastElementOrAttribute(buf, len, PDFAID_PART);
+        }
+        if (part >= 0) {
+            String p = xmpValue(buf, len, part + PDFAID_PART.length);
+            int c = lastElementOrAttribute(buf, len, PDFAID_CONFORMANCE);
+            String conformance = c < 0 ? "" : xmpValue(buf, len, c + PDFAID_CONFORMANCE.length);
+            if (p != null && p.length() == 1 && p.charAt(0) >= '1' && p.charAt(0) <= '4'
+                    && conformance != null && conformance.length() <= 1 && (conformance.isEmpty() || Character.isLetter(conformance.charAt(0)))) {
+                String level = p + conformance.toLowerCase(Locale.ROOT);
+                return FormatIdentification.matched("PDF/A-" + p + conformance.toUpperCase(Locale.ROOT), level,
+                        PDFA_PUIDS.get(level), "application/pdf");
+            }
+        }
+        return FormatIdentification.matched("PDF", version, version == null ? null : PDF_PUIDS.get(version), "application/pdf");
+    }
+
+    private static FormatIdentification jpeg(Sample s, int at) {
+        byte[] h = s.head;
+        if (s.headLen >= 13 && h[3] == (byte) 0xE0 && startsWith(h, s.headLen, 6, JFIF)) {
+            String version = String.format(Locale.ROOT, "%d.%02d", h[11] & 0xff, h[12] & 0xff);
+            return FormatIdentification.matched("JPEG", version, JFIF_PUIDS.get(version), "image/jpeg");
+        }
+        return FormatIdentification.matched("JPEG", null, null, "image/jpeg");
+    }
+
+    private static FormatIdentification xml(Sample s, int at) {
+        Charset cs = StandardCharsets.ISO_8859_1;       // byte-preserving for the ASCII markup we look at
+        int off = at;
+        if (startsWith(s.head, s.headLen, at, UTF8_BOM)) {
+            off += 3;
+        } else if (startsWith(s.head, s.headLen, at, UTF16BE_BOM)) {
+            cs = StandardCharsets.UTF_16BE;
+            off += 2;
+        } else if (startsWith(s.head, s.headLen, at, UTF16LE_BOM)) {
+            cs = StandardCharsets.UTF_16LE;
+            off += 2;
+        }
+        String text = new String(s.head, off, s.headLen - off, cs);
+
+        int i = 0;
+        String version = null;
+        if (text.startsWith("<?xml", 0) && text.length() > 5 && isXmlSpace(text.charAt(5))) {
+            int end = text.indexOf("?>");
+            version = attribute(end < 0 ? text : text.substring(0, end), "version");
+            if (version == null) version = "1.0";
+            i = end < 0 ? -1 : end + 2;
+        }
+        // prolog: comments, processing instructions, doctype
+        while (i >= 0) {
+            i = skipSpace(text, i);
+            if (text.startsWith("<?", i)) {
+                i = after(text, "?>", i);
+            } else if (text.startsWith("<!--", i)) {
+                i = after(text, "-->", i);
+            } else if (text.startsWith("<!DOCTYPE", i)) {
+                int subset = text.indexOf('[', i);
+                int gt = text.indexOf('>', i);
+                i = subset >= 0 && subset < gt ? after(text, "]", subset) : gt;
+                if (i >= 0) i = after(text, ">", i);
+            } else {
+                break;
+            }
+        }
+        FormatIdentification plain = version == null ? null
+                : FormatIdentification.matched("XML", version, XML_PUIDS.get(version), "application/xml");
+        if (i < 0 || i + 1 >= text.length() || text.charAt(i) != '<' || !isNameStart(text.charAt(i + 1))) return plain;
+
+        int nameEnd = i + 1;
+        while (nameEnd < text.length() && !isXmlSpace(text.charAt(nameEnd)) && text.charAt(nameEnd) != '>' && text.charAt(nameEnd) != '/') {
+            nameEnd++;
+        }
+        String qName = text.substring(i + 1, nameEnd);
+        int colon = qName.indexOf(':');
+        String prefix = colon < 0 ? "" : qName.substring(0, colon);
+        String local = qName.substring(colon + 1);
+        int tagEnd = text.indexOf('>', nameEnd);
+        String attributes = text.substring(nameEnd, tagEnd < 0 ? text.length() : tagEnd);
+        String ns = attribute(attributes, prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix);
+
+        if (XSD_NS.equals(ns) && "schema".equals(local)) {
+            return FormatIdentification.matched("XSD", null, XSD_PUID, "application/xml");
+        }
+        if (version == null && ns == null && "html".equalsIgnoreCase(local)) return null;
+        if (version == null) version = "1.0";
+        return FormatIdentification.matched("XML", version, XML_PUIDS.get(version), "application/xml");
+    }
+
+    /** Extension-based name for content no signature matched (the former detectFormatName rule). */
+    static FormatIdentification byExtension(Path file) {
+        Path fileName = file.getFileName();
+        String fn = fileName == null ? "" : fileName.toString();
+        int dot = fn.lastIndexOf('.');
+        String ext = dot < 0 || dot == fn.length() - 1 ? "UNKNOWN" : fn.substring(dot + 1).toUpperCase(Locale.ROOT);
+        return new FormatIdentification(ext, null, null, FormatIdentification.OCTET_STREAM, false);
+    }
+
+    // ---- byte and text helpers ----
+
+    /** Last occurrence of name as an attribute or start tag (skips closing tags). */
+    private static int lastElementOrAttribute(byte[] b, int len, byte[] name) {
+        int i = lastIndexOf(b, len, name, len - name.length);
+        while (i > 0 && b[i - 1] == '/') i = lastIndexOf(b, len, name, i - 1);
+        return i;
+    }
+
+    /** Value after an XMP name: ="v" / ='v' (attribute) or >v< (element). */
+    private static String xmpValue(byte[] b, int len, int i) {
+        while (i < len && isXmlSpace(b[i])) i++;
+        if (i >= len) return null;
+        byte close;
+        if (b[i] == '>') {
+            close = '<';
+        } else if (b[i] == '=') {
+            i++;
+            while (i < len && isXmlSpace(b[i])) i++;
+            if (i >= len || (b[i] != '"' && b[i] != '\'')) return null;
+            close = b[i];
+        } else {
+            return null;
+        }
+        int start = ++i;
+        while (i < len && b[i] != close && i - start < 16) i++;
+        if (i >= len || b[i] != close) return null;
+        return new String(b, start, i - start, StandardCharsets.US_ASCII).trim();
+    }
+
+    /** Value of name="..." or name='...' within an XML start tag or declaration. */
+    private static String attribute(String tag, String name) {
+        int from = 0;
+        while (true) {
+            int i = tag.indexOf(name, from);
+            if (i < 0) return null;
+            from = i + name.length();
+            if (i > 0 && !isXmlSpace(tag.charAt(i - 1))) continue;
+            int j = skipSpace(tag, from);
+            if (j >= tag.length() || tag.charAt(j) != '=') continue;
+            j = skipSpace(tag, j + 1);
+            if (j >= tag.length() || (tag.charAt(j) != '"' && tag.charAt(j) != '\'')) continue;
+            int end = tag.indexOf(tag.charAt(j), j + 1);
+            return end < 0 ? null : tag.substring(j + 1, end);
+        }
+    }
+
+    private static int after(String text, String token, int from) {
+        int i = text.indexOf(token, from);
+        return i < 0 ? -1 : i + token.length();
+    }
+
+    private static int skipSpace(String text, int i) {
+        while (i < text.length() && isXmlSpace(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isXmlSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == ':';
+    }
+
+    private static boolean startsWith(byte[] b, int len, int off, byte[] prefix) {
+        if (off + prefix.length > len) return false;
+        for (int k = 0; k < prefix.length; k++) {
+            if (b[off + k] != prefix[k]) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int len, byte[] p, int from) {
+        for (int i = from; i <= len - p.length; i++) {
+            if (b[i] == p[0] && startsWith(b, len, i, p)) return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] b, int len, byte[] p, int from) {
+        for (int i = Math.min(from, len - p.length); i >= 0; i--) {
+            if (b[i] == p[0] && startsWith(b, len, i, p)) return i;
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, String> puids(String... versionAndPuid) {
+        Map<String, String> m = new HashMap<>();
+        for (int i = 0; i < versionAndPuid.length; i += 2) m.put(versionAndPuid[i], versionAndPuid[i + 1]);
+        return Collections.unmodifiableMap(m);
+    }
+
+    private static Magic[][] compile(List<Magic> magics) {
+        Magic[][] table = new Magic[256][];
+        for (Magic m : magics) {
+            int b = m.bytes[0] & 0xff;
+            Magic[] bucket = table[b] == null ? new Magic[1] : Arrays.copyOf(table[b], table[b].length + 1);
+            bucket[bucket.length - 1] = m;
+            Arrays.sort(bucket, (x, y) -> y.bytes.length - x.bytes.length);
+            table[b] = bucket;
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        int cached;
+        synchronized (byDigest) {
+            cached = byDigest.size();
+        }
+        return "FormatIdentifier[scanBytes=" + scanBytes + ", cached=" + cached + "/" + cacheSize
+                + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+}
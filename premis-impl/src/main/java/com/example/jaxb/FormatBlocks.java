@@ -0,0 +1,45 @@
+package com.example.jaxb;
+
+import com.example.format.FormatIdentification;
+import gov.loc.premis.v3.FormatComplexType;
+import gov.loc.premis.v3.FormatDesignationComplexType;
+import gov.loc.premis.v3.FormatRegistryComplexType;
+import gov.loc.premis.v3.ObjectFactory;
+
+/**
+ * FormatBlocks
+ *
+ * Builds the PREMIS format block for a FormatIdentification, so every generator describes the same
+ * file the same way: formatDesignation (formatName, formatVersion) and, when FormatIdentifier knows
+ * a PRONOM key, a formatRegistry (PRONOM, the PUID, role "specification").
+ *
+ * Usage:
+ *   FormatIdentification id = FormatIdentifier.getDefault().identify(path, sha256Hex);
+ *   oc.getFormat().add(FormatBlocks.create(factory, id));
+ *
+ * Notes:
+ * - Names, registry and role are canonical StringPlusAuthorityCache instances (read-only).
+ * - formatVersion is left out when the signature carries no version.
+ */
+public final class FormatBlocks {
+
+    private FormatBlocks() {
+    }
+
+    public static FormatComplexType create(ObjectFactory factory, FormatIdentification format) {
+        StringPlusAuthorityCache spa = StringPlusAuthorityCache.getInstance();
+        FormatComplexType fmt = factory.createFormatComplexType();
+        FormatDesignationComplexType fd = factory.createFormatDesignationComplexType();
+        fd.setFormatName(spa.get(format.getName(), null));
+        fd.setFormatVersion(format.getVersion());
+        fmt.getContent().add(factory.createFormatDesignation(fd));
+        if (format.getPuid() != null) {
+            FormatRegistryComplexType reg = factory.createFormatRegistryComplexType();
+            reg.setFormatRegistryName(spa.get("PRONOM", null));
+            reg.setFormatRegistryKey(spa.get(format.getPuid(), null));
+            reg.setFormatRegistryRole(spa.get("specification", null));
+            fmt.getContent().add(factory.createFormatRegistry(reg));
+        }
+        return fmt;
+    }
+}
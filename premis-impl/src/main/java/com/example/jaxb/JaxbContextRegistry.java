@@ -0,0 +1,163 @@
+package com.example.jaxb;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * JaxbContextRegistry
+ *
+ * Process-wide, lazily initialized JAXBContext per context path, shared by all PREMIS generators.
+ * JAXBContext is thread-safe and expensive to build; Marshaller and Unmarshaller are cheap but not
+ * thread-safe, so each registry entry keeps one of each per thread.
+ *
+ * Usage:
+ *   JaxbContextRegistry jaxb = JaxbContextRegistry.premis();
+ *   jaxb.marshaller().marshal(premisElement, os);
+ *
+ * Notes:
+ * - marshaller() is preconfigured with formatted output and the PREMIS v3 schemaLocation.
+ * - prefixedMarshaller() additionally maps the PREMIS namespace to "premis" and XSI to "xsi".
+ *   It is a separate pool because the RI does not allow a prefix mapper to be removed again.
+ * - fragmentMarshaller() uses the same prefixes without formatting or XML declaration, for
+ *   marshalling single elements into a document written elsewhere (PremisStreamWriter). On a StAX
+ *   writer the writer's own bindings take precedence, so fragments follow their document's layout.
+ * - Pooled instances are reused on the same thread: callers that change other properties
+ *   (setSchema, event handlers) must restore them before returning.
+ */
+public final class JaxbContextRegistry {
+    private static final Logger LOG = Logger.getLogger(JaxbContextRegistry.class.getName());
+
+    public static final String PREMIS_PACKAGE = "gov.loc.premis.v3";
+    public static final String PREMIS_NS = "http://www.loc.gov/premis/v3";
+    public static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    public static final String PREMIS_SCHEMA_LOCATION = PREMIS_NS + " http://www.loc.gov/standards/premis/premis-3-0.xsd";
+
+    private static final ConcurrentHashMap<String, JaxbContextRegistry> REGISTRY = new ConcurrentHashMap<>();
+    private static final AtomicInteger CONTEXTS_CREATED = new AtomicInteger();
+
+    private final String contextPath;
+    private volatile JAXBContext context;
+
+    private final ThreadLocal<Marshaller> marshallers = new ThreadLocal<>();
+    private final ThreadLocal<Marshaller> prefixedMarshallers = new ThreadLocal<>();
+    private final ThreadLocal<Marshaller> fragmentMarshallers = new ThreadLocal<>();
+    private final ThreadLocal<Unmarshaller> unmarshallers = new ThreadLocal<>();
+
+    private JaxbContextRegistry(String contextPath) {
+        this.contextPath = contextPath;
+    }
+
+    /** Registry entry for the generated gov.loc.premis.v3 package. */
+    public static JaxbContextRegistry premis() {
+        return forContextPath(PREMIS_PACKAGE);
+    }
+
+    public static JaxbContextRegistry forContextPath(String contextPath) {
+        return REGISTRY.computeIfAbsent(contextPath, JaxbContextRegistry::new);
+    }
+
+    /** Number of JAXBContext instances built by this JVM (one per context path once warm). */
+    public static int contextsCreated() {
+        return CONTEXTS_CREATED.get();
+    }
+
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    /** The shared context, created on first use. */
+    public JAXBContext context() throws JAXBException {
+        JAXBContext c = context;
+        if (c == null) {
+            synchronized (this) {
+                c = context;
+                if (c == null) {
+                    long t0 = System.nanoTime();
+                    c = JAXBContext.newInstance(contextPath);
+                    CONTEXTS_CREATED.incrementAndGet();
+                    context = c;
+                    LOG.info("Initialized JAXBContext for " + contextPath + " in "
+                            + (System.nanoTime() - t0) / 1_000_000 + " ms");
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Thread-local marshaller with formatted output and the PREMIS schemaLocation. */
+    public Marshaller marshaller() throws JAXBException {
+        Marshaller m = marshallers.get();
+        if (m == null) {
+            m = newMarshaller();
+            marshallers.set(m);
+        }
+        return m;
+    }
+
+    /** Thread-local marshaller like {@link #marshaller()} that also forces the premis/xsi prefixes. */
+    public Marshaller prefixedMarshaller() throws JAXBException {
+        Marshaller m = prefixedMarshallers.get();
+        if (m == null) {
+            m = newMarshaller();
+            setPrefixMapper(m);
+            prefixedMarshallers.set(m);
+        }
+        return m;
+    }
+
+    /** Thread-local prefixed marshaller for element fragments (JAXB_FRAGMENT, no formatting). */
+    public Marshaller fragmentMarshaller() throws JAXBException {
+        Marshaller m = fragmentMarshallers.get();
+        if (m == null) {
+            m = context().createMarshaller();
+            m.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            setPrefixMapper(m);
+            fragmentMarshallers.set(m);
+        }
+        return m;
+    }
+
+    /** Thread-local unmarshaller. */
+    public Unmarshaller unmarshaller() throws JAXBException {
+        Unmarshaller u = unmarshallers.get();
+        if (u == null) {
+            u = context().createUnmarshaller();
+            unmarshallers.set(u);
+        }
+        return u;
+    }
+
+    private Marshaller newMarshaller() throws JAXBException {
+        Marshaller m = context().createMarshaller();
+        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        try {
+            m.setProperty(Marshaller.JAXB_SCHEMA_LOCATION, PREMIS_SCHEMA_LOCATION);
+        } catch (Exception e) {
+            LOG.fine("Could not set schemaLocation property: " + e.getMessage());
+        }
+        return m;
+    }
+
+    private static void setPrefixMapper(Marshaller m) {
+        try {
+            m.setProperty("com.sun.xml.bind.namespacePrefixMapper", new PremisPrefixMapper());
+        } catch (Throwable t) {
+            LOG.fine("NamespacePrefixMapper not supported by this JAXB runtime: " + t.getMessage());
+        }
+    }
+
+    /** Prefix mapper for the JAXB RI: "premis" for PREMIS v3, "xsi" for XML Schema instance. */
+    static final class PremisPrefixMapper extends com.sun.xml.bind.marshaller.NamespacePrefixMapper {
+        @Override
+        public String getPreferredPrefix(String namespaceUri, String suggestion, boolean requirePrefix) {
+            if (PREMIS_NS.equals(namespaceUri)) return "premis";
+            if (XSI_NS.equals(namespaceUri)) return "xsi";
+            return suggestion;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.jaxb;
+
+import gov.loc.premis.v3.File;
+import gov.loc.premis.v3.ObjectComplexType;
+import gov.loc.premis.v3.ObjectFactory;
+
+import javax.xml.bind.JAXBElement;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * ObjectFactoryIndex
+ *
+ * Type-to-creator registry for the generated gov.loc.premis.v3.ObjectFactory.
+ *
+ * The generators used to loop over every zero-arg create* method on the factory and invoke each
+ * one until the result matched the requested class. This index inspects the factory once per JVM,
+ * keeps one MethodHandle per produced type and resolves a request with a single map lookup.
+ *
+ * Usage:
+ *   FixityComplexType fix = ObjectFactoryIndex.getInstance().create(FixityComplexType.class);
+ *
+ * Notes:
+ * - Only zero-arg create* methods are indexed; the JAXBElement wrappers all need a value.
+ * - Abstract types (ObjectComplexType) resolve to a concrete subtype. File is preferred because the
+ *   generators build file objects through the abstract type.
+ * - Lookups for types the factory cannot produce are cached too and return null.
+ */
+public final class ObjectFactoryIndex {
+    private static final Logger LOG = Logger.getLogger(ObjectFactoryIndex.class.getName());
+
+    private static final MethodHandle MISSING = MethodHandles.constant(Object.class, null);
+
+    /** Preferred concrete type when several factory methods produce a subtype of the requested class. */
+    private static final Map<Class<?>, Class<?>> PREFERRED_SUBTYPE;
+    static {
+        Map<Class<?>, Class<?>> m = new HashMap<>();
+        m.put(ObjectComplexType.class, File.class);
+        PREFERRED_SUBTYPE = Collections.unmodifiableMap(m);
+    }
+
+    private static final class Holder {
+        static final ObjectFactoryIndex INSTANCE = new ObjectFactoryIndex(new ObjectFactory());
+    }
+
+    /** Exact return type -> creator (bound to the shared factory, type ()Object). */
+    private final Map<Class<?>, MethodHandle> exact;
+    /** Requested type -> resolved creator, including assignable and negative results. */
+    private final ConcurrentHashMap<Class<?>, MethodHandle> resolved = new ConcurrentHashMap<>();
+
+    public static ObjectFactoryIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    ObjectFactoryIndex(Object factory) {
+        Map<Class<?>, MethodHandle> map = new HashMap<>();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Method[] methods = factory.getClass().getMethods();
+        // sort for a deterministic choice when two methods produce the same type
+        Arrays.sort(methods, Comparator.comparing(Method::getName));
+        for (Method m : methods) {
+            if (!m.getName().startsWith("create")) continue;
+            if (m.getParameterCount() != 0) continue;
+            if (Modifier.isStatic(m.getModifiers())) continue;
+            Class<?> rt = m.getReturnType();
+            if (rt == void.class || JAXBElement.class.isAssignableFrom(rt)) continue;
+            if (map.containsKey(rt)) continue;
+            try {
+                MethodHandle mh = lookup.unreflect(m).bindTo(factory)
+                        .asType(MethodType.methodType(Object.class));
+                map.put(rt, mh);
+            } catch (IllegalAccessException e) {
+                LOG.fine("cannot index factory method " + m.getName() + ": " + e.getMessage());
+            }
+        }
+        this.exact = Collections.unmodifiableMap(map);
+        LOG.fine("Indexed " + exact.size() + " ObjectFactory creators");
+    }
+
+    /**
+     * Create an instance of the requested type through the factory, or null when no zero-arg
+     * factory method produces it (callers keep their own fallbacks for that case).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T create(Class<T> type) {
+        MethodHandle mh = resolve(type);
+        if (mh == MISSING) return null;
+        try {
+            return (T) mh.invokeExact();
+        } catch (Throwable t) {
+            LOG.fine("factory creator for " + type.getName() + " failed: " + t.getMessage());
+            return null;
+        }
+    }
+
+    /** True when {@link #create(Class)} can produce the type without any fallback. */
+    public boolean supports(Class<?> type) {
+        return resolve(type) != MISSING;
+    }
+
+    /** Number of indexed factory creators. */
+    public int size() {
+        return exact.size();
+    }
+
+    private MethodHandle resolve(Class<?> type) {
+        MethodHandle mh = resolved.get(type);
+        if (mh != null) return mh;
+        return resolved.computeIfAbsent(type, this::lookupAssignable);
+    }
+
+    private MethodHandle lookupAssignable(Class<?> type) {
+        MethodHandle mh = exact.get(type);
+        if (mh != null) return mh;
+
+        Class<?> preferred = PREFERRED_SUBTYPE.get(type);
+        if (preferred != null && exact.containsKey(preferred)) return exact.get(preferred);
+
+        // otherwise the assignable creator with the lowest type name, so the choice is stable
+        Class<?> best = null;
+        for (Class<?> c : exact.keySet()) {
+            if (!type.isAssignableFrom(c)) continue;
+            if (best == null || c.getName().compareTo(best.getName()) < 0) best = c;
+        }
+        return best != null ? exact.get(best) : MISSING;
+    }
+}
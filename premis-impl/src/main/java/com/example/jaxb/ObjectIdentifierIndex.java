@@ -0,0 +1,113 @@
+package com.example.jaxb;
+
+import gov.loc.premis.v3.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * ObjectIdentifierIndex
+ *
+ * objectIdentifierValue -> object lookup over the object list of a PREMIS root, so updating an
+ * existing N-object document costs one map lookup per file instead of a reflective scan over all
+ * objects and identifiers.
+ *
+ * Usage:
+ *   ObjectIdentifierIndex index = ObjectIdentifierIndex.of(premisRoot);   // built once on load
+ *   ObjectComplexType existing = index.get("data/rep1/doc.pdf");
+ *   premisRoot.getObject().add(obj);
+ *   index.put(obj);                                                       // kept current
+ *
+ * Notes:
+ * - The first object carrying a value wins, as with the linear scan it replaces.
+ * - Objects appended to the root list without put() are picked up on the next lookup; when the
+ *   list shrinks or is replaced the index is rebuilt.
+ * - Not thread-safe; it belongs to the generator that owns the root.
+ */
+public final class ObjectIdentifierIndex {
+    private static final Logger LOG = Logger.getLogger(ObjectIdentifierIndex.class.getName());
+
+    private final PremisComplexType root;
+    private final Map<String, ObjectComplexType> byValue = new HashMap<>();
+    private List<ObjectComplexType> indexedList;
+    private int indexedCount;
+
+    private ObjectIdentifierIndex(PremisComplexType root) {
+        this.root = root;
+        rebuild();
+    }
+
+    public static ObjectIdentifierIndex of(PremisComplexType root) {
+        if (root == null) throw new IllegalArgumentException("root must not be null");
+        return new ObjectIdentifierIndex(root);
+    }
+
+    /** The object whose identifiers include the value, or null. */
+    public ObjectComplexType get(String identifierValue) {
+        sync();
+        return byValue.get(identifierValue);
+    }
+
+    /** Index an object that was just added to the root. */
+    public void put(ObjectComplexType obj) {
+        sync();
+        if (obj == null) return;
+        List<ObjectComplexType> objects = root.getObject();
+        if (indexedCount < objects.size() && objects.get(indexedCount) == obj) {
+            indexedCount++; // consumes the entry the caller just appended
+        }
+        addIdentifiers(obj);
+    }
+
+    /** Number of distinct identifier values. */
+    public int size() {
+        sync();
+        return byValue.size();
+    }
+
+    /** Re-index every object of the root. */
+    public void rebuild() {
+        long t0 = System.nanoTime();
+        byValue.clear();
+        indexedList = root.getObject();
+        indexedCount = 0;
+        indexTail();
+        LOG.fine("Indexed " + byValue.size() + " identifiers of " + indexedCount + " objects in "
+                + (System.nanoTime() - t0) / 1_000 + " us");
+    }
+
+    private void sync() {
+        List<ObjectComplexType> objects = root.getObject();
+        if (objects != indexedList || objects.size() < indexedCount) {
+            rebuild();
+        } else if (objects.size() > indexedCount) {
+            indexTail();
+        }
+    }
+
+    private void indexTail() {
+        List<ObjectComplexType> objects = indexedList;
+        for (int i = indexedCount; i < objects.size(); i++) addIdentifiers(objects.get(i));
+        indexedCount = objects.size();
+    }
+
+    private void addIdentifiers(ObjectComplexType obj) {
+        if (obj == null) return;
+        for (ObjectIdentifierComplexType oid : identifiersOf(obj)) {
+            String v = oid.getObjectIdentifierValue();
+            if (v != null) byValue.putIfAbsent(v, obj);
+        }
+    }
+
+    /** ObjectComplexType is abstract and each generated subtype declares its own identifier list. */
+    public static List<ObjectIdentifierComplexType> identifiersOf(ObjectComplexType obj) {
+        if (obj instanceof File) return ((File) obj).getObjectIdentifier();
+        if (obj instanceof Representation) return ((Representation) obj).getObjectIdentifier();
+        if (obj instanceof Bitstream) return ((Bitstream) obj).getObjectIdentifier();
+        if (obj instanceof IntellectualEntity) return ((IntellectualEntity) obj).getObjectIdentifier();
+        return Collections.emptyList();
+    }
+}
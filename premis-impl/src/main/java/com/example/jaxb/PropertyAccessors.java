@@ -0,0 +1,309 @@
+package com.example.jaxb;
+
+import javax.xml.bind.JAXBElement;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * PropertyAccessors
+ *
+ * Cached, name-based property access for the generated JAXB classes, used by the generators'
+ * callSetterOrAdd / callGetter / callGetterAndAdd / findMethod helpers.
+ *
+ * Those helpers used to scan getClass().getMethods() (a fresh array copy) on every call, several
+ * dozen times per PREMIS object. Here each (class, property) pair is resolved once into a
+ * MethodHandle with a generic type, so a repeated call costs a map lookup and an invokeExact.
+ *
+ * Usage:
+ *   PropertyAccessors pa = PropertyAccessors.getInstance();
+ *   pa.setOrAdd(fixity, "MessageDigest", hex);      // setMessageDigest(..) or getMessageDigest().add(..)
+ *   pa.addToList(object, "ObjectIdentifier", id);   // getObjectIdentifier().add(id)
+ *   Object chars = pa.get(file, "ObjectCharacteristics");
+ *
+ * Notes:
+ * - Resolution rules are the ones the generators used: setters and getters match by name ignoring
+ *   case; get() and addToList() fall back to the first getter whose name contains the property.
+ *   Only zero-arg methods count as getters.
+ * - Lookups that find nothing are cached as well and cost the same as a hit.
+ * - Thread-safe; entries live as long as the class (ClassValue).
+ */
+public final class PropertyAccessors {
+    private static final Logger LOG = Logger.getLogger(PropertyAccessors.class.getName());
+
+    /** Negative-result sentinel for the getter maps. */
+    private static final MethodHandle MISSING = MethodHandles.constant(Object.class, null);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** Resolved one-argument setter; handle type (Object, Object)void. */
+    private static final class Setter {
+        final MethodHandle mh;
+        final Class<?> param;
+
+        Setter(MethodHandle mh, Class<?> param) {
+            this.mh = mh;
+            this.param = param;
+        }
+    }
+
+    private static final Setter NO_SETTER = new Setter(null, null);
+
+    /** Key of a findMethod(class, name, paramTypes) lookup within one class. */
+    private static final class MethodKey {
+        final String name;
+        final Class<?>[] params;
+        final int hash;
+
+        MethodKey(String name, Class<?>[] params) {
+            this.name = name;
+            this.params = params;
+            this.hash = 31 * name.hashCode() + Arrays.hashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MethodKey)) return false;
+            MethodKey k = (MethodKey) o;
+            return name.equals(k.name) && Arrays.equals(params, k.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** Everything resolved for one class. Keys are the property names as callers pass them. */
+    private static final class ClassAccessors {
+        final Class<?> type;
+        final ConcurrentHashMap<String, Setter> setters = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, MethodHandle> getters = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, MethodHandle> looseGetters = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, MethodHandle> listGetters = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<MethodKey, Method[]> methods = new ConcurrentHashMap<>();
+
+        ClassAccessors(Class<?> type) {
+            this.type = type;
+        }
+    }
+
+    private static final class Holder {
+        static final PropertyAccessors INSTANCE = new PropertyAccessors();
+    }
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private final ClassValue<ClassAccessors> byClass = new ClassValue<ClassAccessors>() {
+        @Override
+        protected ClassAccessors computeValue(Class<?> type) {
+            return new ClassAccessors(type);
+        }
+    };
+
+    public static PropertyAccessors getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private PropertyAccessors() {
+    }
+
+    /**
+     * Call set&lt;prop&gt;(value), adapting the argument to the parameter type, or, without a setter,
+     * add the value to the collection returned by get&lt;prop&gt;(). False when neither applies or the
+     * call failed.
+     */
+    public boolean setOrAdd(Object target, String prop, Object value) {
+        if (target == null) return false;
+        ClassAccessors ca = byClass.get(target.getClass());
+        try {
+            Setter s = setter(ca, prop);
+            if (s != NO_SETTER) {
+                Object arg = value == null || s.param.isInstance(value) ? value : adapt(value, s.param);
+                s.mh.invokeExact(target, arg);
+                return true;
+            }
+            MethodHandle g = getter(ca, prop);
+            if (g != MISSING) {
+                Object got = (Object) g.invokeExact(target);
+                if (got instanceof Collection) {
+                    addTo(got, value);
+                    return true;
+                }
+            }
+        } catch (Throwable t) {
+            rethrowIfError(t);
+            LOG.fine("callSetterOrAdd failed for " + prop + ": " + t.getMessage());
+        }
+        return false;
+    }
+
+    /** Add the value to the collection returned by get&lt;prop&gt;() (or the first getter containing prop). */
+    public boolean addToList(Object target, String prop, Object value) {
+        if (target == null) return false;
+        ClassAccessors ca = byClass.get(target.getClass());
+        try {
+            MethodHandle g = ca.listGetters.get(prop);
+            if (g == null) g = ca.listGetters.computeIfAbsent(prop, p -> resolveListGetter(ca, p));
+            if (g == MISSING) return false;
+            Object list = (Object) g.invokeExact(target);
+            if (list instanceof Collection) {
+                addTo(list, value);
+                return true;
+            }
+        } catch (Throwable t) {
+            rethrowIfError(t);
+            LOG.fine("callGetterAndAdd failed for " + prop + ": " + t.getMessage());
+        }
+        return false;
+    }
+
+    /** Value of get&lt;prop&gt;() (or the first getter containing prop), null when there is none. */
+    public Object get(Object target, String prop) {
+        if (target == null) return null;
+        ClassAccessors ca = byClass.get(target.getClass());
+        try {
+            MethodHandle g = ca.looseGetters.get(prop);
+            if (g == null) g = ca.looseGetters.computeIfAbsent(prop, p -> resolveLooseGetter(ca, p));
+            return g == MISSING ? null : (Object) g.invokeExact(target);
+        } catch (Throwable t) {
+            rethrowIfError(t);
+            LOG.fine("callGetter failed for " + prop + ": " + t.getMessage());
+            return null;
+        }
+    }
+
+    /** Cached Class.getMethod, falling back to an accessible getDeclaredMethod; null when absent. */
+    public Method findMethod(Class<?> type, String name, Class<?>... paramTypes) {
+        if (type == null || name == null) return null;
+        ClassAccessors ca = byClass.get(type);
+        Method[] found = ca.methods.computeIfAbsent(new MethodKey(name, paramTypes.clone()), k -> {
+            try {
+                return new Method[] { type.getMethod(k.name, k.params) };
+            } catch (NoSuchMethodException e) {
+                try {
+                    Method dm = type.getDeclaredMethod(k.name, k.params);
+                    dm.setAccessible(true);
+                    return new Method[] { dm };
+                } catch (NoSuchMethodException | RuntimeException ex) {
+                    return new Method[] { null };
+                }
+            }
+        });
+        return found[0];
+    }
+
+    /** Convert a value to a setter parameter type where the generators relied on it (BigInteger, String, JAXBElement). */
+    public static Object adapt(Object value, Class<?> param) {
+        if (value == null) return null;
+        if (param.isAssignableFrom(value.getClass())) return value;
+        if (param == BigInteger.class) {
+            if (value instanceof Number) return BigInteger.valueOf(((Number) value).longValue());
+            try { return new BigInteger(value.toString()); } catch (Exception ignored) {}
+        }
+        if (param == String.class) return value.toString();
+        if (value instanceof JAXBElement) {
+            Object v = ((JAXBElement<?>) value).getValue();
+            if (param.isAssignableFrom(v.getClass())) return v;
+        }
+        return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void addTo(Object collection, Object value) {
+        ((Collection) collection).add(value);
+    }
+
+    private static void rethrowIfError(Throwable t) {
+        if (t instanceof Error) throw (Error) t;
+    }
+
+    private Setter setter(ClassAccessors ca, String prop) {
+        Setter s = ca.setters.get(prop);
+        if (s != null) return s;
+        return ca.setters.computeIfAbsent(prop, p -> resolveSetter(ca.type, p));
+    }
+
+    private MethodHandle getter(ClassAccessors ca, String prop) {
+        MethodHandle g = ca.getters.get(prop);
+        if (g != null) return g;
+        return ca.getters.computeIfAbsent(prop, p -> resolveGetter(ca.type, p));
+    }
+
+    private Setter resolveSetter(Class<?> type, String prop) {
+        String name = "set" + prop;
+        for (Method m : type.getMethods()) {
+            if (m.getParameterCount() == 1 && m.getName().equalsIgnoreCase(name)) {
+                MethodHandle mh = unreflect(m, SETTER_TYPE);
+                return mh == null ? NO_SETTER : new Setter(mh, m.getParameterTypes()[0]);
+            }
+        }
+        return NO_SETTER;
+    }
+
+    /** get&lt;prop&gt; ignoring case: public methods first, then declared ones. */
+    private MethodHandle resolveGetter(Class<?> type, String prop) {
+        String name = "get" + prop;
+        for (Method m : type.getMethods()) {
+            if (m.getParameterCount() == 0 && m.getName().equalsIgnoreCase(name)) return unreflectOrMissing(m);
+        }
+        for (Method m : type.getDeclaredMethods()) {
+            if (m.getParameterCount() == 0 && m.getName().equalsIgnoreCase(name)) {
+                try {
+                    m.setAccessible(true);
+                } catch (RuntimeException e) {
+                    return MISSING;
+                }
+                return unreflectOrMissing(m);
+            }
+        }
+        return MISSING;
+    }
+
+    private MethodHandle resolveLooseGetter(ClassAccessors ca, String prop) {
+        MethodHandle g = getter(ca, prop);
+        if (g != MISSING) return g;
+        String needle = prop.toLowerCase(Locale.ROOT);
+        for (Method m : ca.type.getMethods()) {
+            String n = m.getName().toLowerCase(Locale.ROOT);
+            if (m.getParameterCount() == 0 && n.startsWith("get") && n.contains(needle)) return unreflectOrMissing(m);
+        }
+        return MISSING;
+    }
+
+    private MethodHandle resolveListGetter(ClassAccessors ca, String prop) {
+        MethodHandle g = getter(ca, prop);
+        if (g != MISSING) return g;
+        String needle = prop.toLowerCase(Locale.ROOT);
+        for (Method m : ca.type.getMethods()) {
+            String n = m.getName().toLowerCase(Locale.ROOT);
+            if (m.getParameterCount() == 0 && n.startsWith("get") && Collection.class.isAssignableFrom(m.getReturnType())
+                    && n.contains(needle)) {
+                return unreflectOrMissing(m);
+            }
+        }
+        return MISSING;
+    }
+
+    private MethodHandle unreflectOrMissing(Method m) {
+        MethodHandle mh = unreflect(m, GETTER_TYPE);
+        return mh == null ? MISSING : mh;
+    }
+
+    private MethodHandle unreflect(Method m, MethodType type) {
+        try {
+            return lookup.unreflect(m).asType(type);
+        } catch (IllegalAccessException | RuntimeException e) {
+            LOG.fine("cannot resolve accessor " + m + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
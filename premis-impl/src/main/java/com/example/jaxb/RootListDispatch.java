@@ -0,0 +1,172 @@
+package com.example.jaxb;
+
+import gov.loc.premis.v3.Bitstream;
+import gov.loc.premis.v3.File;
+import gov.loc.premis.v3.IntellectualEntity;
+import gov.loc.premis.v3.Representation;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * RootListDispatch
+ *
+ * Value-type-to-list dispatch for a JAXB root such as PremisComplexType: which of the root's
+ * List&lt;T&gt; getters a value of a given class belongs in.
+ *
+ * PremisCombinedGenerator.attachToRootByValueType used to walk every getter of the root and parse
+ * its generic return type on each attach. This class inspects the root class once, precomputes the
+ * target for every list element type and the ObjectComplexType subclasses (File, Representation,
+ * Bitstream, IntellectualEntity), and attaches with one map lookup and one list add.
+ *
+ * Usage:
+ *   RootListDispatch d = RootListDispatch.forRoot(PremisComplexType.class);
+ *   if (!d.attach(premisRoot, file)) { ... }   // added to premisRoot.getObject()
+ *
+ * Notes:
+ * - When several lists accept a value the one with the most specific element type wins; ties go
+ *   to the getter name that sorts first, so the choice is stable across JVMs.
+ * - Classes no list accepts are cached as well; attach() returns false for them.
+ * - Thread-safe; one instance per root class.
+ */
+public final class RootListDispatch {
+    private static final Logger LOG = Logger.getLogger(RootListDispatch.class.getName());
+
+    /** Value classes resolved up front in addition to the list element types. */
+    private static final Class<?>[] PRECOMPUTED = {
+        File.class, Representation.class, Bitstream.class, IntellectualEntity.class
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<RootListDispatch> BY_ROOT = new ClassValue<RootListDispatch>() {
+        @Override
+        protected RootListDispatch computeValue(Class<?> type) {
+            return new RootListDispatch(type);
+        }
+    };
+
+    /** A List-returning getter on the root and the declared element type. */
+    private static final class Target {
+        final String getter;
+        final Class<?> elementType;
+        final MethodHandle mh;
+
+        Target(String getter, Class<?> elementType, MethodHandle mh) {
+            this.getter = getter;
+            this.elementType = elementType;
+            this.mh = mh;
+        }
+    }
+
+    private static final Target NONE = new Target(null, null, null);
+
+    private final Class<?> rootType;
+    private final List<Target> targets;
+    private final ConcurrentHashMap<Class<?>, Target> byValueType = new ConcurrentHashMap<>();
+
+    public static RootListDispatch forRoot(Class<?> rootType) {
+        return BY_ROOT.get(rootType);
+    }
+
+    private RootListDispatch(Class<?> rootType) {
+        this.rootType = rootType;
+        List<Target> found = new ArrayList<>();
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (Method m : rootType.getMethods()) {
+            if (!m.getName().startsWith("get") || m.getParameterCount() != 0) continue;
+            if (Modifier.isStatic(m.getModifiers()) || !Collection.class.isAssignableFrom(m.getReturnType())) continue;
+            Class<?> element = elementTypeOf(m.getGenericReturnType());
+            if (element == null) continue;
+            try {
+                found.add(new Target(m.getName(), element, lookup.unreflect(m).asType(GETTER_TYPE)));
+            } catch (IllegalAccessException e) {
+                LOG.fine("cannot use root getter " + m.getName() + ": " + e.getMessage());
+            }
+        }
+        found.sort(Comparator.comparing(t -> t.getter));
+        this.targets = Collections.unmodifiableList(found);
+
+        for (Target t : targets) resolve(t.elementType);
+        for (Class<?> c : PRECOMPUTED) resolve(c);
+        LOG.fine("Root list dispatch for " + rootType.getName() + ": " + targets.size() + " lists, "
+                + byValueType.size() + " value types");
+    }
+
+    /**
+     * Add the value to the root list that accepts its class. False when no list accepts it or the
+     * getter returned no collection.
+     */
+    public boolean attach(Object root, Object value) {
+        if (root == null || value == null) return false;
+        Target t = resolve(value.getClass());
+        if (t == NONE) return false;
+        try {
+            Object col = (Object) t.mh.invokeExact(root);
+            if (!(col instanceof Collection)) return false;
+            add(col, value);
+            return true;
+        } catch (Throwable e) {
+            if (e instanceof Error) throw (Error) e;
+            LOG.fine("attach via " + t.getter + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** True when some root list accepts values of the class. */
+    public boolean accepts(Class<?> valueType) {
+        return resolve(valueType) != NONE;
+    }
+
+    /** Name of the getter a value of the class is attached through, or null. */
+    public String getterFor(Class<?> valueType) {
+        return resolve(valueType).getter;
+    }
+
+    public Class<?> getRootType() {
+        return rootType;
+    }
+
+    private Target resolve(Class<?> valueType) {
+        Target t = byValueType.get(valueType);
+        if (t != null) return t;
+        return byValueType.computeIfAbsent(valueType, this::mostSpecific);
+    }
+
+    private Target mostSpecific(Class<?> valueType) {
+        Target best = NONE;
+        for (Target t : targets) {
+            if (!t.elementType.isAssignableFrom(valueType)) continue;
+            // targets are sorted by getter name, so only a strictly narrower element type replaces best
+            if (best == NONE || (best.elementType != t.elementType && best.elementType.isAssignableFrom(t.elementType))) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    private static Class<?> elementTypeOf(Type listType) {
+        if (!(listType instanceof ParameterizedType)) return null;
+        Type[] args = ((ParameterizedType) listType).getActualTypeArguments();
+        if (args.length != 1) return null;
+        Type arg = args[0];
+        if (arg instanceof Class) return (Class<?>) arg;
+        if (arg instanceof ParameterizedType && ((ParameterizedType) arg).getRawType() instanceof Class) {
+            return (Class<?>) ((ParameterizedType) arg).getRawType();
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void add(Object collection, Object value) {
+        ((Collection) collection).add(value);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.jaxb;
+
+import gov.loc.premis.v3.StringPlusAuthority;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * StringPlusAuthorityCache
+ *
+ * Canonical StringPlusAuthority instances for the values the generators repeat on every object,
+ * event and agent: identifier types ("FilePath", "SIP-ID", "eventID"), digest algorithms
+ * ("SHA-256"), agent roles, outcomes, rights bases, relationship types. Without it a 100k-object
+ * document holds a separate, identical instance for each of those hundreds of thousands of uses.
+ *
+ * Usage:
+ *   StringPlusAuthority type = StringPlusAuthorityCache.getInstance().get("FilePath", null);
+ *   oid.setObjectIdentifierType(type);                // shared: never call a setter on it
+ *
+ * Notes:
+ * - Controlled-vocabulary terms (the built-in list plus anything passed to addVocabulary) are
+ *   kept for the life of the JVM; any other value goes to a bounded LRU area so free text such as
+ *   names or notes cannot grow the cache without limit.
+ * - Returned instances are shared between objects, documents and threads and must be treated as
+ *   read-only. JAXB marshals a shared instance like any other; values read back by unmarshalling
+ *   are separate objects and are not affected.
+ * - Thread-safe. Vocabulary hits are lock-free; the free-text area is a synchronized LRU.
+ *
+ * Configuration (system properties):
+ *   premis.intern.maxEntries  capacity of the free-text area (default 1024, 0 disables it)
+ */
+public final class StringPlusAuthorityCache {
+    private static final Logger LOG = Logger.getLogger(StringPlusAuthorityCache.class.getName());
+
+    public static final String MAX_ENTRIES_PROPERTY = "premis.intern.maxEntries";
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /** PREMIS terms written by the generators, the fixity auditor and the event appender. */
+    private static final List<String> BUILT_IN_VOCABULARY = Collections.unmodifiableList(Arrays.asList(
+            // identifier types
+            "FilePath", "SIP-ID", "CNR", "eventID", "system", "person", "depositor",
+            // digest algorithms
+            "MD5", "SHA-1", "SHA-256", "SHA-384", "SHA-512",
+            // agents, roles, rights
+            "JTDR", "JDPS-Repository", "software", "organization", "executing program", "implementer",
+            "statute", "copyright", "license",
+            // events and outcomes
+            "ingest", "fixity check", "message digest calculation", "validation", "format identification",
+            "success", "failure",
+            // relationships
+            "structural", "derivation", "hasPart", "isPartOf", "derivedFrom", "hasSource",
+            "hasRepresentation", "hasMetadata",
+            // format names and registry
+            "PDF", "PDF/A-1B", "XML", "XSD", "TIFF", "JPEG", "ZIP", "PRONOM", "specification"));
+
+    /** Lookup key; authority, authorityURI and valueURI are all part of a value's identity. */
+    private static final class Key {
+        final String value;
+        final String authority;
+        final String authorityURI;
+        final String valueURI;
+        final int hash;
+
+        Key(String value, String authority, String authorityURI, String valueURI) {
+            this.value = value;
+            this.authority = authority;
+            this.authorityURI = authorityURI;
+            this.valueURI = valueURI;
+            this.hash = Arrays.hashCode(new Object[]{value, authority, authorityURI, valueURI});
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && eq(value, k.value) && eq(authority, k.authority)
+                    && eq(authorityURI, k.authorityURI) && eq(valueURI, k.valueURI);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static boolean eq(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static final class Holder {
+        static final StringPlusAuthorityCache INSTANCE = new StringPlusAuthorityCache(
+                Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    private final Map<Key, StringPlusAuthority> vocabulary = new ConcurrentHashMap<>();
+    private final Map<Key, StringPlusAuthority> freeText;
+    private final int maxEntries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private StringPlusAuthorityCache(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        final int cap = this.maxEntries;
+        this.freeText = new LinkedHashMap<Key, StringPlusAuthority>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, StringPlusAuthority> eldest) {
+                return size() > cap;
+            }
+        };
+        for (String term : BUILT_IN_VOCABULARY) addVocabulary(term, null);
+        LOG.fine(() -> "StringPlusAuthorityCache: " + vocabulary.size() + " vocabulary terms, free-text capacity " + cap);
+    }
+
+    public static StringPlusAuthorityCache getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /** Registers a controlled-vocabulary term; it is never evicted. Returns its canonical instance. */
+    public StringPlusAuthority addVocabulary(String value, String authority) {
+        Key key = new Key(value, authority, null, null);
+        return vocabulary.computeIfAbsent(key, StringPlusAuthorityCache::newInstance);
+    }
+
+    /** Canonical instance for value (and optional authority). */
+    public StringPlusAuthority get(String value, String authority) {
+        return get(value, authority, null, null);
+    }
+
+    /** Canonical instance for the full value; null parts are left unset on the instance. */
+    public StringPlusAuthority get(String value, String authority, String authorityURI, String valueURI) {
+        Key key = new Key(value, authority, authorityURI, valueURI);
+        StringPlusAuthority s = vocabulary.get(key);
+        if (s != null) {
+            hits.incrementAndGet();
+            return s;
+        }
+        if (maxEntries == 0) {
+            misses.incrementAndGet();
+            return newInstance(key);
+        }
+        synchronized (freeText) {
+            s = freeText.get(key);
+            if (s == null) {
+                misses.incrementAndGet();
+                s = newInstance(key);
+                freeText.put(key, s);
+            } else {
+                hits.incrementAndGet();
+            }
+        }
+        return s;
+    }
+
+    public int vocabularySize() {
+        return vocabulary.size();
+    }
+
+    public int freeTextSize() {
+        synchronized (freeText) {
+            return freeText.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    private static StringPlusAuthority newInstance(Key key) {
+        StringPlusAuthority s = new StringPlusAuthority();
+        s.setValue(key.value);
+        if (key.authority != null) s.setAuthority(key.authority);
+        if (key.authorityURI != null) s.setAuthorityURI(key.authorityURI);
+        if (key.valueURI != null) s.setValueURI(key.valueURI);
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        return "StringPlusAuthorityCache[vocabulary=" + vocabularySize() + ", freeText=" + freeTextSize() + "/" + maxEntries
+                + ", hits=" + hits() + ", misses=" + misses() + "]";
+    }
+}
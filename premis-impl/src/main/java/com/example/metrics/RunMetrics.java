@@ -0,0 +1,313 @@
+package com.example.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * RunMetrics
+ *
+ * Lightweight per-run metrics registry: counters, timers and histograms, keyed by name. One
+ * instance per generation run (generator instance), so concurrent SIPs in a batch do not mix.
+ *
+ * Usage:
+ *   RunMetrics metrics = new RunMetrics("ODHC010879122024");
+ *   metrics.time("walk", () -> walkTree());            // or a value: x = metrics.time("build", () -> build())
+ *   try (RunMetrics.Phase p = metrics.phase("marshal")) {  // when the body needs p, or spans other resources
+ *       ...
+ *   }
+ *   metrics.add("bytes.read", size);
+ *   metrics.histogram("hash.fileBytes").record(size);
+ *   metrics.publish();   // JSON to the log, and to $premis.metrics.dir/<run>.metrics.json if set
+ *
+ * Phases timed by the generators:
+ *   PremisJaxbV3Generator    walk, hash, fixity.wait, format, build, marshal; validate when the
+ *                            written file is re-parsed against premis.xsd from the working directory
+ *                            (streaming save, or -Dpremis.validate.reparse=true)
+ *   PremisCombinedGenerator  scan (the whole file scan, enclosing walk, build, hash, format and
+ *                            fixity.wait), walk, build, hash, format, fixity.wait, relationships, marshal
+ * Counters: files.found, files.processed, bytes.read, bytes.written, objects.emitted,
+ *   fixity.cache.hits, fixity.cache.misses; PremisJaxbV3Generator only: objects.compact,
+ *   objects.compact.bytes, validation.errors
+ * Histograms: hash.fileBytes (bytes per file read), hash.fileMBps (per-file hashing throughput)
+ *
+ * Notes:
+ * - Thread-safe; the hash phase is recorded from the fixity pool threads. A timer's total is then
+ *   the summed thread time, which can exceed the run's wall time.
+ * - Histograms use power-of-two buckets; percentiles are the bucket's upper bound, capped at max.
+ */
+public final class RunMetrics {
+    private static final Logger LOG = Logger.getLogger(RunMetrics.class.getName());
+
+    /** Directory for the per-run JSON files; unset = log only. */
+    public static final String DIR_PROPERTY = "premis.metrics.dir";
+
+    private final String run;
+    private final long startedMillis = System.currentTimeMillis();
+    private final long startedNanos = System.nanoTime();
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /** Distribution of non-negative long values. */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        public void record(long value) {
+            long v = Math.max(0L, value);
+            buckets.incrementAndGet(v == 0 ? 0 : 63 - Long.numberOfLeadingZeros(v)); // [2^i, 2^(i+1))
+            count.increment();
+            sum.add(v);
+            min.accumulateAndGet(v, Math::min);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long sum() {
+            return sum.sum();
+        }
+
+        public long min() {
+            return count() == 0 ? 0L : min.get();
+        }
+
+        public long max() {
+            return count() == 0 ? 0L : max.get();
+        }
+
+        public double mean() {
+            long n = count();
+            return n == 0 ? 0.0 : (double) sum() / n;
+        }
+
+        /** Approximate percentile (0..100). */
+        public long percentile(double p) {
+            long n = count();
+            if (n == 0) return 0L;
+            long rank = (long) Math.ceil(p / 100.0 * n);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    long upper = i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                    return Math.min(upper, max());
+                }
+            }
+            return max();
+        }
+    }
+
+    /** Durations of a phase, in nanoseconds. */
+    public static final class Timer {
+        private final Histogram nanos = new Histogram();
+
+        public void record(long elapsedNanos) {
+            nanos.record(elapsedNanos);
+        }
+
+        public long count() {
+            return nanos.count();
+        }
+
+        public long totalNanos() {
+            return nanos.sum();
+        }
+
+        public Histogram histogram() {
+            return nanos;
+        }
+    }
+
+    /** A running phase; closing it records the elapsed time in the phase's timer. */
+    public final class Phase implements AutoCloseable {
+        private final Timer timer;
+        private final long t0 = System.nanoTime();
+
+        private Phase(Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public void close() {
+            timer.record(System.nanoTime() - t0);
+        }
+    }
+
+    public RunMetrics(String run) {
+        this.run = run;
+    }
+
+    public String getRun() {
+        return run;
+    }
+
+    public Phase phase(String name) {
+        return new Phase(timer(name));
+    }
+
+    /** Body of a timed phase that produces a value. */
+    @FunctionalInterface
+    public interface TimedCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /** Body of a timed phase. */
+    @FunctionalInterface
+    public interface TimedRun<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** Runs body as phase name and returns its result; the body's exception is rethrown as is. */
+    public <T, E extends Exception> T time(String name, TimedCall<T, E> body) throws E {
+        Phase p = phase(name);
+        try {
+            return body.call();
+        } finally {
+            p.close();
+        }
+    }
+
+    /** Runs body as phase name. */
+    public <E extends Exception> void time(String name, TimedRun<E> body) throws E {
+        Phase p = phase(name);
+        try {
+            body.run();
+        } finally {
+            p.close();
+        }
+    }
+
+    public void increment(String counter) {
+        add(counter, 1L);
+    }
+
+    public void add(String counter, long delta) {
+        LongAdder a = counters.get(counter);
+        if (a == null) a = counters.computeIfAbsent(counter, k -> new LongAdder());
+        a.add(delta);
+    }
+
+    public long counter(String name) {
+        LongAdder a = counters.get(name);
+        return a == null ? 0L : a.sum();
+    }
+
+    public Timer timer(String name) {
+        Timer t = timers.get(name);
+        return t != null ? t : timers.computeIfAbsent(name, k -> new Timer());
+    }
+
+    public Histogram histogram(String name) {
+        Histogram h = histograms.get(name);
+        return h != null ? h : histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /** Snapshot as JSON: run, start, elapsed, counters, timers (ms) and histograms, keys sorted. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\"run\":");
+        quote(sb, run);
+        sb.append(",\"started\":");
+        quote(sb, Instant.ofEpochMilli(startedMillis).toString());
+        sb.append(",\"elapsedMs\":").append(fmt((System.nanoTime() - startedNanos) / 1e6));
+
+        sb.append(",\"counters\":{");
+        String sep = "";
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(sep);
+            quote(sb, e.getKey());
+            sb.append(':').append(e.getValue().sum());
+            sep = ",";
+        }
+        sb.append("},\"timers\":{");
+        sep = "";
+        for (Map.Entry<String, Timer> e : new TreeMap<>(timers).entrySet()) {
+            Histogram h = e.getValue().histogram();
+            sb.append(sep);
+            quote(sb, e.getKey());
+            sb.append(":{\"count\":").append(h.count())
+              .append(",\"totalMs\":").append(fmt(h.sum() / 1e6))
+              .append(",\"meanMs\":").append(fmt(h.mean() / 1e6))
+              .append(",\"minMs\":").append(fmt(h.min() / 1e6))
+              .append(",\"p50Ms\":").append(fmt(h.percentile(50) / 1e6))
+              .append(",\"p99Ms\":").append(fmt(h.percentile(99) / 1e6))
+              .append(",\"maxMs\":").append(fmt(h.max() / 1e6)).append('}');
+            sep = ",";
+        }
+        sb.append("},\"histograms\":{");
+        sep = "";
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(sep);
+            quote(sb, e.getKey());
+            sb.append(":{\"count\":").append(h.count())
+              .append(",\"sum\":").append(h.sum())
+              .append(",\"mean\":").append(fmt(h.mean()))
+              .append(",\"min\":").append(h.min())
+              .append(",\"p50\":").append(h.percentile(50))
+              .append(",\"p90\":").append(h.percentile(90))
+              .append(",\"p99\":").append(h.percentile(99))
+              .append(",\"max\":").append(h.max()).append('}');
+            sep = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * End-of-run dump: logs the JSON and, when premis.metrics.dir is set, writes it to
+     * &lt;dir&gt;/&lt;run&gt;.metrics.json. Returns that file, or null.
+     */
+    public Path publish() {
+        String json = toJson();
+        LOG.info("Run metrics: " + json);
+        String dir = System.getProperty(DIR_PROPERTY);
+        if (dir == null || dir.trim().isEmpty()) return null;
+        try {
+            Path d = Files.createDirectories(Paths.get(dir.trim()));
+            Path out = d.resolve(run.replaceAll("[^A-Za-z0-9._-]", "_") + ".metrics.json");
+            Files.write(out, (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            return out;
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("Cannot write run metrics to " + dir + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+
+    private static String fmt(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * AtomicFileOutput
+ *
+ * Writes a file through a temporary sibling and renames it over the target on commit(), so readers
+ * never see a half-written PREMIS document and a failed write leaves the previous file untouched.
+ *
+ * Usage:
+ *   try (AtomicFileOutput out = AtomicFileOutput.open(target)) {
+ *       marshaller.marshal(premisElement, out.stream());
+ *       out.commit();
+ *   }   // without commit() the temporary file is deleted
+ *
+ * Notes:
+ * - The temporary file is created in the target's directory so the rename stays on one file system.
+ * - A replaced target keeps its POSIX permissions (and owner/group where the process may set them);
+ *   a new target gets the umask default, as a plain file create would.
+ * - commit() forces the data to disk before the rename; falls back to a plain replace where the
+ *   file system has no atomic move.
+ */
+public final class AtomicFileOutput implements Closeable {
+    private static final Logger LOG = Logger.getLogger(AtomicFileOutput.class.getName());
+
+    private final Path target;
+    private final Path tmp;
+    private final FileOutputStream fos;
+    private final OutputStream stream;
+    private boolean committed;
+    private boolean closed;
+
+    private AtomicFileOutput(Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        Path dir = this.target.getParent();
+        this.tmp = createSibling(dir, "." + this.target.getFileName() + ".");
+        this.fos = new FileOutputStream(tmp.toFile());
+        this.stream = new BufferedOutputStream(fos, 1 << 16);
+    }
+
+    /** New empty file next to the target; unlike createTempFile it is not forced to 0600. */
+    private static Path createSibling(Path dir, String prefix) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Path p = dir.resolve(prefix + Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE) + ".tmp");
+            try {
+                return Files.createFile(p);                  // CREATE_NEW, umask-default permissions
+            } catch (FileAlreadyExistsException e) {
+                if (attempt >= 100) throw e;
+            }
+        }
+    }
+
+    public static AtomicFileOutput open(Path target) throws IOException {
+        return new AtomicFileOutput(target);
+    }
+
+    /** Stream to write the content to; do not close it directly. */
+    public OutputStream stream() {
+        return stream;
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    /** Flush, sync and rename the temporary file over the target. */
+    public void commit() throws IOException {
+        if (committed) return;
+        if (closed) throw new IOException("already closed without commit: " + target);
+        stream.flush();
+        fos.getFD().sync();
+        stream.close();
+        closed = true;
+        copyPermissions(target, tmp);
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.fine("atomic move not supported for " + target + ", replacing");
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    /** Gives the temporary file the replaced target's permissions, owner and group (POSIX only). */
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        PosixFileAttributeView fromView = Files.getFileAttributeView(from, PosixFileAttributeView.class);
+        PosixFileAttributeView toView = Files.getFileAttributeView(to, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (fromView == null || toView == null || !Files.exists(from)) return;
+        PosixFileAttributes attrs = fromView.readAttributes();
+        toView.setPermissions(attrs.permissions());
+        try {
+            if (!attrs.owner().equals(Files.getOwner(to))) toView.setOwner(attrs.owner());
+            toView.setGroup(attrs.group());
+        } catch (IOException | SecurityException e) {
+            LOG.fine("could not keep owner/group of " + from + ": " + e);
+        }
+    }
+
+    /** Discards the temporary file unless commit() succeeded. */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            stream.close();
+        }
+        if (!committed) Files.deleteIfExists(tmp);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.streaming;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * PositionCursor
+ *
+ * Maps StAX parser positions (line, column) in a file to byte offsets, so a document scanned with
+ * an XMLStreamReader can be copied or sliced byte for byte between those positions.
+ *
+ * Usage:
+ *   try (PositionCursor cursor = PositionCursor.open(file, encoding)) {
+ *       long start = cursor.offsetOf(line, column);   // positions must not go backwards
+ *       long end = cursor.offsetOf(line2, column2);
+ *   }
+ *
+ * Notes:
+ * - Lines end at LF, CR or CRLF and columns count UTF-16 units, as the JDK parser counts them; a
+ *   UTF-8 byte order mark is not counted.
+ * - UTF-8, US-ASCII and ISO-8859-1 files only; open() rejects other encodings.
+ * - The file is read once, forward only.
+ */
+final class PositionCursor implements Closeable {
+    private final Path source;
+    private final InputStream in;
+    private final boolean utf8;
+    private final byte[] buf = new byte[1 << 16];
+    private int len;
+    private int pos;
+    private long base;
+    private int line = 1;
+    private int column = 1;
+    private boolean afterCr;
+
+    private PositionCursor(Path source, boolean utf8) throws IOException {
+        this.source = source;
+        this.utf8 = utf8;
+        this.in = Files.newInputStream(source);
+        fill();
+        if (utf8 && len >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+            pos = 3;
+        }
+    }
+
+    static PositionCursor open(Path source, String encoding) throws IOException, XMLStreamException {
+        String enc = encoding.toUpperCase(Locale.ROOT);
+        if (enc.equals("UTF-8") || enc.equals("UTF8") || enc.equals("US-ASCII") || enc.equals("ASCII")) {
+            return new PositionCursor(source, true);
+        }
+        if (enc.equals("ISO-8859-1") || enc.equals("ISO8859_1") || enc.equals("LATIN1")) {
+            return new PositionCursor(source, false);
+        }
+        throw new XMLStreamException("unsupported encoding for byte positions: " + encoding);
+    }
+
+    /** Byte offset of (line, column); each call must name a position at or after the previous one. */
+    long offsetOf(int targetLine, int targetColumn) throws IOException, XMLStreamException {
+        while (true) {
+            if (pos == len && !fill()) {
+                if (line == targetLine && column == targetColumn) return base + pos;
+                throw new XMLStreamException("position " + targetLine + ":" + targetColumn + " not found in " + source);
+            }
+            int b = buf[pos] & 0xFF;
+            boolean continuation = utf8 && (b & 0xC0) == 0x80;
+            if (!continuation && line == targetLine && column == targetColumn) return base + pos;
+            if (line > targetLine || (line == targetLine && column > targetColumn)) {
+                throw new XMLStreamException("position " + targetLine + ":" + targetColumn + " is behind the cursor");
+            }
+            pos++;
+            if (b == '\n') {
+                if (!afterCr) line++;
+                column = 1;
+                afterCr = false;
+            } else if (b == '\r') {
+                line++;
+                column = 1;
+                afterCr = true;
+            } else {
+                afterCr = false;
+                if (!continuation) column += utf8 && (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+    }
+
+    /** Copies bytes [from, to) of the file channel to target. */
+    static void transfer(FileChannel in, long from, long to, WritableByteChannel target) throws IOException {
+        long pos = from;
+        while (pos < to) pos += in.transferTo(pos, to - pos, target);
+    }
+
+    private boolean fill() throws IOException {
+        base += len;
+        pos = 0;
+        len = 0;
+        int n = in.read(buf);
+        if (n < 0) return false;
+        len = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
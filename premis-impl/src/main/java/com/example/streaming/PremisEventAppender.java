@@ -0,0 +1,172 @@
+package com.example.streaming;
+
+import gov.loc.premis.v3.EventComplexType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static com.example.jaxb.JaxbContextRegistry.PREMIS_NS;
+
+/**
+ * PremisEventAppender
+ *
+ * Appends premis:event elements to an existing PREMIS v3 file without loading it. The file is
+ * scanned with StAX only up to the splice point the schema sequence (object*, event*, agent*,
+ * rights*) allows - after the last object or existing event, before the first agent or rights
+ * entry - and then copied byte for byte with the marshalled events inserted there. Memory use is
+ * independent of the file size and the rest of the document is left exactly as it was.
+ *
+ * Usage:
+ *   PremisEventAppender.append(premisFile, Collections.singletonList(fixityCheckEvent));
+ *
+ *   // or copy to another stream (the caller owns it)
+ *   PremisEventAppender.append(premisFile, out, events);
+ *
+ * Notes:
+ * - append(Path, List) writes through AtomicFileOutput; readers see the old file or the new one.
+ * - New events reuse the root's namespace bindings (premis: prefix or default namespace) and are
+ *   indented one level (LF line breaks) when the root's children are on their own lines.
+ * - Documents in UTF-8, US-ASCII or ISO-8859-1 are supported (the splice offset is derived from
+ *   the parser's line/column); other encodings are rejected with XMLStreamException.
+ * - Fragments are marshalled with the calling thread's fragment marshaller.
+ */
+public final class PremisEventAppender {
+    private static final Logger LOG = Logger.getLogger(PremisEventAppender.class.getName());
+
+    private static final QName EVENT = new QName(PREMIS_NS, "event");
+
+    private PremisEventAppender() {
+    }
+
+    /** Where the events go, and what is needed to render them like their neighbours. */
+    private static final class SplicePoint {
+        int line;
+        int column;
+        RootContext root;
+        /** &lt;premis .../&gt;: the root has to be opened and closed around the events */
+        boolean selfClosingRoot;
+
+        void at(Location loc) {
+            line = loc.getLineNumber();
+            column = loc.getColumnNumber();
+        }
+    }
+
+    /** Rewrites premisFile in place with the events appended; returns the number of events written. */
+    public static int append(Path premisFile, List<? extends EventComplexType> events)
+            throws IOException, XMLStreamException, JAXBException {
+        if (events.isEmpty()) return 0;
+        long t0 = System.nanoTime();
+        try (AtomicFileOutput af = AtomicFileOutput.open(premisFile)) {
+            append(premisFile, af.stream(), events);
+            af.commit();
+        }
+        LOG.info("Appended " + events.size() + " event(s) to " + premisFile + " in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        return events.size();
+    }
+
+    /** Copies the PREMIS document in source to out with the events spliced in; out is flushed, not closed. */
+    public static void append(Path source, OutputStream out, List<? extends EventComplexType> events)
+            throws IOException, XMLStreamException, JAXBException {
+        SplicePoint sp = locate(source);
+        long offset;
+        try (PositionCursor cursor = PositionCursor.open(source, sp.root.encoding)) {
+            offset = cursor.offsetOf(sp.line, sp.column);
+        }
+        List<JAXBElement<EventComplexType>> elements = new ArrayList<>(events.size());
+        for (EventComplexType e : events) elements.add(new JAXBElement<>(EVENT, EventComplexType.class, e));
+        byte[] insert = sp.root.render(elements, true);
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            if (sp.selfClosingRoot) {
+                PositionCursor.transfer(in, 0, offset - 2, target);       // without the "/>"
+                out.write('>');
+                out.write(insert);
+                out.write(((sp.root.indented ? "\n" : "") + "</" + sp.root.qName + ">").getBytes(sp.root.charset()));
+            } else {
+                PositionCursor.transfer(in, 0, offset, target);
+                out.write(insert);
+            }
+            PositionCursor.transfer(in, offset, in.size(), target);
+        }
+        out.flush();
+    }
+
+    /** Parses up to the first top-level agent/rights (or the root end tag) and records the splice point. */
+    private static SplicePoint locate(Path source) throws IOException, XMLStreamException {
+        SplicePoint sp = new SplicePoint();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 1 << 16)) {
+            XMLStreamReader r = RootContext.INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                String encoding = RootContext.encodingOf(r);
+                int depth = 0;
+                int rootLine = -1;
+                int rootColumn = -1;
+                while (r.hasNext()) {
+                    int ev = r.next();
+                    switch (ev) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            if (depth == 0) {
+                                sp.root = RootContext.of(r, encoding);
+                                sp.at(r.getLocation());
+                                rootLine = sp.line;
+                                rootColumn = sp.column;
+                            } else if (depth == 1 && PREMIS_NS.equals(r.getNamespaceURI())
+                                    && ("agent".equals(r.getLocalName()) || "rights".equals(r.getLocalName()))) {
+                                return sp;
+                            }
+                            depth++;
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            depth--;
+                            if (depth == 0) {
+                                Location end = r.getLocation();
+                                sp.selfClosingRoot = end.getLineNumber() == rootLine && end.getColumnNumber() == rootColumn;
+                                return sp;
+                            }
+                            if (depth == 1) sp.at(r.getLocation());
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                            // text positions are not exact (the reader looks ahead), so events go before
+                            // any stray root-level text rather than after it
+                            if (depth == 1 && !sp.root.indented && r.isWhiteSpace() && r.getText().indexOf('\n') >= 0) {
+                                sp.root.indented = true;
+                            }
+                            break;
+                        case XMLStreamConstants.COMMENT:
+                        case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        case XMLStreamConstants.CDATA:
+                            if (depth == 1) sp.at(r.getLocation());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        }
+        throw new XMLStreamException("no root element in " + source + ": nothing to append to");
+    }
+}
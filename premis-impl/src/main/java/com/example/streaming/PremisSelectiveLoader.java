@@ -0,0 +1,320 @@
+package com.example.streaming;
+
+import gov.loc.premis.v3.AgentComplexType;
+import gov.loc.premis.v3.EventComplexType;
+import gov.loc.premis.v3.ObjectComplexType;
+import gov.loc.premis.v3.RightsComplexType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static com.example.jaxb.JaxbContextRegistry.PREMIS_NS;
+
+/**
+ * PremisSelectiveLoader
+ *
+ * Reads selected top-level entries of an existing PREMIS v3 file - one kind (object, event, agent
+ * or rights), optionally only those carrying given identifier values - without unmarshalling the
+ * rest. The file is scanned with StAX; each selected element is unmarshalled on its own from its
+ * bytes and handed to the caller, so memory stays flat whatever the document size.
+ *
+ * Usage:
+ *   // read: only the objects for two files
+ *   PremisSelectiveLoader.objects()
+ *       .withIdentifiers(Arrays.asList("data/rep1/a.pdf", "data/rep1/b.pdf"))
+ *       .load(premisFile, obj -> ...);
+ *
+ *   // update in place: selected objects are replaced by the callback's result, everything else
+ *   // is copied byte for byte (null removes the element)
+ *   PremisSelectiveLoader.objects().withIdentifiers(ids).update(premisFile, obj -> { refresh(obj); return obj; });
+ *
+ * Notes:
+ * - Identifiers are matched on the entry's own identifier values (objectIdentifierValue,
+ *   eventIdentifierValue, agentIdentifierValue, rightsStatementIdentifierValue), exactly.
+ * - Scanning stops after the entry's section (object*, event*, agent*, rights*); load() also stops
+ *   once every requested identifier has been seen.
+ * - update(Path, ...) writes through AtomicFileOutput. Replacements reuse the root's namespace
+ *   bindings and indentation (see RootContext).
+ * - Supports UTF-8, US-ASCII and ISO-8859-1 documents (byte positions come from PositionCursor).
+ * - Instances are immutable and thread-safe; each call uses the calling thread's JAXB instances.
+ */
+public final class PremisSelectiveLoader<T> {
+    private static final Logger LOG = Logger.getLogger(PremisSelectiveLoader.class.getName());
+
+    /** Top-level entry kinds, in schema order. */
+    public enum Kind {
+        OBJECT("object", "objectIdentifierValue"),
+        EVENT("event", "eventIdentifierValue"),
+        AGENT("agent", "agentIdentifierValue"),
+        RIGHTS("rights", "rightsStatementIdentifierValue");
+
+        final String localName;
+        final String identifierValueName;
+
+        Kind(String localName, String identifierValueName) {
+            this.localName = localName;
+            this.identifierValueName = identifierValueName;
+        }
+
+        static Kind of(String localName) {
+            for (Kind k : values()) {
+                if (k.localName.equals(localName)) return k;
+            }
+            return null;
+        }
+    }
+
+    /** Replacement for a selected element: the element itself (possibly modified), another one, or null to drop it. */
+    @FunctionalInterface
+    public interface Update<T> {
+        T apply(T element) throws Exception;
+    }
+
+    /** A selected element: gap = end of the previous non-whitespace sibling, [start, end) = the element. */
+    private interface Hit<T> {
+        boolean accept(RootContext root, long gap, long start, long end, T value) throws Exception;
+    }
+
+    private final Kind kind;
+    private final Class<T> type;
+    private final QName name;
+    private final Set<String> identifiers;
+
+    private PremisSelectiveLoader(Kind kind, Class<T> type, Set<String> identifiers) {
+        this.kind = kind;
+        this.type = type;
+        this.name = new QName(PREMIS_NS, kind.localName);
+        this.identifiers = identifiers;
+    }
+
+    public static PremisSelectiveLoader<ObjectComplexType> objects() {
+        return new PremisSelectiveLoader<>(Kind.OBJECT, ObjectComplexType.class, null);
+    }
+
+    public static PremisSelectiveLoader<EventComplexType> events() {
+        return new PremisSelectiveLoader<>(Kind.EVENT, EventComplexType.class, null);
+    }
+
+    public static PremisSelectiveLoader<AgentComplexType> agents() {
+        return new PremisSelectiveLoader<>(Kind.AGENT, AgentComplexType.class, null);
+    }
+
+    public static PremisSelectiveLoader<RightsComplexType> rights() {
+        return new PremisSelectiveLoader<>(Kind.RIGHTS, RightsComplexType.class, null);
+    }
+
+    /** Same kind, restricted to entries carrying at least one of the identifier values. */
+    public PremisSelectiveLoader<T> withIdentifiers(Collection<String> values) {
+        return new PremisSelectiveLoader<>(kind, type, Collections.unmodifiableSet(new HashSet<>(values)));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Hands each selected element to the consumer, in document order; returns how many. */
+    public long load(Path premisFile, Consumer<? super T> consumer) throws IOException, XMLStreamException, JAXBException {
+        final Set<String> missing = identifiers == null ? null : new HashSet<>(identifiers);
+        long n = scan(premisFile, missing, (root, gap, start, end, value) -> {
+            consumer.accept(value);
+            return missing == null || !missing.isEmpty();
+        });
+        if (missing != null && !missing.isEmpty()) {
+            LOG.fine(missing.size() + " identifier(s) not found in " + premisFile);
+        }
+        return n;
+    }
+
+    /** The selected elements as a list (for small selections). */
+    public List<T> loadAll(Path premisFile) throws IOException, XMLStreamException, JAXBException {
+        List<T> out = new ArrayList<>();
+        load(premisFile, out::add);
+        return out;
+    }
+
+    /** Rewrites premisFile in place with the selected elements replaced; returns how many were selected. */
+    public long update(Path premisFile, Update<T> update) throws IOException, XMLStreamException, JAXBException {
+        long t0 = System.nanoTime();
+        long n;
+        try (AtomicFileOutput af = AtomicFileOutput.open(premisFile)) {
+            n = update(premisFile, af.stream(), update);
+            af.commit();
+        }
+        LOG.info("Updated " + n + " premis:" + kind.localName + " entries of " + premisFile + " in "
+                + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        return n;
+    }
+
+    /** Copies source to out with the selected elements replaced; out is flushed, not closed. */
+    public long update(Path source, OutputStream out, Update<T> update) throws IOException, XMLStreamException, JAXBException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long[] copied = {0L};
+            long n = scan(source, null, (root, gap, start, end, value) -> {
+                T replacement = update.apply(value);
+                if (replacement == null) {
+                    PositionCursor.transfer(in, copied[0], gap, target);
+                } else {
+                    PositionCursor.transfer(in, copied[0], start, target);
+                    out.write(root.render(Collections.singletonList(new JAXBElement<>(name, type, replacement)), false));
+                }
+                copied[0] = end;
+                return true;
+            });
+            PositionCursor.transfer(in, copied[0], in.size(), target);
+            out.flush();
+            return n;
+        }
+    }
+
+    /**
+     * One StAX pass: tracks the position after each root-level event, peeks at identifier values
+     * inside elements of the selected kind, and unmarshals the matching ones from their bytes.
+     */
+    private long scan(Path source, Set<String> missing, Hit<T> hit) throws IOException, XMLStreamException, JAXBException {
+        long hits = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 1 << 16);
+             FileChannel slices = FileChannel.open(source, StandardOpenOption.READ)) {
+            XMLStreamReader r = RootContext.INPUT_FACTORY.createXMLStreamReader(in);
+            PositionCursor cursor = null;
+            try {
+                String encoding = RootContext.encodingOf(r);
+                RootContext root = null;
+                int depth = 0;
+                int lastLine = 0, lastColumn = 0;          // after the previous root-level event
+                int gapLine = 0, gapColumn = 0;            // after the previous non-whitespace one
+                int startLine = 0, startColumn = 0, startGapLine = 0, startGapColumn = 0;
+                boolean inSelected = false;
+                List<String> matched = new ArrayList<>(2);
+                scan:
+                while (r.hasNext()) {
+                    int ev = r.next();
+                    switch (ev) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            if (depth == 0) {
+                                root = RootContext.of(r, encoding);
+                                cursor = PositionCursor.open(source, encoding);
+                                Location l = r.getLocation();
+                                lastLine = gapLine = l.getLineNumber();
+                                lastColumn = gapColumn = l.getColumnNumber();
+                            } else if (depth == 1 && PREMIS_NS.equals(r.getNamespaceURI())) {
+                                Kind k = Kind.of(r.getLocalName());
+                                if (k != null && k.ordinal() > kind.ordinal()) break scan;   // past the section
+                                if (k == kind) {
+                                    inSelected = true;
+                                    matched.clear();
+                                    startLine = lastLine;
+                                    startColumn = lastColumn;
+                                    startGapLine = gapLine;
+                                    startGapColumn = gapColumn;
+                                }
+                            } else if (inSelected && identifiers != null && PREMIS_NS.equals(r.getNamespaceURI())
+                                    && kind.identifierValueName.equals(r.getLocalName())) {
+                                String v = r.getElementText();      // consumes the end tag as well
+                                if (identifiers.contains(v)) matched.add(v);
+                                break;
+                            }
+                            depth++;
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            depth--;
+                            if (depth == 0) break scan;
+                            if (depth != 1) break;
+                            Location l = r.getLocation();
+                            if (inSelected) {
+                                inSelected = false;
+                                if (identifiers == null || !matched.isEmpty()) {
+                                    long gap = cursor.offsetOf(startGapLine, startGapColumn);
+                                    long start = cursor.offsetOf(startLine, startColumn);
+                                    long end = cursor.offsetOf(l.getLineNumber(), l.getColumnNumber());
+                                    T value = root.parse(read(slices, start, end), type);
+                                    hits++;
+                                    if (missing != null) missing.removeAll(matched);
+                                    boolean more;
+                                    try {
+                                        more = hit.accept(root, gap, start, end, value);
+                                    } catch (IOException | XMLStreamException | JAXBException | RuntimeException e) {
+                                        throw e;
+                                    } catch (Exception e) {
+                                        throw new IOException("update of premis:" + kind.localName + " failed: " + e.getMessage(), e);
+                                    }
+                                    if (!more) break scan;
+                                }
+                            }
+                            lastLine = gapLine = l.getLineNumber();
+                            lastColumn = gapColumn = l.getColumnNumber();
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.SPACE:
+                            if (depth != 1) break;
+                            // the reader's location is one past the text (it has seen the next '<'),
+                            // so the position is advanced over the text itself
+                            char[] text = r.getTextCharacters();
+                            int from = r.getTextStart();
+                            int to = from + r.getTextLength();
+                            for (int i = from; i < to; i++) {
+                                if (text[i] == '\n') {
+                                    lastLine++;
+                                    lastColumn = 1;
+                                    root.indented = true;
+                                } else {
+                                    lastColumn++;
+                                }
+                            }
+                            if (!r.isWhiteSpace()) {
+                                gapLine = lastLine;
+                                gapColumn = lastColumn;
+                            }
+                            break;
+                        default:
+                            if (depth != 1) break;
+                            Location t = r.getLocation();
+                            lastLine = gapLine = t.getLineNumber();
+                            lastColumn = gapColumn = t.getColumnNumber();
+                            break;
+                    }
+                }
+                if (root == null) throw new XMLStreamException("no root element in " + source);
+            } finally {
+                r.close();
+                if (cursor != null) cursor.close();
+            }
+        }
+        return hits;
+    }
+
+    private static byte[] read(FileChannel ch, long start, long end) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - start));
+        long pos = start;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new IOException("unexpected end of file at " + pos);
+            pos += n;
+        }
+        return buf.array();
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.streaming;
+
+import com.example.jaxb.JaxbContextRegistry;
+import gov.loc.premis.v3.AgentComplexType;
+import gov.loc.premis.v3.EventComplexType;
+import gov.loc.premis.v3.ObjectComplexType;
+import gov.loc.premis.v3.RightsComplexType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static com.example.jaxb.JaxbContextRegistry.PREMIS_NS;
+import static com.example.jaxb.JaxbContextRegistry.XSI_NS;
+
+/**
+ * PremisStreamWriter
+ *
+ * Writes a PREMIS v3 document incrementally with StAX. Each object, event, agent and rights entry is
+ * marshalled as soon as it is produced and can be dropped by the caller afterwards, so heap use does
+ * not grow with the number of files in the SIP.
+ *
+ * Usage:
+ *   try (PremisStreamWriter w = PremisStreamWriter.open(outFile, "3.0")) {
+ *       for (Path f : files) w.writeObject(buildObject(f));   // object is garbage after this call
+ *       w.writeEvent(ingestEvent);
+ *       w.writeAgent(agent);
+ *       w.writeRights(rights);
+ *   }
+ *
+ * Notes:
+ * - By default the output has the same layout as JaxbContextRegistry.marshaller() (what
+ *   PremisJaxbV3Generator.save() writes): PREMIS as the default namespace, "xsi" for the schema
+ *   instance, the same schemaLocation. With prefixed set it matches prefixedMarshaller() instead
+ *   ("premis:" on every element, what PremisCombinedGenerator writes). Either way the namespaces
+ *   are declared once, on the root element. Only empty elements differ: StAX writes <x></x>.
+ * - The schema requires object*, event*, agent*, rights* in that order; writing out of order throws
+ *   IllegalStateException instead of producing an invalid document.
+ * - Not thread-safe. Fragments are marshalled with the calling thread's fragment marshaller.
+ */
+public class PremisStreamWriter implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(PremisStreamWriter.class.getName());
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final byte[] XML_DECLARATION =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>".getBytes(StandardCharsets.US_ASCII);
+
+    private static final QName OBJECT = new QName(PREMIS_NS, "object");
+    private static final QName EVENT = new QName(PREMIS_NS, "event");
+    private static final QName AGENT = new QName(PREMIS_NS, "agent");
+    private static final QName RIGHTS = new QName(PREMIS_NS, "rights");
+
+    /** Position in the object* event* agent* rights* sequence. */
+    private enum Section { OBJECT, EVENT, AGENT, RIGHTS }
+
+    private final OutputStream os;
+    private final boolean ownsStream;
+    private final XMLStreamWriter xml;
+    private final Marshaller marshaller;
+    private Section section = Section.OBJECT;
+    private boolean closed;
+
+    private long objects;
+    private long events;
+    private long agents;
+    private long rights;
+
+    /** Writer in the default-namespace layout of save(); see {@link #PremisStreamWriter(OutputStream, String, boolean, boolean)}. */
+    public PremisStreamWriter(OutputStream os, String version, boolean indent)
+            throws IOException, JAXBException, XMLStreamException {
+        this(os, false, version, indent, false);
+    }
+
+    /**
+     * @param os       target stream, UTF-8 is written
+     * @param version  value of the root version attribute (null omits it)
+     * @param indent   pretty-print like the JAXB_FORMATTED_OUTPUT marshallers
+     * @param prefixed bind PREMIS to the "premis" prefix instead of the default namespace
+     */
+    public PremisStreamWriter(OutputStream os, String version, boolean indent, boolean prefixed)
+            throws IOException, JAXBException, XMLStreamException {
+        this(os, false, version, indent, prefixed);
+    }
+
+    private PremisStreamWriter(OutputStream os, boolean ownsStream, String version, boolean indent, boolean prefixed)
+            throws IOException, JAXBException, XMLStreamException {
+        this.os = os;
+        this.ownsStream = ownsStream;
+        this.marshaller = JaxbContextRegistry.premis().fragmentMarshaller();
+        Map<String, String> namespaces = FragmentWriter.rootNamespaces(prefixed);
+        XMLStreamWriter out = OUTPUT_FACTORY.createXMLStreamWriter(os, "UTF-8");
+        // the RI takes the prefixes for the fragments from the writer's bindings
+        for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+            if (ns.getKey().isEmpty()) out.setDefaultNamespace(ns.getValue());
+            else out.setPrefix(ns.getKey(), ns.getValue());
+        }
+        this.xml = new FragmentWriter(out, indent, 0, namespaces);
+        // the declaration the JAXB marshallers write; XMLStreamWriter has no standalone flag
+        os.write(XML_DECLARATION);
+        if (indent) os.write('\n');
+        if (prefixed) {
+            xml.writeStartElement("premis", "premis", PREMIS_NS);
+            xml.writeNamespace("premis", PREMIS_NS);
+        } else {
+            xml.writeStartElement("", "premis", PREMIS_NS);
+            xml.writeDefaultNamespace(PREMIS_NS);
+        }
+        xml.writeNamespace("xsi", XSI_NS);
+        xml.writeAttribute("xsi", XSI_NS, "schemaLocation", JaxbContextRegistry.PREMIS_SCHEMA_LOCATION);
+        if (version != null) xml.writeAttribute("version", version);
+    }
+
+    /** Writer on a new file (truncated if present) in the layout of save(); closing the writer closes the file. */
+    public static PremisStreamWriter open(Path outFile, String version) throws IOException, JAXBException, XMLStreamException {
+        return open(outFile, version, false);
+    }
+
+    /** Like {@link #open(Path, String)}; prefixed selects the "premis:" layout. */
+    public static PremisStreamWriter open(Path outFile, String version, boolean prefixed)
+            throws IOException, JAXBException, XMLStreamException {
+        OutputStream os = new BufferedOutputStream(Files.newOutputStream(outFile), 1 << 16);
+        try {
+            return new PremisStreamWriter(os, true, version, true, prefixed);
+        } catch (IOException | JAXBException | XMLStreamException | RuntimeException e) {
+            os.close();
+            throw e;
+        }
+    }
+
+    public void writeObject(ObjectComplexType object) throws JAXBException {
+        write(Section.OBJECT, new JAXBElement<>(OBJECT, ObjectComplexType.class, object));
+        objects++;
+    }
+
+    public void writeEvent(EventComplexType event) throws JAXBException {
+        write(Section.EVENT, new JAXBElement<>(EVENT, EventComplexType.class, event));
+        events++;
+    }
+
+    public void writeAgent(AgentComplexType agent) throws JAXBException {
+        write(Section.AGENT, new JAXBElement<>(AGENT, AgentComplexType.class, agent));
+        agents++;
+    }
+
+    public void writeRights(RightsComplexType r) throws JAXBException {
+        write(Section.RIGHTS, new JAXBElement<>(RIGHTS, RightsComplexType.class, r));
+        rights++;
+    }
+
+    public long getObjectCount() {
+        return objects;
+    }
+
+    public long getEventCount() {
+        return events;
+    }
+
+    public long getAgentCount() {
+        return agents;
+    }
+
+    public long getRightsCount() {
+        return rights;
+    }
+
+    /** Ends the root element and the document, flushes, and closes the stream when owned. */
+    @Override
+    public void close() throws XMLStreamException, IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.flush();
+            xml.close();
+            os.flush();
+        } finally {
+            if (ownsStream) os.close();
+        }
+        LOG.fine("Streamed PREMIS: " + objects + " objects, " + events + " events, " + agents + " agents, "
+                + rights + " rights");
+    }
+
+    private void write(Section target, JAXBElement<?> element) throws JAXBException {
+        if (closed) throw new IllegalStateException("writer is closed");
+        if (target.ordinal() < section.ordinal()) {
+            throw new IllegalStateException("premis:" + element.getName().getLocalPart()
+                    + " cannot follow premis:" + section.name().toLowerCase());
+        }
+        section = target;
+        marshaller.marshal(element, xml);
+    }
+
+    /**
+     * Delegating writer that drops namespace declarations already made on the root (the RI
+     * redeclares them on every fragment) and indents element content.
+     */
+    static final class FragmentWriter implements XMLStreamWriter {
+        private static final String NL_INDENT = "\n                                                                ";
+        private final XMLStreamWriter out;
+        private final boolean indent;
+        /** prefix -> namespace URI declared on the root element */
+        private final Map<String, String> rootNamespaces;
+        private int depth;
+        private boolean lastWasStart;
+        private boolean hasText;
+
+        /**
+         * Writer for fragments placed inside an existing root element (PremisEventAppender): depth is
+         * the nesting level the first fragment starts at, rootNamespaces the root's declarations.
+         */
+        FragmentWriter(XMLStreamWriter out, boolean indent, int depth, Map<String, String> rootNamespaces) {
+            this.out = out;
+            this.indent = indent;
+            this.depth = depth;
+            this.rootNamespaces = rootNamespaces;
+        }
+
+        /** Declarations PremisStreamWriter puts on its root: PREMIS as "premis" or default namespace, plus "xsi". */
+        static Map<String, String> rootNamespaces(boolean prefixed) {
+            Map<String, String> m = new HashMap<>();
+            m.put(prefixed ? "premis" : "", PREMIS_NS);
+            m.put("xsi", XSI_NS);
+            return m;
+        }
+
+        private void newline(int level) throws XMLStreamException {
+            if (!indent) return;
+            int n = Math.min(NL_INDENT.length() - 1, level * 4);
+            out.writeCharacters(NL_INDENT.substring(0, n + 1));
+        }
+
+        private void beforeStart() throws XMLStreamException {
+            if (depth > 0) newline(depth);
+            depth++;
+            lastWasStart = true;
+            hasText = false;
+        }
+
+        private void beforeEnd() throws XMLStreamException {
+            depth--;
+            if (!lastWasStart && !hasText) newline(depth);
+            lastWasStart = false;
+            hasText = false;
+        }
+
+        private void beforeEmpty() throws XMLStreamException {
+            if (depth > 0) newline(depth);
+            lastWasStart = false;
+            hasText = false;
+        }
+
+        private boolean declaredOnRoot(String prefix, String uri) {
+            return depth > 1 && uri != null && uri.equals(rootNamespaces.get(prefix == null ? "" : prefix));
+        }
+
+        @Override public void writeStartElement(String localName) throws XMLStreamException {
+            beforeStart(); out.writeStartElement(localName);
+        }
+        @Override public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+            beforeStart(); out.writeStartElement(namespaceURI, localName);
+        }
+        @Override public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+            beforeStart(); out.writeStartElement(prefix, localName, namespaceURI);
+        }
+        @Override public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+            beforeEmpty(); out.writeEmptyElement(namespaceURI, localName);
+        }
+        @Override public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+            beforeEmpty(); out.writeEmptyElement(prefix, localName, namespaceURI);
+        }
+        @Override public void writeEmptyElement(String localName) throws XMLStreamException {
+            beforeEmpty(); out.writeEmptyElement(localName);
+        }
+        @Override public void writeEndElement() throws XMLStreamException {
+            beforeEnd(); out.writeEndElement();
+        }
+        @Override public void writeEndDocument() throws XMLStreamException {
+            if (indent) out.writeCharacters("\n");
+            out.writeEndDocument();
+        }
+        @Override public void close() throws XMLStreamException {
+            out.close();
+        }
+        @Override public void flush() throws XMLStreamException {
+            out.flush();
+        }
+        @Override public void writeAttribute(String localName, String value) throws XMLStreamException {
+            out.writeAttribute(localName, value);
+        }
+        @Override public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+            out.writeAttribute(prefix, namespaceURI, localName, value);
+        }
+        @Override public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+            out.writeAttribute(namespaceURI, localName, value);
+        }
+        @Override public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+            if (!declaredOnRoot(prefix, namespaceURI)) out.writeNamespace(prefix, namespaceURI);
+        }
+        @Override public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+            if (!declaredOnRoot("", namespaceURI)) out.writeDefaultNamespace(namespaceURI);
+        }
+        @Override public void writeComment(String data) throws XMLStreamException {
+            out.writeComment(data);
+        }
+        @Override public void writeProcessingInstruction(String target) throws XMLStreamException {
+            out.writeProcessingInstruction(target);
+        }
+        @Override public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+            out.writeProcessingInstruction(target, data);
+        }
+        @Override public void writeCData(String data) throws XMLStreamException {
+            hasText = true; out.writeCData(data);
+        }
+        @Override public void writeDTD(String dtd) throws XMLStreamException {
+            out.writeDTD(dtd);
+        }
+        @Override public void writeEntityRef(String name) throws XMLStreamException {
+            hasText = true; out.writeEntityRef(name);
+        }
+        @Override public void writeStartDocument() throws XMLStreamException {
+            out.writeStartDocument();
+        }
+        @Override public void writeStartDocument(String version) throws XMLStreamException {
+            out.writeStartDocument(version);
+        }
+        @Override public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+            out.writeStartDocument(encoding, version);
+            if (indent) out.writeCharacters("\n");
+        }
+        @Override public void writeCharacters(String text) throws XMLStreamException {
+            hasText = true; out.writeCharacters(text);
+        }
+        @Override public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+            hasText = true; out.writeCharacters(text, start, len);
+        }
+        @Override public String getPrefix(String uri) throws XMLStreamException {
+            return out.getPrefix(uri);
+        }
+        @Override public void setPrefix(String prefix, String uri) throws XMLStreamException {
+            out.setPrefix(prefix, uri);
+        }
+        @Override public void setDefaultNamespace(String uri) throws XMLStreamException {
+            out.setDefaultNamespace(uri);
+        }
+        @Override public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+            out.setNamespaceContext(context);
+        }
+        @Override public NamespaceContext getNamespaceContext() {
+            return out.getNamespaceContext();
+        }
+        @Override public Object getProperty(String name) {
+            return out.getProperty(name);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.streaming;
+
+import com.example.jaxb.JaxbContextRegistry;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.sax.SAXSource;
+
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.jaxb.JaxbContextRegistry.PREMIS_NS;
+
+/**
+ * RootContext
+ *
+ * What the byte-level PREMIS editors (PremisEventAppender, PremisSelectiveLoader) need to know
+ * about an existing document's root element to write fragments into it, or read fragments out of
+ * it, as if they were marshalled or unmarshalled with the whole document.
+ *
+ * Usage:
+ *   RootContext root = RootContext.of(reader, encoding);       // reader on the root START_ELEMENT
+ *   byte[] xml = root.render(Collections.singletonList(element), true);
+ *   T value = root.parse(sliceBytes, T.class);                  // slice = one child of the root
+ *
+ * Notes:
+ * - Fragments reuse the root's namespace declarations (premis: prefix or default namespace) and
+ *   are indented one level (LF line breaks) when the root's children are on their own lines.
+ * - Marshalling and unmarshalling use the calling thread's pooled JAXB instances.
+ */
+final class RootContext {
+    /** Namespace-aware, no DTDs or external entities; shared by the scanners of this package. */
+    static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    final String encoding;
+    final String qName;
+    /** prefix ("" for the default namespace) -> namespace URI, as declared on the root */
+    final Map<String, String> namespaces;
+    /** set by the scanner once whitespace with a line break was seen between the root's children */
+    boolean indented;
+
+    private RootContext(String encoding, String qName, Map<String, String> namespaces) {
+        this.encoding = encoding;
+        this.qName = qName;
+        this.namespaces = namespaces;
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        f.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return f;
+    }
+
+    /** Encoding to treat the document as: declared, else detected by the reader, else UTF-8. */
+    static String encodingOf(XMLStreamReader r) {
+        if (r.getCharacterEncodingScheme() != null) return r.getCharacterEncodingScheme();
+        return r.getEncoding() != null ? r.getEncoding() : "UTF-8";
+    }
+
+    /** Context of the root element the reader is positioned on; it must be premis:premis. */
+    static RootContext of(XMLStreamReader r, String encoding) throws XMLStreamException {
+        if (!PREMIS_NS.equals(r.getNamespaceURI()) || !"premis".equals(r.getLocalName())) {
+            throw new XMLStreamException("not a PREMIS v3 document: root is " + r.getName(), r.getLocation());
+        }
+        String prefix = r.getPrefix() == null ? "" : r.getPrefix();
+        Map<String, String> ns = new LinkedHashMap<>();
+        for (int i = 0; i < r.getNamespaceCount(); i++) {
+            String p = r.getNamespacePrefix(i);
+            ns.put(p == null ? "" : p, r.getNamespaceURI(i));
+        }
+        return new RootContext(encoding, prefix.isEmpty() ? r.getLocalName() : prefix + ":" + r.getLocalName(),
+                Collections.unmodifiableMap(ns));
+    }
+
+    Charset charset() {
+        return Charset.forName(encoding);
+    }
+
+    /**
+     * Marshals the elements as children of the root, in the document's encoding. With leadingBreak
+     * each element starts on a new indented line (inserting after a sibling); without it the first
+     * element starts at once (replacing a sibling whose leading whitespace was kept).
+     */
+    byte[] render(List<? extends JAXBElement<?>> elements, boolean leadingBreak) throws XMLStreamException, JAXBException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * Math.max(1, elements.size()));
+        XMLStreamWriter w = OUTPUT_FACTORY.createXMLStreamWriter(out, encoding);
+        for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+            if (ns.getKey().isEmpty()) w.setDefaultNamespace(ns.getValue());
+            else w.setPrefix(ns.getKey(), ns.getValue());
+        }
+        Marshaller m = JaxbContextRegistry.premis().fragmentMarshaller();
+        XMLStreamWriter fw = new PremisStreamWriter.FragmentWriter(w, indented, 1, namespaces);
+        for (JAXBElement<?> e : elements) {
+            m.marshal(e, fw);
+        }
+        w.flush();
+        byte[] bytes = out.toByteArray();
+        if (leadingBreak || !indented) return bytes;
+        int skip = 0;
+        while (skip < bytes.length && (bytes[skip] == '\n' || bytes[skip] == ' ')) skip++;
+        return Arrays.copyOfRange(bytes, skip, bytes.length);
+    }
+
+    /**
+     * Unmarshals one child element of the root from its bytes. The root's namespace declarations
+     * are copied onto the element's start tag (unless it redeclares the prefix itself), so the slice
+     * parses as a document of its own through the unmarshaller's pooled SAX parser.
+     */
+    <T> T parse(byte[] slice, Class<T> type) throws JAXBException {
+        int nameEnd = 1;
+        while (nameEnd < slice.length && !isTagNameEnd(slice[nameEnd])) nameEnd++;
+        int tagEnd = nameEnd;
+        while (tagEnd < slice.length && slice[tagEnd] != '>') tagEnd++;
+        String startTag = new String(slice, 0, tagEnd, charset());
+
+        StringBuilder decls = new StringBuilder(256);
+        for (Map.Entry<String, String> ns : namespaces.entrySet()) {
+            String attr = ns.getKey().isEmpty() ? "xmlns" : "xmlns:" + ns.getKey();
+            if (startTag.contains(" " + attr + "=")) continue;
+            decls.append(' ').append(attr).append("=\"").append(escapeAttribute(ns.getValue())).append('"');
+        }
+        byte[] injected = decls.toString().getBytes(charset());
+        byte[] doc = new byte[slice.length + injected.length];
+        System.arraycopy(slice, 0, doc, 0, nameEnd);
+        System.arraycopy(injected, 0, doc, nameEnd, injected.length);
+        System.arraycopy(slice, nameEnd, doc, nameEnd + injected.length, slice.length - nameEnd);
+
+        InputSource src = new InputSource(new ByteArrayInputStream(doc));
+        src.setEncoding(encoding);                          // the slice has no XML declaration
+        Unmarshaller u = JaxbContextRegistry.premis().unmarshaller();
+        return u.unmarshal(new SAXSource(src), type).getValue();
+    }
+
+    private static boolean isTagNameEnd(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '>' || b == '/';
+    }
+
+    private static String escapeAttribute(String s) {
+        return s.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;");
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.table;
+
+import com.example.fixity.FixityEngine;
+import com.example.format.FormatIdentification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * CompactObjectTable
+ *
+ * Column store for the file objects a generator describes, kept until the PREMIS document is
+ * written. A row costs about 150 bytes of primitive arrays with SHA-256, against about 1.8 KB for
+ * the JAXB object graph (object, identifier, characteristics, fixity, format, StringPlusAuthority,
+ * extension with a DOM element; see FootprintBenchmark), so million-file SIPs fit in a
+ * modest heap. Objects are built from a row only when they are marshalled and are garbage right
+ * after.
+ *
+ * Usage:
+ *   CompactObjectTable table = new CompactObjectTable(Arrays.asList("SHA-256"));
+ *   int row = table.add("data/rep1/doc.pdf", size, digestsHex, format, receivedAt, modifiedAt);
+ *   int again = table.find("data/rep1/doc.pdf");               // row, or -1
+ *   for (int i = 0; i < table.size(); i++) write(build(table.identifier(i), table.digestsHex(i), ...));
+ *   LOG.info(table.toString());                                 // rows and bytes per object
+ *
+ * Columns:
+ *   identifier     UTF-8 bytes packed into one array, with an offset per row
+ *   size           long
+ *   digests        raw digest bytes, one fixed-width array per algorithm (32 bytes for SHA-256)
+ *   format         short code into a per-table dictionary of FormatIdentifications
+ *   receivedAt     epoch nanoseconds (the receivingDate extension)
+ *   modifiedAt     epoch nanoseconds of the file's mtime (dateCreatedByApplication), or UNKNOWN_TIME
+ * plus an open-addressing hash of row numbers for identifier lookup.
+ *
+ * Notes:
+ * - Digests are given and returned as lower-case hex (FixityEngine.toHex) but stored as bytes.
+ * - Not thread-safe; it belongs to the generator run that fills it.
+ */
+public final class CompactObjectTable {
+    private static final Logger LOG = Logger.getLogger(CompactObjectTable.class.getName());
+
+    /** modifiedAt of a file whose modification time could not be read. */
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private final List<String> algorithms;
+    private final int[] digestLengths;
+
+    private int rows;
+    private byte[] idBytes = new byte[INITIAL_ROWS * 48];
+    private int idBytesUsed;
+    /** start of row i's identifier in idBytes; idStart[rows] is the end of the last one */
+    private int[] idStart = new int[INITIAL_ROWS + 1];
+    private long[] sizes = new long[INITIAL_ROWS];
+    private final byte[][] digests;
+    private short[] formats = new short[INITIAL_ROWS];
+    private long[] receivedAt = new long[INITIAL_ROWS];
+    private long[] modifiedAt = new long[INITIAL_ROWS];
+
+    private final List<FormatIdentification> formatValues = new ArrayList<>();
+    private final Map<FormatIdentification, Short> formatCodes = new HashMap<>();
+
+    /** row + 1 per slot, 0 for empty; capacity is a power of two, at most half full */
+    private int[] slots = new int[INITIAL_ROWS * 2];
+
+    /** @param algorithms digest algorithms of every row, in the order they are written out */
+    public CompactObjectTable(List<String> algorithms) {
+        if (algorithms == null || algorithms.isEmpty()) throw new IllegalArgumentException("at least one algorithm is required");
+        this.algorithms = Collections.unmodifiableList(new ArrayList<>(algorithms));
+        this.digestLengths = new int[algorithms.size()];
+        this.digests = new byte[algorithms.size()][];
+        for (int a = 0; a < digestLengths.length; a++) {
+            digestLengths[a] = FixityEngine.messageDigest(algorithms.get(a)).getDigestLength();
+            digests[a] = new byte[INITIAL_ROWS * digestLengths[a]];
+        }
+    }
+
+    public List<String> getAlgorithms() {
+        return algorithms;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return rows == 0;
+    }
+
+    /**
+     * Appends a row and returns its number. The identifier must not be in the table yet.
+     *
+     * @param digestsHex hex digest per algorithm of this table (extra entries are ignored)
+     */
+    public int add(String identifier, long size, Map<String, String> digestsHex, FormatIdentification format,
+                   long receivedAtNanos, long modifiedAtNanos) {
+        byte[] id = identifier.getBytes(StandardCharsets.UTF_8);
+        if (find(id) >= 0) throw new IllegalArgumentException("identifier already in the table: " + identifier);
+        ensureRowCapacity(rows + 1);
+        if ((long) idBytesUsed + id.length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("identifier column full after " + rows + " rows");
+        }
+        if (idBytesUsed + id.length > idBytes.length) {
+            idBytes = Arrays.copyOf(idBytes, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) idBytesUsed + id.length, idBytes.length + (idBytes.length >> 1))));
+        }
+        int row = rows;
+        store(row, size, digestsHex, modifiedAtNanos); // throws before anything is committed
+        System.arraycopy(id, 0, idBytes, idBytesUsed, id.length);
+        idStart[row] = idBytesUsed;
+        idBytesUsed += id.length;
+        idStart[row + 1] = idBytesUsed;
+        formats[row] = formatCode(format);
+        receivedAt[row] = receivedAtNanos;
+        rows++;
+
+        if (rows * 2 > slots.length) rehash(slots.length * 2);
+        insertSlot(row, hash(idBytes, idStart[row], id.length));
+        return row;
+    }
+
+    /** Replaces the size, digests and modification time of a row (file changed since it was added). */
+    public void update(int row, long size, Map<String, String> digestsHex, long modifiedAtNanos) {
+        checkRow(row);
+        store(row, size, digestsHex, modifiedAtNanos);
+    }
+
+    private void store(int row, long size, Map<String, String> digestsHex, long modifiedAtNanos) {
+        for (int a = 0; a < digestLengths.length; a++) {
+            String hex = digestsHex.get(algorithms.get(a));
+            if (hex == null) throw new IllegalArgumentException("no " + algorithms.get(a) + " digest for row " + row);
+            decodeHex(hex, digests[a], row * digestLengths[a], digestLengths[a]);
+        }
+        sizes[row] = size;
+        modifiedAt[row] = modifiedAtNanos;
+    }
+
+    /** Row of the identifier, or -1. */
+    public int find(String identifier) {
+        return find(identifier.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String identifier(int row) {
+        checkRow(row);
+        return new String(idBytes, idStart[row], idStart[row + 1] - idStart[row], StandardCharsets.UTF_8);
+    }
+
+    public long size(int row) {
+        checkRow(row);
+        return sizes[row];
+    }
+
+    /** Hex digests of a row keyed by algorithm, in table order. */
+    public Map<String, String> digestsHex(int row) {
+        checkRow(row);
+        Map<String, String> out = new LinkedHashMap<>();
+        for (int a = 0; a < digestLengths.length; a++) {
+            out.put(algorithms.get(a), FixityEngine.toHex(
+                    Arrays.copyOfRange(digests[a], row * digestLengths[a], (row + 1) * digestLengths[a])));
+        }
+        return out;
+    }
+
+    public FormatIdentification format(int row) {
+        checkRow(row);
+        int code = formats[row];
+        return code < 0 ? null : formatValues.get(code);
+    }
+
+    public String formatName(int row) {
+        FormatIdentification f = format(row);
+        return f == null ? null : f.getName();
+    }
+
+    public long receivedAt(int row) {
+        checkRow(row);
+        return receivedAt[row];
+    }
+
+    public long modifiedAt(int row) {
+        checkRow(row);
+        return modifiedAt[row];
+    }
+
+    /** Epoch nanoseconds of an instant (the timestamp columns). */
+    public static long toEpochNanos(Instant t) {
+        return Math.addExact(Math.multiplyExact(t.getEpochSecond(), 1_000_000_000L), t.getNano());
+    }
+
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    /** Heap held by the table's arrays (allocated capacity, not just the used part). */
+    public long estimatedBytes() {
+        long b = arrayBytes(idBytes.length, 1) + arrayBytes(idStart.length, 4) + arrayBytes(sizes.length, 8)
+                + arrayBytes(formats.length, 2) + arrayBytes(receivedAt.length, 8) + arrayBytes(modifiedAt.length, 8)
+                + arrayBytes(slots.length, 4);
+        for (byte[] d : digests) b += arrayBytes(d.length, 1);
+        b += 200L * formatValues.size();  // a few short strings per distinct format
+        return b;
+    }
+
+    /** estimatedBytes() per row; 0 for an empty table. */
+    public double bytesPerObject() {
+        return rows == 0 ? 0.0 : (double) estimatedBytes() / rows;
+    }
+
+    /** Drops all rows and shrinks the columns back to their initial capacity. */
+    public void clear() {
+        rows = 0;
+        idBytesUsed = 0;
+        idBytes = new byte[INITIAL_ROWS * 48];
+        idStart = new int[INITIAL_ROWS + 1];
+        sizes = new long[INITIAL_ROWS];
+        formats = new short[INITIAL_ROWS];
+        receivedAt = new long[INITIAL_ROWS];
+        modifiedAt = new long[INITIAL_ROWS];
+        for (int a = 0; a < digests.length; a++) digests[a] = new byte[INITIAL_ROWS * digestLengths[a]];
+        slots = new int[INITIAL_ROWS * 2];
+        formatValues.clear();
+        formatCodes.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "CompactObjectTable[%d rows, %d bytes, %.1f bytes/object]",
+                rows, estimatedBytes(), bytesPerObject());
+    }
+
+    private int find(byte[] id) {
+        int mask = slots.length - 1;
+        for (int i = hash(id, 0, id.length) & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s == 0) return -1;
+            int row = s - 1;
+            int start = idStart[row];
+            if (idStart[row + 1] - start == id.length && rangeEquals(idBytes, start, id)) return row;
+        }
+    }
+
+    private void insertSlot(int row, int hash) {
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = row + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int r = 0; r < rows; r++) insertSlot(r, hash(idBytes, idStart[r], idStart[r + 1] - idStart[r]));
+    }
+
+    private void ensureRowCapacity(int needed) {
+        if (needed <= sizes.length) return;
+        int cap = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, sizes.length + (long) (sizes.length >> 1)));
+        idStart = Arrays.copyOf(idStart, cap + 1);
+        sizes = Arrays.copyOf(sizes, cap);
+        formats = Arrays.copyOf(formats, cap);
+        receivedAt = Arrays.copyOf(receivedAt, cap);
+        modifiedAt = Arrays.copyOf(modifiedAt, cap);
+        for (int a = 0; a < digests.length; a++) {
+            digests[a] = Arrays.copyOf(digests[a], Math.multiplyExact(cap, digestLengths[a]));
+        }
+        LOG.fine("grew object table to " + cap + " rows");
+    }
+
+    private short formatCode(FormatIdentification format) {
+        if (format == null) return -1;
+        Short code = formatCodes.get(format);
+        if (code != null) return code;
+        if (formatValues.size() > Short.MAX_VALUE) throw new IllegalStateException("more than " + Short.MAX_VALUE + " formats");
+        short c = (short) formatValues.size();
+        formatValues.add(format);
+        formatCodes.put(format, c);
+        return c;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+    }
+
+    private static int hash(byte[] b, int off, int len) {
+        int h = 0x9747b28c;
+        for (int i = off; i < off + len; i++) h = 31 * h + b[i];
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean rangeEquals(byte[] a, int off, byte[] b) {
+        for (int i = 0; i < b.length; i++) {
+            if (a[off + i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    private static void decodeHex(String hex, byte[] out, int off, int len) {
+        if (hex.length() != len * 2) {
+            throw new IllegalArgumentException("expected " + len * 2 + " hex digits but got " + hex.length());
+        }
+        for (int i = 0; i < len; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) throw new IllegalArgumentException("not a hex digest: " + hex);
+            out[off + i] = (byte) ((hi << 4) | lo);
+        }
+    }
+
+    /** Array header (16 bytes) plus elements, rounded up to 8 bytes. */
+    private static long arrayBytes(long length, int elementSize) {
+        return (16 + length * elementSize + 7) & ~7L;
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.validator;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * BulkValidator
+ *
+ * Re-validates every PREMIS file (*premis*.xml) and eCourt metadata file (*_Metadata_ecourt.xml)
+ * under a directory tree, for example after a schema update. Files are validated on a worker pool;
+ * each worker keeps a Validator for each of its MAX_VALIDATORS_PER_THREAD most recently used
+ * schemas, created from the compiled schemas in SchemaCache. Results are streamed to a report file
+ * as they complete.
+ *
+ * Usage:
+ *   java -cp <classpath> com.example.validator.BulkValidator <root-dir> --premis-xsd <premis.xsd>
+ *        [--metadata-xsd <ecourt.xsd>] [--report <report.tsv>] [--threads N]
+ *
+ *   --metadata-xsd: schema for *_Metadata_ecourt.xml. Without it the first *.xsd in the SIP's
+ *                   data/schema folder (sibling of the metadata folder) is used; metadata files
+ *                   with no schema are reported as SKIPPED. SIP schemas are
+ *                   looked up by content, so the identical copy every SIP carries compiles once.
+ *   --report:       default bulk-validation-report.tsv in the working directory.
+ *   --threads:      default available processors.
+ *
+ * Report format (tab separated, one line per file, followed by its messages):
+ *   VALID|INVALID|ERROR|SKIPPED  bytes  millis  path
+ *       ERROR: line 12, col 5: ...
+ * The last line is a summary that is also printed to stdout (files/s and MB/s). The exit code is
+ * 1 when any file is not VALID.
+ */
+public class BulkValidator {
+    private static final Logger LOG = Logger.getLogger(BulkValidator.class.getName());
+
+    /** Per-file messages kept in the report; the rest are counted only. */
+    private static final int MAX_MESSAGES_PER_FILE = 50;
+    /** Validators kept per worker thread; the least recently used one is dropped first. */
+    private static final int MAX_VALIDATORS_PER_THREAD = 4;
+
+    public enum Status { VALID, INVALID, ERROR, SKIPPED }
+
+    /** Validation outcome of one file. */
+    public static final class Result {
+        final Path file;
+        final Status status;
+        final long bytes;
+        final long nanos;
+        final List<String> messages;
+
+        Result(Path file, Status status, long bytes, long nanos, List<String> messages) {
+            this.file = file;
+            this.status = status;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.messages = messages;
+        }
+    }
+
+    /** Totals of a run. */
+    public static final class Summary {
+        private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        private long bytes;
+        private long wallNanos;
+
+        void add(Result r) {
+            counts.merge(r.status, 1, Integer::sum);
+            bytes += r.bytes;
+        }
+
+        public int count(Status s) {
+            return counts.getOrDefault(s, 0);
+        }
+
+        public int total() {
+            int n = 0;
+            for (int c : counts.values()) n += c;
+            return n;
+        }
+
+        @Override
+        public String toString() {
+            double secs = Math.max(1e-9, wallNanos / 1e9);
+            return String.format(Locale.ROOT,
+                    "files=%d valid=%d invalid=%d error=%d skipped=%d in %.2f s: %.1f files/s, %.1f MB/s (%.1f MB)",
+                    total(), count(Status.VALID), count(Status.INVALID), count(Status.ERROR), count(Status.SKIPPED),
+                    secs, total() / secs, bytes / 1e6 / secs, bytes / 1e6);
+        }
+    }
+
+    private static final Result POISON = new Result(null, Status.SKIPPED, 0L, 0L, Collections.emptyList());
+
+    private final int threads;
+    private final Path premisXsd;
+    private final Path metadataXsd;
+    /** Per worker thread: compiled schema -> reusable Validator, in access order. */
+    private final ThreadLocal<Map<Schema, Validator>> validators = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<Schema, Validator>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Schema, Validator> eldest) {
+                    return size() > MAX_VALIDATORS_PER_THREAD;
+                }
+            });
+
+    public BulkValidator(int threads, Path premisXsd, Path metadataXsd) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.threads = threads;
+        this.premisXsd = premisXsd;
+        this.metadataXsd = metadataXsd;
+    }
+
+    /** True for the files this tool validates. */
+    public static boolean isCandidate(Path file) {
+        String n = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!n.endsWith(".xml")) return false;
+        return n.contains("premis") || n.endsWith("_metadata_ecourt.xml");
+    }
+
+    /** Walk the tree, validate every candidate and stream results to the report. */
+    public Summary run(Path root, Path reportFile) throws IOException, InterruptedException {
+        long t0 = System.nanoTime();
+        Summary summary = new Summary();
+        BlockingQueue<Result> done = new LinkedBlockingQueue<>();
+        // bound queued work so a huge tree does not build an unbounded task queue
+        Semaphore queued = new Semaphore(threads * 8);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger seq = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "premis-validate-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try (PrintWriter report = new PrintWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))) {
+            Thread writer = new Thread(() -> writeResults(done, report, summary), "premis-validate-report");
+            writer.start();
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!attrs.isRegularFile() || !isCandidate(file)) return FileVisitResult.CONTINUE;
+                        try {
+                            queued.acquire();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return FileVisitResult.TERMINATE;
+                        }
+                        pool.execute(() -> {
+                            try {
+                                done.add(validateOne(file, attrs.size()));
+                            } finally {
+                                queued.release();
+                            }
+                        });
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        done.add(new Result(file, Status.ERROR, 0L, 0L, Collections.singletonList("ERROR: " + exc)));
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } finally {
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                done.add(POISON);
+                writer.join();
+            }
+            summary.wallNanos = System.nanoTime() - t0;
+            report.println("# " + summary);
+        }
+        return summary;
+    }
+
+    private static void writeResults(BlockingQueue<Result> done, PrintWriter report, Summary summary) {
+        try {
+            for (Result r = done.take(); r != POISON; r = done.take()) {
+                summary.add(r);
+                report.print(r.status);
+                report.print('\t');
+                report.print(r.bytes);
+                report.print('\t');
+                report.print(r.nanos / 1_000_000);
+                report.print('\t');
+                report.println(r.file);
+                for (String m : r.messages) {
+                    report.print("    ");
+                    report.println(m);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    Result validateOne(Path file, long bytes) {
+        long t0 = System.nanoTime();
+        try {
+            Schema schema = schemaFor(file);
+            if (schema == null) {
+                return new Result(file, Status.SKIPPED, bytes, 0L, Collections.singletonList("no schema configured or found"));
+            }
+            Validator v = validatorFor(schema);
+            XmlValidator.CollectingErrorHandler handler = new XmlValidator.CollectingErrorHandler();
+            v.setErrorHandler(handler);
+            try {
+                v.validate(new StreamSource(file.toFile()));
+            } catch (SAXException fatal) {
+                if (!handler.hasErrors()) handler.getErrors().add("FATAL: " + fatal.getMessage());
+            } finally {
+                v.reset();
+            }
+            boolean invalid = false;
+            for (String m : handler.getErrors()) {
+                if (!m.startsWith("WARNING")) {
+                    invalid = true;
+                    break;
+                }
+            }
+            return new Result(file, invalid ? Status.INVALID : Status.VALID, bytes, System.nanoTime() - t0,
+                    capped(handler.getErrors()));
+        } catch (Exception e) {
+            LOG.fine("validation of " + file + " failed: " + e);
+            return new Result(file, Status.ERROR, bytes, System.nanoTime() - t0, Collections.singletonList("ERROR: " + e));
+        }
+    }
+
+    private Validator validatorFor(Schema schema) {
+        return validators.get().computeIfAbsent(schema, Schema::newValidator);
+    }
+
+    private Schema schemaFor(Path file) throws SAXException, IOException {
+        String n = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (n.endsWith("_metadata_ecourt.xml")) {
+            if (metadataXsd != null) return SchemaCache.get(metadataXsd);
+            Path sipXsd = findSipSchema(file);
+            return sipXsd == null ? null : SchemaCache.getByContent(sipXsd); // same copy in every SIP
+        }
+        return SchemaCache.get(premisXsd);
+    }
+
+    /** First *.xsd in data/schema next to the metadata folder (SIP layout), or null. */
+    private static Path findSipSchema(Path metadataFile) throws IOException {
+        Path dir = metadataFile.getParent();
+        if (dir == null || dir.getParent() == null) return null;
+        Path schemaDir = dir.resolveSibling("schema");
+        if (!Files.isDirectory(schemaDir)) return null;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(schemaDir, "*.xsd")) {
+            for (Path p : ds) return p;
+        }
+        return null;
+    }
+
+    private static List<String> capped(List<String> messages) {
+        if (messages.size() <= MAX_MESSAGES_PER_FILE) return messages;
+        List<String> out = new ArrayList<>(messages.subList(0, MAX_MESSAGES_PER_FILE));
+        out.add("... " + (messages.size() - MAX_MESSAGES_PER_FILE) + " more");
+        return out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path root = null;
+        Path premisXsd = null;
+        Path metadataXsd = null;
+        Path report = Paths.get("bulk-validation-report.tsv");
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if ("--premis-xsd".equals(a) && i + 1 < args.length) premisXsd = Paths.get(args[++i]);
+            else if ("--metadata-xsd".equals(a) && i + 1 < args.length) metadataXsd = Paths.get(args[++i]);
+            else if ("--report".equals(a) && i + 1 < args.length) report = Paths.get(args[++i]);
+            else if ("--threads".equals(a) && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if (root == null) root = Paths.get(a);
+        }
+        if (root == null || premisXsd == null) {
+            System.err.println("Usage: BulkValidator <root-dir> --premis-xsd <premis.xsd> [--metadata-xsd <xsd>] [--report <file>] [--threads N]");
+            System.exit(2);
+        }
+        Summary s = new BulkValidator(threads, premisXsd, metadataXsd).run(root, report);
+        System.out.println(s);
+        System.out.println("Schemas compiled: " + SchemaCache.compilations());
+        System.out.println("Report: " + report.toAbsolutePath());
+        if (s.count(Status.VALID) != s.total()) System.exit(1);
+    }
+}
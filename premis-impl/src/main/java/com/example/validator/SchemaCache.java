@@ -0,0 +1,158 @@
+package com.example.validator;
+
+import com.example.fixity.FixityEngine;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * SchemaCache
+ *
+ * Process-wide cache of compiled XML Schemas. Compiling premis.xsd costs more than validating a
+ * typical PREMIS file, so each schema is compiled once:
+ *   get(path)           keyed by XSD path; recompiled only when its last-modified time or size changes
+ *   getByContent(path)  keyed by size + SHA-256 of the XSD, so identical copies (the ecourt.xsd
+ *                       shipped in every SIP's data/schema folder) share one compiled schema
+ *
+ * Usage:
+ *   Schema schema = SchemaCache.get(Paths.get("premis.xsd"));
+ *   Schema sip = SchemaCache.getByContent(sipDir.resolve("data/schema/ecourt.xsd"));
+ *   Validator v = schema.newValidator();   // Validators are not thread-safe: one per thread/use
+ *
+ * Configuration (system properties):
+ *   premis.schema.maxEntries  compiled schemas kept, least recently used dropped first (default 16)
+ *
+ * Notes:
+ * - javax.xml.validation.Schema is immutable and thread-safe; Validator instances are not.
+ * - Concurrent first requests for the same XSD compile it once; other XSDs are not blocked.
+ * - Only the top-level XSD is checked for changes; edits to included/imported files need clear().
+ * - A content-keyed schema resolves relative includes/imports against the copy compiled first, so
+ *   getByContent() suits self-contained XSDs only.
+ */
+public final class SchemaCache {
+    private static final Logger LOG = Logger.getLogger(SchemaCache.class.getName());
+
+    public static final String MAX_ENTRIES_PROPERTY = "premis.schema.maxEntries";
+    public static final int DEFAULT_MAX_ENTRIES = 16;
+
+    private static final int MAX_ENTRIES = Math.max(1, Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    /** Path or content key -> slot, in access order; guarded by itself. */
+    private static final Map<Object, Slot> SLOTS = new LinkedHashMap<Object, Slot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Slot> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final AtomicInteger COMPILATIONS = new AtomicInteger();
+
+    /** Compiled schema and the file state it was compiled from (immutable). */
+    private static final class Compiled {
+        final Schema schema;
+        final long modified;
+        final long size;
+
+        Compiled(Schema schema, long modified, long size) {
+            this.schema = schema;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+
+    private static final class Slot {
+        volatile Compiled compiled;
+    }
+
+    private SchemaCache() {
+    }
+
+    /** Compiled schema for the XSD, compiling it on first use or after the file changed. */
+    public static Schema get(Path xsd) throws SAXException, IOException {
+        Path key = xsd.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        long modified = attrs.lastModifiedTime().toMillis();
+        long size = attrs.size();
+
+        Slot slot = slot(key);
+        Compiled c = slot.compiled;
+        if (c != null && c.modified == modified && c.size == size) return c.schema;
+        synchronized (slot) {
+            c = slot.compiled;
+            if (c != null && c.modified == modified && c.size == size) return c.schema;
+            Schema schema = compile(new StreamSource(key.toFile()), key.toString());
+            slot.compiled = new Compiled(schema, modified, size);
+            return schema;
+        }
+    }
+
+    /**
+     * Compiled schema shared by every XSD with the same content (size + SHA-256); the file is read
+     * once per call and compiled only when no identical copy is cached.
+     */
+    public static Schema getByContent(Path xsd) throws SAXException, IOException {
+        Path file = xsd.toAbsolutePath().normalize();
+        byte[] content = Files.readAllBytes(file);
+        String key = content.length + ":" + FixityEngine.toHex(sha256(content));
+
+        Slot slot = slot(key);
+        Compiled c = slot.compiled;
+        if (c != null) return c.schema;
+        synchronized (slot) {
+            c = slot.compiled;
+            if (c != null) return c.schema;
+            StreamSource source = new StreamSource(new ByteArrayInputStream(content), file.toUri().toString());
+            Schema schema = compile(source, file.toString());
+            slot.compiled = new Compiled(schema, 0L, content.length);
+            return schema;
+        }
+    }
+
+    /** Number of schema compilations performed by this JVM. */
+    public static int compilations() {
+        return COMPILATIONS.get();
+    }
+
+    /** Drop every cached schema. */
+    public static void clear() {
+        synchronized (SLOTS) {
+            SLOTS.clear();
+        }
+    }
+
+    private static Slot slot(Object key) {
+        synchronized (SLOTS) {
+            return SLOTS.computeIfAbsent(key, k -> new Slot());
+        }
+    }
+
+    private static Schema compile(Source source, String label) throws SAXException {
+        long t0 = System.nanoTime();
+        SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        Schema schema = sf.newSchema(source);
+        COMPILATIONS.incrementAndGet();
+        LOG.info("Compiled schema " + label + " in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
+        return schema;
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance(FixityEngine.SHA_256).digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.validator;
 
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.ValidationEvent;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.ValidationEventLocator;
+import javax.xml.bind.annotation.XmlType;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
@@ -10,8 +15,11 @@ import org.xml.sax.ErrorHandler;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.function.Function;
 
 public class XmlValidator {
 
@@ -46,9 +54,91 @@ public class XmlValidator {
         }
     }
 
+    /**
+     * Marshaller/Unmarshaller event handler that records schema problems in the same
+     * "SEVERITY: message" form as CollectingErrorHandler and lets marshalling continue.
+     * Marshalling has no line numbers, so each message names the element being written and, when
+     * it is also installed as the marshaller's listener, the nearest enclosing bean the identify
+     * function can name (for example "object data/rep1/a.pdf").
+     */
+    public static class CollectingEventHandler extends Marshaller.Listener implements ValidationEventHandler {
+        private final List<String> errors = new ArrayList<>();
+        private final Function<Object, String> identify;
+        private final Deque<Object> path = new ArrayDeque<>(); // beans being marshalled, innermost first
+
+        public CollectingEventHandler() {
+            this(o -> null);
+        }
+
+        /** identify returns a label for beans that carry an identifier, null for any other. */
+        public CollectingEventHandler(Function<Object, String> identify) {
+            this.identify = identify;
+        }
+
+        @Override
+        public boolean handleEvent(ValidationEvent event) {
+            // a marshaller's Schema reports every cvc-* violation as FATAL_ERROR; the validator
+            // (and reparse mode) reports the same problems as ERROR
+            String severity = event.getSeverity() == ValidationEvent.WARNING ? "WARNING" : "ERROR";
+            String where = locate(event.getLocator());
+            errors.add(severity + ": " + (where == null ? "" : where + ": ") + event.getMessage());
+            return true;
+        }
+
+        @Override
+        public void beforeMarshal(Object source) {
+            path.push(source);
+        }
+
+        @Override
+        public void afterMarshal(Object source) {
+            if (path.peek() == source) path.pop();
+        }
+
+        private String locate(ValidationEventLocator locator) {
+            if (locator != null && locator.getLineNumber() > 0) {
+                return String.format("line %d, col %d", locator.getLineNumber(), locator.getColumnNumber());
+            }
+            Object current = locator == null ? null : locator.getObject();
+            if (current == null) current = path.peek();
+            if (current == null) return null;
+            String element = elementName(current);
+            String label = identify.apply(current);
+            if (label != null) return label;
+            for (Object enclosing : path) {
+                label = identify.apply(enclosing);
+                if (label != null) return element + " in " + label;
+            }
+            return element;
+        }
+
+        /** "fixity" for FixityComplexType, also for subclasses such as a generator's view of the root. */
+        private static String elementName(Object bean) {
+            if (bean instanceof JAXBElement) return ((JAXBElement<?>) bean).getName().getLocalPart();
+            Class<?> c = bean.getClass();
+            while (c.getSuperclass() != null && !c.isAnnotationPresent(XmlType.class)) c = c.getSuperclass();
+            String n = c.getSimpleName();
+            if (n.endsWith("ComplexType")) n = n.substring(0, n.length() - "ComplexType".length());
+            return n.isEmpty() ? n : Character.toLowerCase(n.charAt(0)) + n.substring(1);
+        }
+
+        public boolean hasErrors() {
+            for (String e : errors) {
+                if (!e.startsWith("WARNING")) return true;
+            }
+            return false;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
     public static List<String> validate(File xml, File xsd) throws SAXException, IOException {
-        SchemaFactory factory = SchemaFactory.newInstance("http://www.w3.org/2001/XMLSchema");
-        Schema schema = factory.newSchema(xsd);               // or factory.newSchema(new Source[]{...});
+        return validate(xml, SchemaCache.get(xsd.toPath())); // compiled once per XSD version
+    }
+
+    public static List<String> validate(File xml, Schema schema) throws SAXException, IOException {
         Validator validator = schema.newValidator();
 
         CollectingErrorHandler handler = new CollectingErrorHandler();
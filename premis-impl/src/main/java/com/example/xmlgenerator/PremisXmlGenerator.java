@@ -1,11 +1,13 @@
 package com.example.xmlgenerator;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
 import javax.xml.namespace.QName;
 
 import com.example.PremisJaxbV3Generator;
+import com.example.fixity.FixityEngine;
+import com.example.jaxb.JaxbContextRegistry;
+import com.example.streaming.AtomicFileOutput;
 
 import gov.loc.premis.v3.CreatingApplicationComplexType;
 import gov.loc.premis.v3.File;
@@ -23,16 +25,13 @@ import gov.loc.premis.v3.RelationshipComplexType;
 import gov.loc.premis.v3.SignificantPropertiesComplexType;
 import gov.loc.premis.v3.StringPlusAuthority;
 
-import java.io.OutputStream;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 import java.time.format.DateTimeFormatter;
 
 
@@ -42,7 +41,7 @@ public class PremisXmlGenerator {
     private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     private static final String PREMIS_NS = "http://www.loc.gov/premis/v3";
     private final Path sipRoot;
-    private final JAXBContext jaxb;
+    private final JaxbContextRegistry jaxb;
     private final ObjectFactory factory;
     private PremisComplexType premisRoot;
     private JAXBElement<PremisComplexType> premisElement;
@@ -53,7 +52,7 @@ public class PremisXmlGenerator {
             throw new IllegalArgumentException("sipRoot must be an existing directory");
         }
         this.sipRoot = sipRoot;
-        this.jaxb = JAXBContext.newInstance("gov.loc.premis.v3");
+        this.jaxb = JaxbContextRegistry.premis();
         this.factory = new ObjectFactory();
 
         createOrLoadPremisRoot();
@@ -98,51 +97,21 @@ public class PremisXmlGenerator {
     }
 
     public void save(Path out) throws Exception {
-        Marshaller marshaller = jaxb.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION,
-                PREMIS_NS + " http://www.loc.gov/standards/premis/premis-3-0.xsd");
-        try {
-            com.sun.xml.bind.marshaller.NamespacePrefixMapper mapper =
-                    new com.sun.xml.bind.marshaller.NamespacePrefixMapper() {
-                        @Override
-                        public String getPreferredPrefix(String namespaceUri, String suggestion, boolean requirePrefix) {
-                            if (PREMIS_NS.equals(namespaceUri)) return "premis";
-                            if ("http://www.w3.org/2001/XMLSchema-instance".equals(namespaceUri)) return "xsi";
-                            return suggestion;
-                        }
-                    };
-            marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", mapper);
-        } catch (Throwable t) {
-        }
+        // shared thread-local marshaller: formatted, PREMIS schemaLocation and the "premis" prefix
+        Marshaller marshaller = jaxb.prefixedMarshaller();
 
         try {
             Method setVersion = this.premisRoot.getClass().getMethod("setVersion", String.class);
             setVersion.invoke(this.premisRoot, "3.0");
         } catch (NoSuchMethodException ignored) { /* ignore */ }
 
-        Path tmp = Files.createTempFile("premis-", ".xml");
-        try (OutputStream os = Files.newOutputStream(tmp)) {
-            marshaller.marshal(this.premisElement, os);
-        }
-
-        String xml = new String(Files.readAllBytes(tmp), StandardCharsets.UTF_8);
-        if (!xml.contains("premis:premis")) {
-            xml = xml.replaceFirst("<premis\\s+xmlns=\""+Pattern.quote(PREMIS_NS)+"\"",
-                    "<premis:premis xmlns:premis=\"" + PREMIS_NS + "\"");
-            xml = xml.replaceFirst("</premis>", "</premis:premis>");
-        }
-
-        // ensure first premis:object has xsi:type attribute (if not already present)
-        if (!xml.contains("xsi:type=\"premis:intellectualEntity\"")) {
-            xml = xml.replaceFirst("<premis:object(\\s*)([^>]*)>",
-                                "<premis:object xsi:type=\"premis:intellectualEntity\" $2>");
+        // the prefixed marshaller already writes premis:/xsi: prefixes and xsi:type for each object
+        // subclass, so marshal straight to the target in one pass; the rename keeps a failed save from
+        // clobbering the previous file
+        try (AtomicFileOutput af = AtomicFileOutput.open(out)) {
+            marshaller.marshal(this.premisElement, af.stream());
+            af.commit();
         }
-
-
-        byte[] outBytes = xml.getBytes(StandardCharsets.UTF_8);
-        Files.write(out, outBytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        Files.deleteIfExists(tmp);
     }
 
 
@@ -294,6 +263,20 @@ private StringPlusAuthority spa(String value) {
 
 
 
+/**
+ * Add a PREMIS file object for a file on disk; size and SHA-256 fixity are taken from the file
+ * through FixityEngine.
+ */
+public void addFileObjectUsingJaxbClasses(Path file,
+                                          String objectIdentifierValue,
+                                          String formatName,
+                                          String creatingAppName,
+                                          String dateCreatedByApp) throws IOException {
+    addFileObjectUsingJaxbClasses(objectIdentifierValue, Files.size(file),
+            FixityEngine.SHA_256, FixityEngine.getDefault().sha256Hex(file),
+            formatName, creatingAppName, dateCreatedByApp);
+}
+
 /**
  * Add a PREMIS file object using generated JAXB classes (no raw XML fragments).
  * This method uses direct setters where available and small reflection fallbacks
@@ -376,7 +359,7 @@ public void addFileObjectUsingJaxbClasses(String objectIdentifierValue,
         try {
             FixityComplexType fix = new FixityComplexType();
             // set algorithm
-            try { fix.setMessageDigestAlgorithm(spa(digestValue)); } catch (Throwable t) {
+            try { fix.setMessageDigestAlgorithm(spa(digestAlgo)); } catch (Throwable t) {
                 try { Method m = fix.getClass().getMethod("setMessageDigestAlgorithm", StringPlusAuthority.class); m.invoke(fix, spa(digestAlgo)); } catch (Throwable ignored) {}
             }
             // set digest